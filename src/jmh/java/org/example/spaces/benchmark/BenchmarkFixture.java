@@ -0,0 +1,107 @@
+package org.example.spaces.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.spaces.cache.ContentHashIndex;
+import org.example.spaces.cache.DiskCache;
+import org.example.spaces.cache.KeyIndex;
+import org.example.spaces.cache.MetadataCache;
+import org.example.spaces.cache.RequestCoalescer;
+import org.example.spaces.checksum.Checksummer;
+import org.example.spaces.compression.Compressor;
+import org.example.spaces.config.SpacesConfig;
+import org.example.spaces.controller.SpacesController;
+import org.example.spaces.metrics.ConnectionPoolMetricPublisher;
+import org.example.spaces.routing.ShardTopology;
+import org.example.spaces.service.impl.ArchiveWriter;
+import org.example.spaces.service.impl.BatchDeleter;
+import org.example.spaces.service.impl.BulkUploader;
+import org.example.spaces.service.impl.MultipartUploader;
+import org.example.spaces.service.impl.ObjectCopier;
+import org.example.spaces.service.impl.RangedDownloader;
+import org.example.spaces.service.impl.SpacesServiceImpl;
+import org.example.spaces.service.impl.UploadSessionManager;
+import org.example.spaces.service.impl.UploadSpool;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/*
+* 基准测试装配
+* 不启动Spring容器，手动组装服务层和控制器，S3客户端替换为进程内桩*/
+public class BenchmarkFixture implements AutoCloseable {
+    private final InMemoryS3Client s3Client = new InMemoryS3Client();
+    private final ExecutorService transferExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final SpacesServiceImpl spacesService;
+    private final SpacesController spacesController;
+
+    public BenchmarkFixture(boolean cacheEnabled) {
+        this(cacheEnabled, spacesConfig -> {
+        });
+    }
+
+    /*
+    * @param customizer 在组装前调整配置
+    * */
+    public BenchmarkFixture(boolean cacheEnabled, Consumer<SpacesConfig> customizer) {
+        SpacesConfig spacesConfig = new SpacesConfig();
+        spacesConfig.setAccessKey("benchmark");
+        spacesConfig.setSecretKey("benchmark");
+        spacesConfig.setRegion("sgp1");
+        spacesConfig.setBucketName("benchmark-bucket");
+        spacesConfig.setEndpointUrl("http://localhost/");
+        spacesConfig.getCache().setEnabled(cacheEnabled);
+        customizer.accept(spacesConfig);
+
+        MetadataCache metadataCache = new MetadataCache(spacesConfig);
+        KeyIndex keyIndex = new KeyIndex(s3Client, spacesConfig, transferExecutor);
+        BatchDeleter batchDeleter = new BatchDeleter(s3Client, spacesConfig, metadataCache, keyIndex, transferExecutor);
+        Compressor compressor = new Compressor(spacesConfig, new SimpleMeterRegistry());
+        ShardTopology shardTopology = ShardTopology.single(spacesConfig, s3Client, null);
+        Checksummer checksummer = new Checksummer(spacesConfig);
+        this.spacesService = new SpacesServiceImpl(
+                s3Client,
+                spacesConfig,
+                new MultipartUploader(s3Client, spacesConfig, checksummer, transferExecutor),
+                new RangedDownloader(s3Client, spacesConfig, transferExecutor),
+                metadataCache,
+                batchDeleter,
+                new ContentHashIndex(spacesConfig),
+                compressor,
+                new RequestCoalescer(spacesConfig),
+                shardTopology,
+                keyIndex,
+                new ObjectCopier(s3Client, spacesConfig, metadataCache, keyIndex, batchDeleter, transferExecutor),
+                checksummer);
+        this.spacesController = new SpacesController(
+                spacesService,
+                new ObjectMapper().registerModule(new JavaTimeModule()),
+                new ConnectionPoolMetricPublisher(),
+                new DiskCache(spacesConfig, spacesService),
+                compressor,
+                spacesConfig,
+                new BulkUploader(spacesService, spacesConfig, transferExecutor),
+                new ArchiveWriter(spacesService, spacesConfig, compressor, transferExecutor),
+                new UploadSpool(spacesService, spacesConfig, transferExecutor),
+                new UploadSessionManager(s3Client, spacesConfig, spacesService, metadataCache, keyIndex));
+    }
+
+    public InMemoryS3Client s3Client() {
+        return s3Client;
+    }
+
+    public SpacesServiceImpl spacesService() {
+        return spacesService;
+    }
+
+    public SpacesController spacesController() {
+        return spacesController;
+    }
+
+    @Override
+    public void close() {
+        transferExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,74 @@
+package org.example.spaces.benchmark;
+
+import org.example.spaces.checksum.Checksummer;
+import org.example.spaces.config.SpacesConfig;
+import org.example.spaces.model.FileMetadata;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+* 端到端校验和开销基准
+* upload 为经过服务层的流式上传（S3为进程内桩，校验和计算占比被放大），verify 为下载时边读边校验的输入流；NONE 为基线*/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class ChecksumBenchmark {
+    @Param({"NONE", "CRC32C", "SHA256"})
+    private String algorithm;
+
+    @Param({"1048576", "16777216", "67108864"})
+    private int size;
+
+    private BenchmarkFixture fixture;
+    private Checksummer checksummer;
+    private byte[] content;
+    private FileMetadata metadata;
+
+    @Setup
+    public void setup() {
+        SpacesConfig spacesConfig = new SpacesConfig();
+        configure(spacesConfig);
+        fixture = new BenchmarkFixture(true, this::configure);
+        checksummer = new Checksummer(spacesConfig);
+
+        content = new byte[size];
+        ThreadLocalRandom.current().nextBytes(content);
+        metadata = checksummer.describe(FileMetadata.builder().key("payload.bin").size((long) size),
+                        checksummer.checksumOf(content), null)
+                .build();
+    }
+
+    private void configure(SpacesConfig spacesConfig) {
+        spacesConfig.getChecksum().setEnabled(!"NONE".equals(algorithm));
+        if (!"NONE".equals(algorithm)) {
+            spacesConfig.getChecksum().setAlgorithm(SpacesConfig.ChecksumAlgorithm.valueOf(algorithm));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        fixture.close();
+    }
+
+    @Benchmark
+    public FileMetadata upload() {
+        return fixture.spacesService().uploadFile(
+                new ByteArrayInputStream(content), "payload.bin", "application/octet-stream", "bench");
+    }
+
+    @Benchmark
+    public long verify() throws IOException {
+        try (InputStream inputStream = checksummer.verify(new ByteArrayInputStream(content), metadata)) {
+            return inputStream.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package org.example.spaces.benchmark;
+
+import org.example.spaces.model.FileContent;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+* 下载吞吐基准
+* 服务层openFile/区间下载，以及控制器完整下载路径（含元数据查询）*/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class DownloadBenchmark {
+    private static final String KEY = "bench/payload.bin";
+
+    @Param({"1024", "1048576", "16777216"})
+    private int size;
+
+    //关闭缓存时每次区间下载都要先HEAD
+    @Param({"true", "false"})
+    private boolean cacheEnabled;
+
+    private BenchmarkFixture fixture;
+
+    @Setup
+    public void setup() {
+        fixture = new BenchmarkFixture(cacheEnabled);
+        byte[] content = new byte[size];
+        ThreadLocalRandom.current().nextBytes(content);
+        fixture.s3Client().seed(KEY, content, "application/octet-stream");
+    }
+
+    @TearDown
+    public void tearDown() {
+        fixture.close();
+    }
+
+    @Benchmark
+    public long openFile() throws IOException {
+        try (FileContent content = fixture.spacesService().openFile(KEY)) {
+            return content.getInputStream().transferTo(OutputStream.nullOutputStream());
+        }
+    }
+
+    @Benchmark
+    public long downloadFirstHalf() throws IOException {
+        try (InputStream inputStream = fixture.spacesService().downloadFile(KEY, 0, size / 2)) {
+            return inputStream.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+
+    @Benchmark
+    public int controllerDownload() throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        fixture.spacesController().downloadFile(KEY, null, null, new MockHttpServletRequest(), response);
+        return response.getContentAsByteArray().length;
+    }
+
+    @Benchmark
+    public int controllerRangeDownload() throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        fixture.spacesController().downloadFile(KEY, "bytes=0-1023", null, new MockHttpServletRequest(), response);
+        return response.getContentAsByteArray().length;
+    }
+}
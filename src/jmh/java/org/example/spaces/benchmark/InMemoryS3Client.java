@@ -0,0 +1,249 @@
+package org.example.spaces.benchmark;
+
+import software.amazon.awssdk.core.ResponseBytes;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.core.sync.ResponseTransformer;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3ServiceClientConfiguration;
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+* 进程内S3桩
+* 只实现服务层用到的API，数据保存在内存中，用于无网络的基准测试*/
+public class InMemoryS3Client implements S3Client {
+    private final ConcurrentSkipListMap<String, StoredObject> objects = new ConcurrentSkipListMap<>();
+    private final Map<String, ConcurrentSkipListMap<Integer, byte[]>> uploads = new ConcurrentHashMap<>();
+
+    //各API调用次数，用于核对一次下载的往返次数
+    private final AtomicLong headCount = new AtomicLong();
+    private final AtomicLong getCount = new AtomicLong();
+
+    private record StoredObject(byte[] data, String contentType, String eTag, Instant lastModified) {
+    }
+
+    /*
+    * 直接写入对象，不计入调用次数
+    * */
+    public void seed(String key, byte[] data, String contentType) {
+        objects.put(key, new StoredObject(data, contentType, etag(data), Instant.now()));
+    }
+
+    public long headCount() {
+        return headCount.get();
+    }
+
+    public long getCount() {
+        return getCount.get();
+    }
+
+    @Override
+    public PutObjectResponse putObject(PutObjectRequest request, RequestBody requestBody) {
+        byte[] data = readAll(requestBody);
+        StoredObject object = new StoredObject(data, request.contentType(), etag(data), Instant.now());
+        objects.put(request.key(), object);
+        return PutObjectResponse.builder().eTag(object.eTag()).build();
+    }
+
+    @Override
+    public <ReturnT> ReturnT getObject(GetObjectRequest request,
+                                       ResponseTransformer<GetObjectResponse, ReturnT> responseTransformer) {
+        getCount.incrementAndGet();
+        StoredObject object = find(request.key());
+
+        int start = 0;
+        int end = object.data().length - 1;
+        String contentRange = null;
+        if (request.range() != null) {
+            String[] range = request.range().substring("bytes=".length()).split("-");
+            start = Integer.parseInt(range[0]);
+            if (range.length > 1 && !range[1].isEmpty()) {
+                end = Math.min(end, Integer.parseInt(range[1]));
+            }
+            contentRange = "bytes " + start + "-" + end + "/" + object.data().length;
+        }
+
+        GetObjectResponse response = GetObjectResponse.builder()
+                .contentLength((long) (end - start + 1))
+                .contentType(object.contentType())
+                .contentRange(contentRange)
+                .eTag(object.eTag())
+                .lastModified(object.lastModified())
+                .build();
+        InputStream body = new ByteArrayInputStream(object.data(), start, end - start + 1);
+        try {
+            return responseTransformer.transform(response, AbortableInputStream.create(body));
+        } catch (Exception e) {
+            throw SdkClientException.create(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public ResponseBytes<GetObjectResponse> getObjectAsBytes(GetObjectRequest request) {
+        return getObject(request, ResponseTransformer.toBytes());
+    }
+
+    @Override
+    public HeadObjectResponse headObject(HeadObjectRequest request) {
+        headCount.incrementAndGet();
+        StoredObject object = find(request.key());
+        return HeadObjectResponse.builder()
+                .contentLength((long) object.data().length)
+                .contentType(object.contentType())
+                .eTag(object.eTag())
+                .lastModified(object.lastModified())
+                .build();
+    }
+
+    @Override
+    public ListObjectsV2Response listObjectsV2(ListObjectsV2Request request) {
+        String prefix = request.prefix() != null ? request.prefix() : "";
+        int maxKeys = request.maxKeys() != null ? request.maxKeys() : 1000;
+        NavigableMap<String, StoredObject> view = request.continuationToken() != null
+                ? objects.tailMap(request.continuationToken(), false)
+                : objects.tailMap(prefix, true);
+
+        List<S3Object> contents = new ArrayList<>();
+        Set<String> commonPrefixes = new LinkedHashSet<>();
+        String lastKey = null;
+        boolean truncated = false;
+        for (Map.Entry<String, StoredObject> entry : view.entrySet()) {
+            String key = entry.getKey();
+            if (!key.startsWith(prefix)) {
+                break;
+            }
+            if (contents.size() + commonPrefixes.size() >= maxKeys) {
+                truncated = true;
+                break;
+            }
+            lastKey = key;
+            int delimiterIndex = request.delimiter() != null
+                    ? key.indexOf(request.delimiter(), prefix.length())
+                    : -1;
+            if (delimiterIndex >= 0) {
+                commonPrefixes.add(key.substring(0, delimiterIndex + request.delimiter().length()));
+                continue;
+            }
+            StoredObject object = entry.getValue();
+            contents.add(S3Object.builder()
+                    .key(key)
+                    .size((long) object.data().length)
+                    .eTag(object.eTag())
+                    .lastModified(object.lastModified())
+                    .build());
+        }
+
+        return ListObjectsV2Response.builder()
+                .contents(contents)
+                .commonPrefixes(commonPrefixes.stream()
+                        .map(p -> CommonPrefix.builder().prefix(p).build())
+                        .toList())
+                .isTruncated(truncated)
+                .nextContinuationToken(truncated ? lastKey : null)
+                .keyCount(contents.size())
+                .build();
+    }
+
+    @Override
+    public DeleteObjectResponse deleteObject(DeleteObjectRequest request) {
+        objects.remove(request.key());
+        return DeleteObjectResponse.builder().build();
+    }
+
+    @Override
+    public DeleteObjectsResponse deleteObjects(DeleteObjectsRequest request) {
+        List<DeletedObject> deleted = new ArrayList<>();
+        for (ObjectIdentifier identifier : request.delete().objects()) {
+            objects.remove(identifier.key());
+            deleted.add(DeletedObject.builder().key(identifier.key()).build());
+        }
+        return DeleteObjectsResponse.builder().deleted(deleted).build();
+    }
+
+    @Override
+    public CreateMultipartUploadResponse createMultipartUpload(CreateMultipartUploadRequest request) {
+        String uploadId = UUID.randomUUID().toString();
+        uploads.put(uploadId, new ConcurrentSkipListMap<>());
+        return CreateMultipartUploadResponse.builder()
+                .bucket(request.bucket())
+                .key(request.key())
+                .uploadId(uploadId)
+                .build();
+    }
+
+    @Override
+    public UploadPartResponse uploadPart(UploadPartRequest request, RequestBody requestBody) {
+        byte[] data = readAll(requestBody);
+        uploads.get(request.uploadId()).put(request.partNumber(), data);
+        return UploadPartResponse.builder().eTag(etag(data)).build();
+    }
+
+    @Override
+    public CompleteMultipartUploadResponse completeMultipartUpload(CompleteMultipartUploadRequest request) {
+        ConcurrentSkipListMap<Integer, byte[]> parts = uploads.remove(request.uploadId());
+        int size = parts.values().stream().mapToInt(part -> part.length).sum();
+        byte[] data = new byte[size];
+        int offset = 0;
+        for (byte[] part : parts.values()) {
+            System.arraycopy(part, 0, data, offset, part.length);
+            offset += part.length;
+        }
+        String eTag = etag(data) + "-" + parts.size();
+        objects.put(request.key(), new StoredObject(data, null, eTag, Instant.now()));
+        return CompleteMultipartUploadResponse.builder().eTag(eTag).build();
+    }
+
+    @Override
+    public AbortMultipartUploadResponse abortMultipartUpload(AbortMultipartUploadRequest request) {
+        uploads.remove(request.uploadId());
+        return AbortMultipartUploadResponse.builder().build();
+    }
+
+    public S3ServiceClientConfiguration serviceClientConfiguration() {
+        return S3ServiceClientConfiguration.builder().build();
+    }
+
+    @Override
+    public String serviceName() {
+        return SERVICE_NAME;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private StoredObject find(String key) {
+        StoredObject object = objects.get(key);
+        if (object == null) {
+            throw NoSuchKeyException.builder()
+                    .message("The specified key does not exist: " + key)
+                    .statusCode(404)
+                    .build();
+        }
+        return object;
+    }
+
+    private static byte[] readAll(RequestBody requestBody) {
+        try (InputStream inputStream = requestBody.contentStreamProvider().newStream()) {
+            return inputStream.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // 桩只需区分内容，不计算真实MD5
+    private static String etag(byte[] data) {
+        return "\"" + Integer.toHexString(Arrays.hashCode(data)) + "\"";
+    }
+}
@@ -0,0 +1,52 @@
+package org.example.spaces.benchmark;
+
+import org.example.spaces.model.FileMetadata;
+import org.example.spaces.model.FilePage;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/*
+* 列表基准
+* 大量对象下的完整列出与单页列出*/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class ListBenchmark {
+    @Param({"1000", "10000", "100000"})
+    private int objectCount;
+
+    private BenchmarkFixture fixture;
+
+    @Setup
+    public void setup() {
+        fixture = new BenchmarkFixture(true);
+        byte[] content = new byte[16];
+        for (int i = 0; i < objectCount; i++) {
+            fixture.s3Client().seed(String.format("bench/%08d.txt", i), content, "text/plain");
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        fixture.close();
+    }
+
+    // listFiles(prefix)只返回第一页，完整列出走streamFiles逐页拉取
+    @Benchmark
+    public void listAll(Blackhole blackhole) {
+        try (Stream<FileMetadata> files = fixture.spacesService().streamFiles("bench/")) {
+            files.forEach(blackhole::consume);
+        }
+    }
+
+    @Benchmark
+    public FilePage listFirstPage() {
+        return fixture.spacesService().listFiles("bench/", null, 1000, null);
+    }
+}
@@ -0,0 +1,109 @@
+package org.example.spaces.benchmark;
+
+import com.sun.net.httpserver.HttpServer;
+import org.example.spaces.DigitalOceanApplication;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+
+/*
+* 冷启动基准
+* 每次测量在新JVM中启动完整的Spring应用：timeToReady 为启动到就绪，timeToFirstResponse 再加上首个经过S3客户端的请求；
+* Spaces替换为本地HTTP桩，任意请求返回200，无需网络
+* 对比CDS：-jvmArgsAppend "-XX:+AutoCreateSharedArchive -XX:SharedArchiveFile=target/startup-benchmark.jsa"（首个预热fork生成归档）*/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(value = 10, warmups = 1, jvmArgsAppend = "--enable-preview")
+public class StartupBenchmark {
+    private static final String KEY = "startup.txt";
+
+    //default 为默认配置；prod 关闭springdoc并延迟创建S3客户端
+    @Param({"default", "prod"})
+    private String profile;
+
+    private HttpServer spaces;
+    private HttpClient httpClient;
+    private ConfigurableApplicationContext context;
+
+    @Setup(Level.Iteration)
+    public void setup() throws Exception {
+        String lastModified = DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC));
+        spaces = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        spaces.createContext("/", exchange -> {
+            exchange.getResponseHeaders().add("ETag", "\"startup\"");
+            exchange.getResponseHeaders().add("Last-Modified", lastModified);
+            exchange.getResponseHeaders().add("Content-Type", "text/plain");
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        spaces.start();
+
+        // 基准自身的HTTP客户端先完成类加载，不计入测量
+        httpClient = HttpClient.newHttpClient();
+        httpClient.send(HttpRequest.newBuilder(URI.create(spacesUrl())).build(), HttpResponse.BodyHandlers.discarding());
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        if (context != null) {
+            context.close();
+            context = null;
+        }
+        spaces.stop(0);
+    }
+
+    @Benchmark
+    public ConfigurableApplicationContext timeToReady() {
+        context = start();
+        return context;
+    }
+
+    @Benchmark
+    public int timeToFirstResponse() throws IOException, InterruptedException {
+        context = start();
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        HttpResponse<Void> response = httpClient.send(
+                HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + "/api/v1/spaces/metadata/" + KEY)).build(),
+                HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("首个请求失败: " + response.statusCode());
+        }
+        return response.statusCode();
+    }
+
+    // 使用命令行参数：优先级高于application-prod.yml中的环境变量占位符
+    private ConfigurableApplicationContext start() {
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(DigitalOceanApplication.class);
+        if (!"default".equals(profile)) {
+            builder.profiles(profile);
+        }
+        return builder.run(
+                "--server.port=0",
+                "--digitalocean.spaces.access-key=benchmark",
+                "--digitalocean.spaces.secret-key=benchmark",
+                "--digitalocean.spaces.region=sgp1",
+                "--digitalocean.spaces.bucket-name=benchmark-bucket",
+                "--digitalocean.spaces.endpoint-url=" + spacesUrl(),
+                // 只测冷启动本身，后台预热会与首个请求争用
+                "--digitalocean.spaces.startup.warm-up=false");
+    }
+
+    private String spacesUrl() {
+        return "http://127.0.0.1:" + spaces.getAddress().getPort();
+    }
+}
@@ -0,0 +1,62 @@
+package org.example.spaces.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/*
+* 启动时间预算检查
+* 读取 StartupBenchmark 的JSON结果，任一profile的 timeToReady / timeToFirstResponse 均值超过预算时以非0退出，使 verify 失败
+* 用法：StartupBudget <结果文件> <timeToReady预算ms> <timeToFirstResponse预算ms>*/
+public class StartupBudget {
+    private static final String BENCHMARK = StartupBenchmark.class.getName();
+    private static final String SCORE_UNIT = "ms/op";
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            System.err.println("用法: StartupBudget <startup-benchmark.json> <ready-ms> <first-response-ms>");
+            System.exit(2);
+        }
+        Path results = Path.of(args[0]);
+        Map<String, Double> budgets = Map.of(
+                BENCHMARK + ".timeToReady", Double.parseDouble(args[1]),
+                BENCHMARK + ".timeToFirstResponse", Double.parseDouble(args[2]));
+
+        List<String> exceeded = new ArrayList<>();
+        int checked = 0;
+        for (JsonNode result : new ObjectMapper().readTree(results.toFile())) {
+            Double budget = budgets.get(result.path("benchmark").asText());
+            if (budget == null) {
+                continue;
+            }
+            JsonNode metric = result.path("primaryMetric");
+            if (!SCORE_UNIT.equals(metric.path("scoreUnit").asText())) {
+                throw new IllegalStateException("启动基准的单位应为 " + SCORE_UNIT + ": " + metric.path("scoreUnit"));
+            }
+            double score = metric.path("score").asDouble();
+            String name = result.path("benchmark").asText().substring(BENCHMARK.length() + 1)
+                    + " " + result.path("params");
+            System.out.printf("%s: %.1f ms（预算 %.0f ms）%n", name, score, budget);
+            if (score > budget) {
+                exceeded.add(String.format("%s: %.1f ms > %.0f ms", name, score, budget));
+            }
+            checked++;
+        }
+
+        // 结果中没有启动基准说明基准未运行或被过滤掉，同样视为失败
+        if (checked == 0) {
+            System.err.println("结果文件中没有启动基准: " + results);
+            System.exit(1);
+        }
+        if (!exceeded.isEmpty()) {
+            System.err.println("启动时间超出预算:");
+            exceeded.forEach(line -> System.err.println("  " + line));
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package org.example.spaces.benchmark;
+
+import org.example.spaces.model.FileMetadata;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+* 上传吞吐基准
+* 按对象大小对比MultipartFile上传与流式分片上传*/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class UploadBenchmark {
+    @Param({"1024", "1048576", "16777216", "67108864"})
+    private int size;
+
+    private BenchmarkFixture fixture;
+    private byte[] content;
+    private MockMultipartFile multipartFile;
+
+    @Setup
+    public void setup() {
+        fixture = new BenchmarkFixture(true);
+        content = new byte[size];
+        ThreadLocalRandom.current().nextBytes(content);
+        multipartFile = new MockMultipartFile("file", "payload.bin", "application/octet-stream", content);
+    }
+
+    @TearDown
+    public void tearDown() {
+        fixture.close();
+    }
+
+    @Benchmark
+    public FileMetadata uploadMultipartFile() {
+        return fixture.spacesService().uploadFile(multipartFile, "bench");
+    }
+
+    @Benchmark
+    public FileMetadata uploadStream() {
+        return fixture.spacesService().uploadFile(
+                new ByteArrayInputStream(content), "payload.bin", "application/octet-stream", "bench");
+    }
+}
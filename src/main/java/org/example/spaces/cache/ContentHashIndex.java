@@ -0,0 +1,179 @@
+package org.example.spaces.cache;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.spaces.config.SpacesConfig;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/*
+* 内容哈希索引
+* SHA-256到文件键的映射，以追加日志形式持久化到本地，启动时重放并压缩
+* 日志行为 操作 + 十六进制哈希 + 空格 + Base64URL编码的文件键，文件键中的换行等字符不会伪造出新的日志行*/
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ContentHashIndex {
+    //对象自定义元数据中保存哈希的键，即 x-amz-meta-sha256
+    public static final String METADATA_KEY = "sha256";
+
+    //日志行前缀：新增或移除一条映射
+    private static final char ADD = '+';
+    private static final char REMOVE = '-';
+
+    //索引日志文件名；早期版本的index.log未编码文件键，不再读取
+    private static final String JOURNAL_FILE = "hash-index.log";
+    private static final Pattern SHA256_HEX = Pattern.compile("[0-9a-f]{64}");
+
+    private final SpacesConfig spacesConfig;
+
+    private final Map<String, String> keysByHash = new ConcurrentHashMap<>();
+    private final AtomicLong hitCount = new AtomicLong();
+    private BufferedWriter journal;
+
+    /*
+    * 重放索引日志，并把当前有效的映射重写为新日志
+    * */
+    @PostConstruct
+    public void init() throws IOException {
+        if (!isEnabled()) {
+            return;
+        }
+        Path directory = Path.of(spacesConfig.getDedup().getDirectory());
+        Files.createDirectories(directory);
+        Path file = directory.resolve(JOURNAL_FILE);
+
+        if (Files.exists(file)) {
+            List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            for (String line : lines) {
+                replay(line);
+            }
+            // 压缩：只保留当前有效的映射，原子替换旧日志
+            Path compacted = file.resolveSibling(file.getFileName() + ".compact");
+            try (BufferedWriter writer = Files.newBufferedWriter(compacted, StandardCharsets.UTF_8)) {
+                for (Map.Entry<String, String> entry : keysByHash.entrySet()) {
+                    writer.write(line(ADD, entry.getKey(), entry.getValue()));
+                    writer.newLine();
+                }
+            }
+            Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        journal = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        log.info("内容去重已开启，索引: {}, 条目数: {}", file, keysByHash.size());
+    }
+
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        if (journal != null) {
+            journal.close();
+            journal = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return spacesConfig.getDedup().isEnabled();
+    }
+
+    /*
+    * 查找已上传过该内容的文件键
+    * @param contentHash 十六进制SHA-256
+    * @return 文件键；未上传过时返回Optional.empty()
+    * */
+    public Optional<String> find(String contentHash) {
+        return Optional.ofNullable(keysByHash.get(contentHash));
+    }
+
+    /*
+    * 记录新上传的内容，已有映射时保留旧的文件键
+    * */
+    public void record(String contentHash, String key) {
+        if (keysByHash.putIfAbsent(contentHash, key) == null) {
+            append(ADD, contentHash, key);
+        }
+    }
+
+    /*
+    * 移除失效映射（文件已被删除），仅当仍指向该文件键时生效
+    * */
+    public void remove(String contentHash, String key) {
+        if (keysByHash.remove(contentHash, key)) {
+            append(REMOVE, contentHash, key);
+        }
+    }
+
+    public void recordHit() {
+        hitCount.incrementAndGet();
+    }
+
+    public long hitCount() {
+        return hitCount.get();
+    }
+
+    public int size() {
+        return keysByHash.size();
+    }
+
+    // 哈希或文件键不合法的行（如写到一半的最后一行）直接跳过
+    private void replay(String line) {
+        int separator = line.indexOf(' ');
+        if (line.length() < 2 || separator < 0) {
+            return;
+        }
+        String contentHash = line.substring(1, separator);
+        if (!SHA256_HEX.matcher(contentHash).matches()) {
+            return;
+        }
+        String key;
+        try {
+            key = new String(Base64.getUrlDecoder().decode(line.substring(separator + 1)), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            return;
+        }
+        if (key.isEmpty()) {
+            return;
+        }
+        if (line.charAt(0) == ADD) {
+            keysByHash.put(contentHash, key);
+        } else if (line.charAt(0) == REMOVE) {
+            keysByHash.remove(contentHash, key);
+        }
+    }
+
+    // 每条记录立即刷盘，进程崩溃最多丢失正在写的一行
+    private synchronized void append(char operation, String contentHash, String key) {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.write(line(operation, contentHash, key));
+            journal.newLine();
+            journal.flush();
+        } catch (IOException e) {
+            // 文件已上传成功，索引写失败只影响后续去重命中
+            log.warn("写入去重索引失败: {}", e.getMessage());
+        }
+    }
+
+    private static String line(char operation, String contentHash, String key) {
+        return operation + contentHash + " "
+                + Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+}
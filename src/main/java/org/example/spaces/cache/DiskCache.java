@@ -0,0 +1,253 @@
+package org.example.spaces.cache;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.spaces.config.SpacesConfig;
+import org.example.spaces.exception.FileStorageException;
+import org.example.spaces.model.CachedFile;
+import org.example.spaces.model.FileContent;
+import org.example.spaces.model.FileMetadata;
+import org.example.spaces.service.SpacesService;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/*
+* 本地磁盘读穿缓存
+* 以文件键为key缓存对象内容，命中前用（通常已缓存的）元数据eTag校验，
+* 同一文件的并发未命中只向Spaces拉取一次
+* 淘汰的文件延迟删除：sendfile在请求处理结束后才按路径打开文件，期间路径必须仍然有效*/
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DiskCache {
+    //缓存文件名为 UUID.bin，写入中为 UUID.bin.part；启动时只清理这两种文件
+    private static final Pattern CACHE_FILE = Pattern.compile("[0-9a-f]{8}(-[0-9a-f]{4}){3}-[0-9a-f]{12}\\.bin(\\.part)?");
+
+    private final SpacesConfig spacesConfig;
+    private final SpacesService spacesService;
+
+    //访问顺序的LinkedHashMap即LRU，所有访问都在this上同步
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, CompletableFuture<Entry>> inFlight = new ConcurrentHashMap<>();
+    private long totalBytes;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    private Path directory;
+    private ScheduledExecutorService cleaner;
+
+    private record Entry(FileMetadata metadata, Path path) {
+    }
+
+    /*
+    * 初始化缓存目录，索引只在内存中，启动时删除上次运行留下的缓存文件
+    * 目录本身和其中的其他文件不动，配置错目录（如/var/data）时不会误删数据
+    * */
+    @PostConstruct
+    public void init() throws IOException {
+        SpacesConfig.DiskCache config = spacesConfig.getDiskCache();
+        if (!config.isEnabled()) {
+            return;
+        }
+        directory = Path.of(config.getDirectory());
+        Files.createDirectories(directory);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory,
+                path -> Files.isRegularFile(path) && CACHE_FILE.matcher(path.getFileName().toString()).matches())) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        }
+        cleaner = Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().name("disk-cache-cleaner").factory());
+        log.info("磁盘缓存已开启，目录: {}, 上限: {}", directory, config.getMaxSize());
+    }
+
+    /*
+    * 停止时尚未删除的淘汰文件留到下次启动时清理
+    * */
+    @PreDestroy
+    public void close() {
+        if (cleaner != null) {
+            cleaner.shutdownNow();
+        }
+    }
+
+    public boolean isEnabled() {
+        return spacesConfig.getDiskCache().isEnabled();
+    }
+
+    /*
+    * 打开缓存文件，未命中时从Spaces拉取并写入缓存
+    * @param key 文件键
+    * @param current 调用方已取得的当前元数据，用于校验缓存是否过期；条件请求应在调用前用它判断是否未修改
+    * @return 缓存文件；文件过大不适合缓存时返回Optional.empty()
+    * */
+    public Optional<CachedFile> open(String key, FileMetadata current) throws IOException {
+        if (current.getSize() > spacesConfig.getDiskCache().getMaxObjectSize().toBytes()) {
+            return Optional.empty();
+        }
+
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null && Objects.equals(entry.metadata().getETag(), current.getETag())) {
+                hitCount.incrementAndGet();
+                return Optional.of(openEntry(entry));
+            }
+            if (entry != null) {
+                // eTag变化说明对象已被覆盖，旧内容作废
+                remove(key);
+            }
+        }
+
+        missCount.incrementAndGet();
+        Entry entry = fillOnce(key);
+        synchronized (this) {
+            try {
+                return Optional.of(openEntry(entry));
+            } catch (NoSuchFileException e) {
+                // 刚写入就被淘汰（缓存上限过小），退回直接下载
+                return Optional.empty();
+            }
+        }
+    }
+
+    public long hitCount() {
+        return hitCount.get();
+    }
+
+    public long missCount() {
+        return missCount.get();
+    }
+
+    public long evictionCount() {
+        return evictionCount.get();
+    }
+
+    public synchronized long totalBytes() {
+        return totalBytes;
+    }
+
+    /*
+    * 单飞拉取：第一个未命中的请求负责下载，其余请求等待同一结果
+    * */
+    private Entry fillOnce(String key) throws IOException {
+        CompletableFuture<Entry> mine = new CompletableFuture<>();
+        CompletableFuture<Entry> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                throw new FileStorageException("缓存文件失败: " + key, e.getCause());
+            }
+        }
+
+        try {
+            Entry entry = fill(key);
+            mine.complete(entry);
+            return entry;
+        } catch (IOException | RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    private Entry fill(String key) throws IOException {
+        Path target = directory.resolve(UUID.randomUUID() + ".bin");
+        Path temp = directory.resolve(target.getFileName() + ".part");
+
+        FileMetadata metadata;
+        try (FileContent content = spacesService.openFile(key);
+             OutputStream outputStream = Files.newOutputStream(temp)) {
+            metadata = content.getMetadata();
+            content.getInputStream().transferTo(outputStream);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+
+        Entry entry = new Entry(metadata, target);
+        synchronized (this) {
+            remove(key);
+            entries.put(key, entry);
+            totalBytes += metadata.getSize();
+            evictIfNeeded(key);
+        }
+        log.debug("已缓存到磁盘: {}, 大小: {} bytes", key, metadata.getSize());
+        return entry;
+    }
+
+    // 在锁内打开通道，保证文件不会在打开前被淘汰删除；交给sendfile的路径在淘汰后仍保留deleteDelay
+    private CachedFile openEntry(Entry entry) throws IOException {
+        return new CachedFile(entry.metadata(), FileChannel.open(entry.path(), StandardOpenOption.READ), entry.path());
+    }
+
+    private void evictIfNeeded(String justAdded) {
+        long maxBytes = spacesConfig.getDiskCache().getMaxSize().toBytes();
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<String, Entry> eldest = iterator.next();
+            if (eldest.getKey().equals(justAdded)) {
+                continue;
+            }
+            iterator.remove();
+            delete(eldest.getValue());
+            evictionCount.incrementAndGet();
+        }
+    }
+
+    private void remove(String key) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            delete(entry);
+        }
+    }
+
+    // 移出索引后立即释放额度，文件延迟删除；已打开的通道不受删除影响
+    private void delete(Entry entry) {
+        totalBytes -= entry.metadata().getSize();
+        long delay = spacesConfig.getDiskCache().getDeleteDelay().toMillis();
+        try {
+            cleaner.schedule(() -> deleteFile(entry.path()), delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // 正在停止，留到下次启动时清理
+        }
+    }
+
+    private void deleteFile(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("删除缓存文件失败: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,548 @@
+package org.example.spaces.cache;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.spaces.config.SpacesConfig;
+import org.example.spaces.exception.FileStorageException;
+import org.example.spaces.model.FileMetadata;
+import org.example.spaces.model.FilePage;
+import org.example.spaces.model.FileQuery;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.CommonPrefix;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/*
+* 本地文件键索引
+* 快照为按UTF-8字节序排好的文件键数组，大小、修改时间和eTag按列存放：前缀二分定位，其余条件顺序扫描列；
+* 本服务的上传/删除先记入增量，与快照合并查询，增量过多时合并进新快照；定期分区并行列出存储桶完整对账*/
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class KeyIndex {
+    //listObjectsV2单页最多1000个
+    private static final int MAX_KEYS = 1000;
+    //增量超过该数量时合并进快照
+    private static final int COMPACT_THRESHOLD = 10_000;
+    //分区边界：buildKey生成的文件名以UUID开头，按十六进制首字符拆分最均匀
+    private static final String BOUNDARIES = "0123456789abcdef";
+    private static final String DELIMITER = "/";
+    //UTF-8字节序中最大的字符，startAfter跳过整个公共前缀
+    private static final String MAX_CHAR = "\uDBFF\uDFFF";
+    private static final Comparator<String> KEY_ORDER = KeyIndex::compareKeys;
+
+    private final S3Client s3Client;
+    private final SpacesConfig spacesConfig;
+    private final ExecutorService transferExecutor;
+
+    //快照之后本服务的上传/删除，按序号判断是否已合并
+    private final ConcurrentSkipListMap<String, Change> changes = new ConcurrentSkipListMap<>(KEY_ORDER);
+    private final AtomicLong sequence = new AtomicLong();
+    //对账和合并互斥
+    private final ReentrantLock maintenance = new ReentrantLock();
+    private final AtomicBoolean compactScheduled = new AtomicBoolean();
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+    private volatile long appliedSequence;
+    private volatile boolean ready;
+    private ScheduledExecutorService scheduler;
+
+    // size小于0表示已删除
+    private record Change(long sequence, long size, long modified, String eTag) {
+        boolean deleted() {
+            return size < 0;
+        }
+    }
+
+    private record Row(String key, long size, long modified, String eTag) {
+    }
+
+    // after不为null时表示只列出了第一页，剩余部分从after之后按分区继续
+    private record Listing(String prefix, String delimiter, List<Row> rows, List<String> commonPrefixes,
+                           String after) {
+    }
+
+    /*
+    * 启动后台对账：立即构建一次，之后按间隔重复
+    * */
+    @PostConstruct
+    public void init() {
+        if (!isEnabled()) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().name("key-index").factory());
+        long interval = spacesConfig.getKeyIndex().getReconcileInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(this::reconcile, 0, interval, TimeUnit.MILLISECONDS);
+        log.info("文件键索引已开启，对账间隔: {}", spacesConfig.getKeyIndex().getReconcileInterval());
+    }
+
+    @PreDestroy
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    public boolean isEnabled() {
+        return spacesConfig.getKeyIndex().isEnabled();
+    }
+
+    /*
+    * 首次构建完成后才能查询
+    * */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /*
+    * 记录本服务上传的文件
+    * */
+    public void put(FileMetadata metadata) {
+        if (!isEnabled()) {
+            return;
+        }
+        long modified = metadata.getLastModified() != null ? metadata.getLastModified().toEpochMilli() : 0;
+        long size = metadata.getSize() != null ? metadata.getSize() : 0;
+        record(metadata.getKey(), size, modified, metadata.getETag());
+    }
+
+    /*
+    * 记录本服务删除的文件
+    * */
+    public void remove(String key) {
+        if (!isEnabled()) {
+            return;
+        }
+        record(key, -1, 0, null);
+    }
+
+    /*
+    * 按条件查询文件，结果按文件键排序
+    * @return 一页文件，元数据只有key/size/lastModified/eTag
+    * */
+    public FilePage search(FileQuery query) {
+        if (!ready) {
+            throw new FileStorageException("文件键索引尚未构建完成，请稍后重试");
+        }
+
+        Snapshot current = snapshot;
+        String prefix = query.getPrefix() != null ? query.getPrefix() : "";
+        String cursor = query.getCursor();
+        boolean afterCursor = StringUtils.hasText(cursor) && compareKeys(cursor, prefix) >= 0;
+        int i = afterCursor ? current.upperBound(cursor) : current.lowerBound(prefix);
+        Iterator<Map.Entry<String, Change>> pending = (afterCursor
+                ? changes.tailMap(cursor, false)
+                : changes.tailMap(prefix, true)).entrySet().iterator();
+        Map.Entry<String, Change> change = pending.hasNext() ? pending.next() : null;
+
+        long minSize = query.getMinSize() != null ? query.getMinSize() : Long.MIN_VALUE;
+        long maxSize = query.getMaxSize() != null ? query.getMaxSize() : Long.MAX_VALUE;
+        long modifiedFrom = query.getModifiedAfter() != null ? query.getModifiedAfter().toEpochMilli() : Long.MIN_VALUE;
+        long modifiedTo = query.getModifiedBefore() != null ? query.getModifiedBefore().toEpochMilli() : Long.MAX_VALUE;
+        String suffix = query.getSuffix();
+
+        // 快照与增量按键归并，同一个键以增量为准
+        List<FileMetadata> files = new ArrayList<>();
+        boolean truncated = false;
+        while (i < current.size() || change != null) {
+            int order = i == current.size() ? 1
+                    : change == null ? -1
+                    : compareKeys(current.keys()[i], change.getKey());
+            String key;
+            long size;
+            long modified;
+            String eTag;
+            if (order < 0) {
+                key = current.keys()[i];
+                size = current.sizes()[i];
+                modified = current.modified()[i];
+                eTag = current.eTags()[i];
+                i++;
+            } else {
+                key = change.getKey();
+                size = change.getValue().size();
+                modified = change.getValue().modified();
+                eTag = change.getValue().eTag();
+                if (order == 0) {
+                    i++;
+                }
+                boolean deleted = change.getValue().deleted();
+                change = pending.hasNext() ? pending.next() : null;
+                if (deleted) {
+                    continue;
+                }
+            }
+
+            if (!key.startsWith(prefix)) {
+                break;
+            }
+            // 先比较列，最后才比较字符串
+            if (size < minSize || size > maxSize || modified < modifiedFrom || modified >= modifiedTo
+                    || (StringUtils.hasText(suffix) && !endsWithIgnoreCase(key, suffix))) {
+                continue;
+            }
+            if (files.size() == query.getLimit()) {
+                truncated = true;
+                break;
+            }
+            files.add(FileMetadata.builder()
+                    .key(key)
+                    .size(size)
+                    .lastModified(Instant.ofEpochMilli(modified))
+                    .eTag(eTag)
+                    .build());
+        }
+
+        return FilePage.builder()
+                .files(files)
+                .commonPrefixes(List.of())
+                .nextCursor(truncated ? files.get(files.size() - 1).getKey() : null)
+                .truncated(truncated)
+                .build();
+    }
+
+    /*
+    * 快照中的文件数，不含未合并的增量
+    * */
+    public int size() {
+        return snapshot.size();
+    }
+
+    /*
+    * 未合并进快照的增量数
+    * */
+    public long pendingChanges() {
+        return sequence.get() - appliedSequence;
+    }
+
+    /*
+    * 完整列出存储桶替换快照
+    * 列出开始之前的增量以列出结果为准，列出期间发生的上传/删除在结果之上重放
+    * */
+    public void reconcile() {
+        maintenance.lock();
+        try {
+            long startSequence = sequence.get();
+            long start = System.nanoTime();
+            Snapshot listed = listBucket();
+            apply(listed, startSequence);
+            ready = true;
+            log.info("文件键索引对账完成，文件数: {}, 耗时: {} ms", snapshot.size(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            // 异常会终止定时任务，这里只记录，保留旧快照等待下次对账
+            log.warn("文件键索引对账失败: {}", e.getMessage());
+        } finally {
+            maintenance.unlock();
+        }
+    }
+
+    private void record(String key, long size, long modified, String eTag) {
+        // 取序号和写入增量必须原子，否则合并时可能漏掉序号更小但尚未写入的增量
+        synchronized (changes) {
+            changes.put(key, new Change(sequence.incrementAndGet(), size, modified, eTag));
+        }
+        if (pendingChanges() > COMPACT_THRESHOLD && compactScheduled.compareAndSet(false, true)) {
+            transferExecutor.execute(this::compact);
+        }
+    }
+
+    private void compact() {
+        maintenance.lock();
+        try {
+            if (pendingChanges() > COMPACT_THRESHOLD) {
+                apply(snapshot, 0);
+            }
+        } finally {
+            maintenance.unlock();
+            compactScheduled.set(false);
+        }
+    }
+
+    /*
+    * 把序号大于fromSequence的增量合并进base成为新快照，再移除已合并的增量
+    * 调用方持有maintenance锁
+    * */
+    private void apply(Snapshot base, long fromSequence) {
+        long toSequence;
+        synchronized (changes) {
+            toSequence = sequence.get();
+        }
+
+        SnapshotBuilder builder = new SnapshotBuilder(base.size() + changes.size());
+        int i = 0;
+        for (Map.Entry<String, Change> entry : changes.entrySet()) {
+            Change change = entry.getValue();
+            if (change.sequence() <= fromSequence || change.sequence() > toSequence) {
+                continue;
+            }
+            while (i < base.size() && compareKeys(base.keys()[i], entry.getKey()) < 0) {
+                builder.add(base, i++);
+            }
+            if (i < base.size() && base.keys()[i].equals(entry.getKey())) {
+                i++;
+            }
+            if (!change.deleted()) {
+                builder.add(entry.getKey(), change.size(), change.modified(), change.eTag());
+            }
+        }
+        while (i < base.size()) {
+            builder.add(base, i++);
+        }
+
+        snapshot = builder.build();
+        appliedSequence = toSequence;
+        // 只移除未被更新的增量（按值比较），合并期间的新写入保留
+        changes.entrySet().removeIf(entry -> entry.getValue().sequence() <= toSequence);
+    }
+
+    /*
+    * 分区并行列出整个存储桶
+    * 先带分隔符列出根目录，得到根目录文件和一级目录，再列出每个一级目录；
+    * 第一页没列完的（根目录或一级目录）剩余部分按文件名首字符拆成多个区间并行列出
+    * */
+    private Snapshot listBucket() throws InterruptedException {
+        SpacesConfig.KeyIndex config = spacesConfig.getKeyIndex();
+        List<String> bounds = bounds(config.getPartitions());
+        Semaphore permits = new Semaphore(config.getParallelism());
+        Deque<CompletableFuture<Listing>> pending = new ArrayDeque<>();
+        Set<String> listedPrefixes = new HashSet<>();
+        List<Row> rows = new ArrayList<>();
+
+        submit(pending, permits, () -> list("", DELIMITER, null, null, true));
+        while (!pending.isEmpty()) {
+            Listing listing = pending.poll().join();
+            rows.addAll(listing.rows());
+
+            for (String commonPrefix : listing.commonPrefixes()) {
+                if (listedPrefixes.add(commonPrefix)) {
+                    submit(pending, permits, () -> list(commonPrefix, null, null, null, true));
+                }
+            }
+
+            String after = listing.after();
+            if (after == null) {
+                continue;
+            }
+            // 区间为 (lower, upper]，跳过第一页已覆盖的部分
+            for (int i = 0; i <= bounds.size(); i++) {
+                String upper = i < bounds.size() ? listing.prefix() + bounds.get(i) : null;
+                if (upper != null && compareKeys(upper, after) <= 0) {
+                    continue;
+                }
+                String lower = i > 0 ? listing.prefix() + bounds.get(i - 1) : null;
+                String startAfter = lower == null || compareKeys(lower, after) < 0 ? after : lower;
+                submit(pending, permits,
+                        () -> list(listing.prefix(), listing.delimiter(), startAfter, upper, false));
+            }
+        }
+
+        Row[] sorted = rows.toArray(Row[]::new);
+        Arrays.parallelSort(sorted, Comparator.comparing(Row::key, KEY_ORDER));
+        SnapshotBuilder builder = new SnapshotBuilder(sorted.length);
+        for (Row row : sorted) {
+            builder.add(row.key(), row.size(), row.modified(), row.eTag());
+        }
+        return builder.build();
+    }
+
+    // 获取许可后再提交，同时进行的listObjectsV2不超过parallelism
+    private void submit(Deque<CompletableFuture<Listing>> pending, Semaphore permits, Supplier<Listing> task)
+            throws InterruptedException {
+        permits.acquire();
+        pending.add(CompletableFuture.supplyAsync(() -> {
+            try {
+                return task.get();
+            } finally {
+                permits.release();
+            }
+        }, transferExecutor));
+    }
+
+    /*
+    * 列出 (startAfter, upper] 区间内的文件
+    * @param firstPageOnly 只列出第一页，未列完时在结果中返回最后一项
+    * */
+    private Listing list(String prefix, String delimiter, String startAfter, String upper, boolean firstPageOnly) {
+        ListObjectsV2Request request = ListObjectsV2Request.builder()
+                .bucket(spacesConfig.getBucketName())
+                .prefix(prefix.isEmpty() ? null : prefix)
+                .delimiter(delimiter)
+                .startAfter(startAfter)
+                .maxKeys(MAX_KEYS)
+                .build();
+
+        List<Row> rows = new ArrayList<>();
+        List<String> commonPrefixes = new ArrayList<>();
+        for (ListObjectsV2Response page : s3Client.listObjectsV2Paginator(request)) {
+            String last = null;
+            for (S3Object object : page.contents()) {
+                if (upper == null || compareKeys(object.key(), upper) <= 0) {
+                    rows.add(new Row(object.key(), object.size(),
+                            object.lastModified() != null ? object.lastModified().toEpochMilli() : 0,
+                            object.eTag()));
+                }
+                last = max(last, object.key());
+            }
+            for (CommonPrefix commonPrefix : page.commonPrefixes()) {
+                if (upper == null || compareKeys(commonPrefix.prefix(), upper) <= 0) {
+                    commonPrefixes.add(commonPrefix.prefix());
+                }
+                last = max(last, commonPrefix.prefix() + MAX_CHAR);
+            }
+
+            boolean more = Boolean.TRUE.equals(page.isTruncated());
+            if (firstPageOnly) {
+                return new Listing(prefix, delimiter, rows, commonPrefixes, more ? last : null);
+            }
+            // 已越过区间上界，后续页属于其他分区
+            if (!more || (upper != null && last != null && compareKeys(last, upper) > 0)) {
+                break;
+            }
+        }
+        return new Listing(prefix, delimiter, rows, commonPrefixes, null);
+    }
+
+    private static List<String> bounds(int partitions) {
+        List<String> bounds = new ArrayList<>();
+        for (int i = 1; i < partitions; i++) {
+            String bound = String.valueOf(BOUNDARIES.charAt(i * BOUNDARIES.length() / partitions));
+            if (!bounds.contains(bound)) {
+                bounds.add(bound);
+            }
+        }
+        return bounds;
+    }
+
+    private static String max(String a, String b) {
+        return a == null || compareKeys(b, a) > 0 ? b : a;
+    }
+
+    private static boolean endsWithIgnoreCase(String key, String suffix) {
+        return key.length() >= suffix.length()
+                && key.regionMatches(true, key.length() - suffix.length(), suffix, 0, suffix.length());
+    }
+
+    /*
+    * 按UTF-8字节序比较，与Spaces列出文件的顺序一致
+    * UTF-16中代理对（U+10000以上）小于U+E000-U+FFFF，UTF-8中则更大
+    * */
+    public static int compareKeys(String a, String b) {
+        int length = Math.min(a.length(), b.length());
+        for (int i = 0; i < length; i++) {
+            char ca = a.charAt(i);
+            char cb = b.charAt(i);
+            if (ca != cb) {
+                if (Character.isSurrogate(ca) != Character.isSurrogate(cb)) {
+                    return Character.isSurrogate(ca) ? 1 : -1;
+                }
+                return ca - cb;
+            }
+        }
+        return a.length() - b.length();
+    }
+
+    /*
+    * 不可变快照，各列按下标对应
+    * */
+    private record Snapshot(String[] keys, long[] sizes, long[] modified, String[] eTags) {
+        static final Snapshot EMPTY = new Snapshot(new String[0], new long[0], new long[0], new String[0]);
+
+        int size() {
+            return keys.length;
+        }
+
+        // 第一个不小于key的位置
+        int lowerBound(String key) {
+            int low = 0;
+            int high = keys.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (compareKeys(keys[mid], key) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        // 第一个大于key的位置
+        int upperBound(String key) {
+            int low = lowerBound(key);
+            return low < keys.length && keys[low].equals(key) ? low + 1 : low;
+        }
+    }
+
+    private static class SnapshotBuilder {
+        private String[] keys;
+        private long[] sizes;
+        private long[] modified;
+        private String[] eTags;
+        private int size;
+
+        SnapshotBuilder(int capacity) {
+            capacity = Math.max(16, capacity);
+            keys = new String[capacity];
+            sizes = new long[capacity];
+            modified = new long[capacity];
+            eTags = new String[capacity];
+        }
+
+        void add(Snapshot snapshot, int index) {
+            add(snapshot.keys()[index], snapshot.sizes()[index], snapshot.modified()[index],
+                    snapshot.eTags()[index]);
+        }
+
+        void add(String key, long size, long modified, String eTag) {
+            if (this.size == keys.length) {
+                int capacity = keys.length * 2;
+                keys = Arrays.copyOf(keys, capacity);
+                sizes = Arrays.copyOf(sizes, capacity);
+                this.modified = Arrays.copyOf(this.modified, capacity);
+                eTags = Arrays.copyOf(eTags, capacity);
+            }
+            keys[this.size] = key;
+            sizes[this.size] = size;
+            this.modified[this.size] = modified;
+            eTags[this.size] = eTag;
+            this.size++;
+        }
+
+        // 按实际大小截断，快照常驻内存
+        Snapshot build() {
+            return new Snapshot(Arrays.copyOf(keys, size), Arrays.copyOf(sizes, size),
+                    Arrays.copyOf(modified, size), Arrays.copyOf(eTags, size));
+        }
+    }
+}
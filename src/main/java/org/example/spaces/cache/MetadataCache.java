@@ -0,0 +1,118 @@
+package org.example.spaces.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.extern.slf4j.Slf4j;
+import org.example.spaces.config.SpacesConfig;
+import org.example.spaces.model.CacheStatistics;
+import org.example.spaces.model.FileMetadata;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+import java.util.function.Function;
+
+/*
+* 文件元数据缓存
+* 以文件键为key缓存HEAD结果，Optional.empty()表示文件不存在（负缓存）*/
+@Slf4j
+@Component
+public class MetadataCache {
+    private final boolean enabled;
+    private final Cache<String, Optional<FileMetadata>> cache;
+
+    public MetadataCache(SpacesConfig spacesConfig) {
+        SpacesConfig.Cache config = spacesConfig.getCache();
+        long ttlNanos = config.getTtl().toNanos();
+        long negativeTtlNanos = config.getNegativeTtl().toNanos();
+
+        this.enabled = config.isEnabled();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(config.getMaxSize())
+                .expireAfter(new Expiry<String, Optional<FileMetadata>>() {
+                    @Override
+                    public long expireAfterCreate(String key, Optional<FileMetadata> value, long currentTime) {
+                        return value.isPresent() ? ttlNanos : negativeTtlNanos;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Optional<FileMetadata> value,
+                                                  long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Optional<FileMetadata> value,
+                                                long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+
+        log.info("元数据缓存{}，最大条目数: {}, TTL: {}", enabled ? "已开启" : "已关闭",
+                config.getMaxSize(), config.getTtl());
+    }
+
+    /*
+    * 获取元数据，未命中时调用loader加载并缓存
+    * @param key 文件键
+    * @param loader 加载函数，文件不存在时返回Optional.empty()
+    * @return 文件元数据
+    * */
+    public Optional<FileMetadata> get(String key, Function<String, Optional<FileMetadata>> loader) {
+        if (!enabled) {
+            return loader.apply(key);
+        }
+        return cache.get(key, loader);
+    }
+
+    /*
+    * 仅查询缓存，不触发加载
+    * @param key 文件键
+    * @return 未命中或缓存关闭时返回null，Optional.empty()表示已知不存在
+    * */
+    public Optional<FileMetadata> getIfPresent(String key) {
+        return enabled ? cache.getIfPresent(key) : null;
+    }
+
+    /*
+    * 写入元数据（上传成功或GET响应后调用）
+    * */
+    public void put(FileMetadata metadata) {
+        if (enabled) {
+            cache.put(metadata.getKey(), Optional.of(metadata));
+        }
+    }
+
+    /*
+    * 标记文件不存在（删除成功后调用）
+    * */
+    public void markMissing(String key) {
+        if (enabled) {
+            cache.put(key, Optional.empty());
+        }
+    }
+
+    /*
+    * 使缓存失效
+    * */
+    public void invalidate(String key) {
+        cache.invalidate(key);
+    }
+
+    /*
+    * 获取缓存统计
+    * */
+    public CacheStatistics statistics() {
+        CacheStats stats = cache.stats();
+        return CacheStatistics.builder()
+                .hitCount(stats.hitCount())
+                .missCount(stats.missCount())
+                .hitRate(stats.hitRate())
+                .evictionCount(stats.evictionCount())
+                .size(cache.estimatedSize())
+                .build();
+    }
+}
@@ -0,0 +1,125 @@
+package org.example.spaces.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.spaces.config.SpacesConfig;
+import org.example.spaces.exception.FileStorageException;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/*
+* 请求合并（single-flight）
+* 同一操作、同一参数的请求同时进行时，只有第一个（leader）真正调用Spaces，其余（follower）等待并共享结果或异常*/
+@Slf4j
+@Component
+public class RequestCoalescer {
+    public static final String HEAD = "head";
+    public static final String LIST = "list";
+    public static final String GET = "get";
+
+    private final boolean enabled;
+    private final Map<Flight, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, Counts> counts = new ConcurrentHashMap<>();
+
+    public RequestCoalescer(SpacesConfig spacesConfig) {
+        this.enabled = spacesConfig.getCoalescing().isEnabled();
+    }
+
+    // 参数可以为null（如不带前缀的LIST）
+    private record Flight(String operation, Object key) {
+    }
+
+    private static class Counts {
+        private final LongAdder leaders = new LongAdder();
+        private final LongAdder followers = new LongAdder();
+    }
+
+    /*
+    * 执行或加入一次请求
+    * @param operation 操作名称，用于区分请求和指标
+    * @param key 请求参数，需实现equals/hashCode
+    * @param call 实际调用，只由leader执行
+    * @return 调用结果，所有等待者拿到同一个对象，不得修改
+    * */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String operation, Object key, Supplier<T> call) {
+        if (!enabled) {
+            return call.get();
+        }
+
+        Flight flight = new Flight(operation, key);
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(flight, mine);
+        Counts operationCounts = counts.computeIfAbsent(operation, o -> new Counts());
+        if (existing != null) {
+            operationCounts.followers.increment();
+            log.debug("合并请求: {} {}", operation, key);
+            return (T) await(existing);
+        }
+
+        operationCounts.leaders.increment();
+        try {
+            T result = call.get();
+            mine.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            // 完成后立即移除，之后到达的请求重新调用，不会拿到过期结果
+            inFlight.remove(flight, mine);
+        }
+    }
+
+    /*
+    * 实际发出的请求数
+    * */
+    public long leaderCount(String operation) {
+        Counts operationCounts = counts.get(operation);
+        return operationCounts == null ? 0 : operationCounts.leaders.sum();
+    }
+
+    /*
+    * 被合并（共享结果）的请求数
+    * */
+    public long followerCount(String operation) {
+        Counts operationCounts = counts.get(operation);
+        return operationCounts == null ? 0 : operationCounts.followers.sum();
+    }
+
+    /*
+    * 合并比例：被合并的请求数 / 总请求数
+    * */
+    public double coalescingRatio(String operation) {
+        long followers = followerCount(operation);
+        long total = leaderCount(operation) + followers;
+        return total == 0 ? 0 : (double) followers / total;
+    }
+
+    /*
+    * 正在进行的请求数
+    * */
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    // 原样抛出leader的异常，调用方的catch逻辑与直接调用时一致
+    private static Object await(CompletableFuture<Object> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new FileStorageException("合并请求失败: " + e.getMessage(), e);
+        }
+    }
+}
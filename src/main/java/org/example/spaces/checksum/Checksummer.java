@@ -0,0 +1,206 @@
+package org.example.spaces.checksum;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.spaces.config.SpacesConfig;
+import org.example.spaces.config.SpacesConfig.ChecksumAlgorithm;
+import org.example.spaces.model.FileMetadata;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.services.s3.model.ChecksumMode;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+* 端到端校验和
+* 上传时对已在内存中的分片计算校验和并随请求发送；下载时从响应头取得校验和，包装为边读边校验的输入流*/
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class Checksummer {
+    //分片上传的对象记录分片大小，下载时据此校验复合校验和
+    public static final String PART_SIZE_METADATA_KEY = "checksum-part-size";
+
+    private static final String CHECKSUM_MODE_HEADER = "x-amz-checksum-mode";
+
+    private final SpacesConfig spacesConfig;
+    private final AtomicLong mismatchCount = new AtomicLong();
+
+    public boolean isEnabled() {
+        return spacesConfig.getChecksum().isEnabled();
+    }
+
+    public ChecksumAlgorithm algorithm() {
+        return spacesConfig.getChecksum().getAlgorithm();
+    }
+
+    /*
+    * 计算一段内容的校验和（Base64），未开启时返回null
+    * */
+    public String checksumOf(byte[] content) {
+        if (!isEnabled()) {
+            return null;
+        }
+        return Base64.getEncoder().encodeToString(newDigest(algorithm()).digest(content));
+    }
+
+    /*
+    * 由各分片校验和计算复合校验和：对分片校验和的拼接求校验和，加 -分片数 后缀
+    * */
+    public String composite(List<CompletedPart> parts) {
+        if (!isEnabled()) {
+            return null;
+        }
+        MessageDigest digest = newDigest(algorithm());
+        for (CompletedPart part : parts) {
+            String checksum = algorithm() == ChecksumAlgorithm.CRC32C ? part.checksumCRC32C() : part.checksumSHA256();
+            digest.update(Base64.getDecoder().decode(checksum));
+        }
+        return Base64.getEncoder().encodeToString(digest.digest()) + "-" + parts.size();
+    }
+
+    /*
+    * 以下为各请求设置校验和；checksum为null时原样返回
+    * 已带校验和头时SDK不再重复计算
+    * */
+    public PutObjectRequest.Builder apply(PutObjectRequest.Builder builder, String checksum) {
+        if (checksum == null) {
+            return builder;
+        }
+        return algorithm() == ChecksumAlgorithm.CRC32C
+                ? builder.checksumCRC32C(checksum)
+                : builder.checksumSHA256(checksum);
+    }
+
+    public UploadPartRequest.Builder apply(UploadPartRequest.Builder builder, String checksum) {
+        if (checksum == null) {
+            return builder;
+        }
+        return algorithm() == ChecksumAlgorithm.CRC32C
+                ? builder.checksumCRC32C(checksum)
+                : builder.checksumSHA256(checksum);
+    }
+
+    public CompletedPart.Builder apply(CompletedPart.Builder builder, String checksum) {
+        if (checksum == null) {
+            return builder;
+        }
+        return algorithm() == ChecksumAlgorithm.CRC32C
+                ? builder.checksumCRC32C(checksum)
+                : builder.checksumSHA256(checksum);
+    }
+
+    // 声明算法后Spaces要求每个分片都带校验和
+    public CreateMultipartUploadRequest.Builder apply(CreateMultipartUploadRequest.Builder builder) {
+        if (!isEnabled()) {
+            return builder;
+        }
+        return builder.checksumAlgorithm(algorithm() == ChecksumAlgorithm.CRC32C
+                ? software.amazon.awssdk.services.s3.model.ChecksumAlgorithm.CRC32C
+                : software.amazon.awssdk.services.s3.model.ChecksumAlgorithm.SHA256);
+    }
+
+    /*
+    * HEAD请求返回校验和，没有响应体，不涉及校验
+    * */
+    public HeadObjectRequest.Builder request(HeadObjectRequest.Builder builder) {
+        return isVerifying() ? builder.checksumMode(ChecksumMode.ENABLED) : builder;
+    }
+
+    /*
+    * GET请求返回校验和
+    * 直接设置请求头而不用checksumMode：后者会让SDK用自己的CRC实现再校验一遍，且不支持复合校验和
+    * */
+    public GetObjectRequest.Builder request(GetObjectRequest.Builder builder) {
+        return isVerifying()
+                ? builder.overrideConfiguration(o -> o.putHeader(CHECKSUM_MODE_HEADER, "ENABLED"))
+                : builder;
+    }
+
+    /*
+    * 从响应中取校验和填入元数据，优先CRC32C
+    * @param metadata 对象自定义元数据，分片上传的对象带有分片大小
+    * */
+    public FileMetadata.FileMetadataBuilder describe(FileMetadata.FileMetadataBuilder builder, String crc32c,
+                                                     String sha256, Map<String, String> metadata) {
+        ChecksumAlgorithm algorithm = crc32c != null ? ChecksumAlgorithm.CRC32C
+                : sha256 != null ? ChecksumAlgorithm.SHA256
+                : null;
+        if (algorithm == null) {
+            return builder;
+        }
+        String partSize = metadata != null ? metadata.get(PART_SIZE_METADATA_KEY) : null;
+        return builder.checksumAlgorithm(algorithm.name())
+                .checksum(crc32c != null ? crc32c : sha256)
+                .checksumPartSize(partSize != null ? Long.valueOf(partSize) : null);
+    }
+
+    /*
+    * 上传完成后填入本次计算的校验和
+    * */
+    public FileMetadata.FileMetadataBuilder describe(FileMetadata.FileMetadataBuilder builder, String checksum,
+                                                     Long partSize) {
+        if (checksum == null) {
+            return builder;
+        }
+        return builder.checksumAlgorithm(algorithm().name())
+                .checksum(checksum)
+                .checksumPartSize(partSize);
+    }
+
+    /*
+    * 包装为边读边校验的输入流，文件没有校验和或未开启下载校验时原样返回
+    * @param metadata 与输入流对应的元数据，内容为完整的存储内容
+    * */
+    public InputStream verify(InputStream inputStream, FileMetadata metadata) {
+        if (!isVerifying() || metadata.getChecksum() == null) {
+            return inputStream;
+        }
+        ChecksumAlgorithm algorithm = ChecksumAlgorithm.valueOf(metadata.getChecksumAlgorithm());
+        String expected = metadata.getChecksum();
+        boolean composite = expected.indexOf('-') > 0;
+        if (composite && metadata.getChecksumPartSize() == null) {
+            log.debug("复合校验和缺少分片大小，跳过校验: {}", metadata.getKey());
+            return inputStream;
+        }
+
+        long length = metadata.getSize() != null ? metadata.getSize() : -1;
+        return new VerifyingInputStream(inputStream, newDigest(algorithm),
+                composite ? newDigest(algorithm) : null, expected, length,
+                composite ? metadata.getChecksumPartSize() : 0,
+                () -> {
+                    mismatchCount.incrementAndGet();
+                    log.error("校验和不匹配: {}", metadata.getKey());
+                });
+    }
+
+    public long mismatchCount() {
+        return mismatchCount.get();
+    }
+
+    private boolean isVerifying() {
+        return isEnabled() && spacesConfig.getChecksum().isVerifyDownloads();
+    }
+
+    static MessageDigest newDigest(ChecksumAlgorithm algorithm) {
+        if (algorithm == ChecksumAlgorithm.CRC32C) {
+            return new Crc32cDigest();
+        }
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package org.example.spaces.checksum;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.zip.CRC32C;
+
+/*
+* CRC32C摘要
+* 包装java.util.zip.CRC32C（JIT内联为CPU的CRC32指令），以MessageDigest形式与SHA-256统一处理；结果为4字节大端序，与x-amz-checksum-crc32c一致*/
+final class Crc32cDigest extends MessageDigest {
+    private final CRC32C crc = new CRC32C();
+
+    Crc32cDigest() {
+        super("CRC32C");
+    }
+
+    @Override
+    protected void engineUpdate(byte input) {
+        crc.update(input);
+    }
+
+    @Override
+    protected void engineUpdate(byte[] input, int offset, int len) {
+        crc.update(input, offset, len);
+    }
+
+    @Override
+    protected void engineUpdate(ByteBuffer input) {
+        crc.update(input);
+    }
+
+    @Override
+    protected byte[] engineDigest() {
+        int value = (int) crc.getValue();
+        crc.reset();
+        return new byte[]{(byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value};
+    }
+
+    @Override
+    protected void engineReset() {
+        crc.reset();
+    }
+
+    @Override
+    protected int engineGetDigestLength() {
+        return 4;
+    }
+}
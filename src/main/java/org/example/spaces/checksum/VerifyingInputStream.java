@@ -0,0 +1,137 @@
+package org.example.spaces.checksum;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.util.Base64;
+
+/*
+* 边读边校验的输入流
+* 已知长度时在读到最后一段数据、返回给调用方之前完成校验，不匹配则抛出IOException，客户端收到的是不完整的响应而不是错误的内容
+* 复合校验和（-分片数）按分片大小逐片计算，再对各分片校验和的拼接计算*/
+final class VerifyingInputStream extends FilterInputStream {
+    private final MessageDigest digest;
+    //复合校验和时对各分片校验和求摘要，完整对象校验和时为null
+    private final MessageDigest composite;
+    private final String expected;
+    private final long length;
+    private final long partSize;
+    private final Runnable onMismatch;
+
+    private long position;
+    private long partRemaining;
+    private int parts;
+    private boolean verified;
+
+    /*
+    * @param length 内容长度，未知时为-1，此时在流结束时校验
+    * @param partSize 复合校验和的分片大小，完整对象校验和时为0
+    * */
+    VerifyingInputStream(InputStream in, MessageDigest digest, MessageDigest composite, String expected,
+                         long length, long partSize, Runnable onMismatch) {
+        super(in);
+        this.digest = digest;
+        this.composite = composite;
+        this.expected = expected;
+        this.length = length;
+        this.partSize = partSize;
+        this.partRemaining = partSize;
+        this.onMismatch = onMismatch;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        int n = read(single, 0, 1);
+        return n < 0 ? -1 : single[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = in.read(b, off, len);
+        if (verified) {
+            return n;
+        }
+        if (n < 0) {
+            if (length >= 0 && position < length) {
+                throw new IOException("内容不完整: 期望 " + length + " bytes，实际 " + position + " bytes");
+            }
+            verify();
+            return -1;
+        }
+
+        update(b, off, n);
+        position += n;
+        if (length >= 0 && position >= length) {
+            verify();
+        }
+        return n;
+    }
+
+    // 跳过的内容同样要计入校验和
+    @Override
+    public long skip(long n) throws IOException {
+        byte[] buffer = new byte[(int) Math.min(n, 8192)];
+        long skipped = 0;
+        while (skipped < n) {
+            int read = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+            if (read < 0) {
+                break;
+            }
+            skipped += read;
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+
+    private void update(byte[] b, int off, int n) {
+        if (composite == null) {
+            digest.update(b, off, n);
+            return;
+        }
+        while (n > 0) {
+            int chunk = (int) Math.min(n, partRemaining);
+            digest.update(b, off, chunk);
+            off += chunk;
+            n -= chunk;
+            partRemaining -= chunk;
+            if (partRemaining == 0) {
+                composite.update(digest.digest());
+                parts++;
+                partRemaining = partSize;
+            }
+        }
+    }
+
+    private void verify() throws IOException {
+        verified = true;
+        String actual;
+        if (composite == null) {
+            actual = Base64.getEncoder().encodeToString(digest.digest());
+        } else {
+            if (partRemaining < partSize) {
+                composite.update(digest.digest());
+                parts++;
+            }
+            actual = Base64.getEncoder().encodeToString(composite.digest()) + "-" + parts;
+        }
+        if (!expected.equals(actual)) {
+            onMismatch.run();
+            throw new IOException("校验和不匹配: 期望 " + expected + "，实际 " + actual);
+        }
+    }
+}
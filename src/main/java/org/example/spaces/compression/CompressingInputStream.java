@@ -0,0 +1,112 @@
+package org.example.spaces.compression;
+
+import org.example.spaces.config.SpacesConfig.CompressionCodec;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Objects;
+
+/*
+* 边读边压缩的输入流
+* 每次从源流读一块交给压缩器，压缩输出写入内部缓冲区再返回给读取方，内存占用与文件大小无关*/
+class CompressingInputStream extends InputStream {
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private final InputStream source;
+    private final CompressionCodec codec;
+    private final Compressor compressor;
+    private final Buffer buffer = new Buffer();
+    private final OutputStream encoder;
+    private final byte[] chunk = new byte[CHUNK_SIZE];
+
+    private int position;
+    private boolean finished;
+    private boolean closed;
+
+    private long rawBytes;
+    private long encodedBytes;
+    private long encodeNanos;
+
+    CompressingInputStream(InputStream source, CompressionCodec codec, int level,
+                           Compressor compressor) throws IOException {
+        this.source = source;
+        this.codec = codec;
+        this.compressor = compressor;
+        this.encoder = Compressor.encoder(codec, level, buffer);
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        int n = read(single, 0, 1);
+        return n < 0 ? -1 : single[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, b.length);
+        if (len == 0) {
+            return 0;
+        }
+        while (position >= buffer.size()) {
+            if (finished) {
+                return -1;
+            }
+            fill();
+        }
+        int n = Math.min(len, buffer.size() - position);
+        System.arraycopy(buffer.array(), position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    /*
+    * 只释放压缩器，源流由调用方负责关闭
+    * */
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            if (!finished) {
+                encoder.close();
+            }
+        }
+    }
+
+    // 压缩器可能攒满内部缓冲才输出，单次fill可能没有产出，由read循环继续
+    private void fill() throws IOException {
+        buffer.reset();
+        position = 0;
+
+        int n = source.read(chunk);
+        long start = System.nanoTime();
+        if (n < 0) {
+            encoder.close();
+            finished = true;
+        } else {
+            encoder.write(chunk, 0, n);
+            rawBytes += n;
+        }
+        encodeNanos += System.nanoTime() - start;
+        encodedBytes += buffer.size();
+
+        if (finished) {
+            compressor.recordCompression(codec, rawBytes, encodedBytes, encodeNanos);
+        }
+    }
+
+    /*
+    * 暴露内部数组，避免toByteArray复制
+    * */
+    private static class Buffer extends ByteArrayOutputStream {
+        Buffer() {
+            super(CHUNK_SIZE);
+        }
+
+        byte[] array() {
+            return buf;
+        }
+    }
+}
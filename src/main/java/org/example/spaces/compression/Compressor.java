@@ -0,0 +1,245 @@
+package org.example.spaces.compression;
+
+import com.github.luben.zstd.ZstdInputStream;
+import com.github.luben.zstd.ZstdOutputStream;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.example.spaces.config.SpacesConfig;
+import org.example.spaces.config.SpacesConfig.CompressionCodec;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.util.StringUtils;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/*
+* 透明压缩
+* 上传时按文件类型选择是否压缩，下载时按Accept-Encoding决定原样返回还是解压*/
+@Component
+@RequiredArgsConstructor
+public class Compressor {
+    //gzip、zstd、zip、bzip2、xz的文件头，内容已压缩时不再压缩
+    private static final List<byte[]> COMPRESSED_MAGIC = List.of(
+            new byte[]{0x1f, (byte) 0x8b},
+            new byte[]{0x28, (byte) 0xb5, 0x2f, (byte) 0xfd},
+            new byte[]{0x50, 0x4b, 0x03, 0x04},
+            new byte[]{0x42, 0x5a, 0x68},
+            new byte[]{(byte) 0xfd, 0x37, 0x7a, 0x58, 0x5a, 0x00});
+    private static final int MAGIC_LENGTH = 6;
+
+    private final SpacesConfig spacesConfig;
+    private final MeterRegistry meterRegistry;
+
+    /*
+    * 编码后的上传流
+    * @param contentEncoding 编码名称，未压缩时为null
+    * */
+    public record Encoded(InputStream inputStream, String contentEncoding) implements Closeable {
+        // 只释放压缩器，源流由调用方负责关闭
+        @Override
+        public void close() throws IOException {
+            if (contentEncoding != null) {
+                inputStream.close();
+            }
+        }
+    }
+
+    /*
+    * 该文件类型是否需要压缩
+    * */
+    public boolean isCompressible(String contentType) {
+        SpacesConfig.Compression config = spacesConfig.getCompression();
+        if (!config.isEnabled() || !StringUtils.hasText(contentType)) {
+            return false;
+        }
+        MimeType mimeType;
+        try {
+            mimeType = MimeTypeUtils.parseMimeType(contentType);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        return config.getContentTypes().stream()
+                .map(MimeTypeUtils::parseMimeType)
+                .anyMatch(allowed -> allowed.includes(mimeType));
+    }
+
+    /*
+    * 按文件类型包装上传流，内容本身已是压缩格式时原样上传
+    * @param source 原始内容
+    * @param contentType 文件类型
+    * @return 编码后的流及其编码名称
+    * */
+    public Encoded encode(InputStream source, String contentType) throws IOException {
+        if (!isCompressible(contentType)) {
+            return new Encoded(source, null);
+        }
+
+        BufferedInputStream buffered = new BufferedInputStream(source);
+        buffered.mark(MAGIC_LENGTH);
+        byte[] head = buffered.readNBytes(MAGIC_LENGTH);
+        buffered.reset();
+        if (isCompressed(head)) {
+            return new Encoded(buffered, null);
+        }
+
+        SpacesConfig.Compression config = spacesConfig.getCompression();
+        CompressionCodec codec = config.getCodec();
+        return new Encoded(
+                new CompressingInputStream(buffered, codec, config.getLevel(), this),
+                encodingOf(codec));
+    }
+
+    /*
+    * 解压下载流
+    * @param source 存储的（已编码）内容
+    * @param contentEncoding 对象的Content-Encoding
+    * @return 原始内容；不认识的编码原样返回
+    * */
+    public InputStream decode(InputStream source, String contentEncoding) throws IOException {
+        Optional<CompressionCodec> codec = codecOf(contentEncoding);
+        if (codec.isEmpty()) {
+            return source;
+        }
+        return new DecompressingInputStream(source, codec.get(), this);
+    }
+
+    /*
+    * 客户端是否接受该编码
+    * @param acceptEncoding 请求头Accept-Encoding，如 gzip, deflate, br;q=0.8
+    * @param contentEncoding 对象的Content-Encoding
+    * */
+    public boolean accepts(String acceptEncoding, String contentEncoding) {
+        if (!StringUtils.hasText(acceptEncoding) || !StringUtils.hasText(contentEncoding)) {
+            return false;
+        }
+        for (String token : acceptEncoding.split(",")) {
+            String[] parts = token.trim().split(";");
+            String coding = parts[0].trim();
+            if (!coding.equalsIgnoreCase(contentEncoding) && !coding.equals("*")) {
+                continue;
+            }
+            return qualityOf(parts) > 0;
+        }
+        return false;
+    }
+
+    public static String encodingOf(CompressionCodec codec) {
+        return codec.name().toLowerCase(Locale.ROOT);
+    }
+
+    public static Optional<CompressionCodec> codecOf(String contentEncoding) {
+        if (!StringUtils.hasText(contentEncoding)) {
+            return Optional.empty();
+        }
+        return Arrays.stream(CompressionCodec.values())
+                .filter(codec -> encodingOf(codec).equalsIgnoreCase(contentEncoding.trim()))
+                .findFirst();
+    }
+
+    static OutputStream encoder(CompressionCodec codec, int level, OutputStream target) throws IOException {
+        return switch (codec) {
+            case GZIP -> new LevelledGzipOutputStream(target, level);
+            case ZSTD -> new ZstdOutputStream(target, level);
+        };
+    }
+
+    static InputStream decoder(CompressionCodec codec, InputStream source) throws IOException {
+        return switch (codec) {
+            case GZIP -> new GZIPInputStream(source, 64 * 1024);
+            case ZSTD -> new ZstdInputStream(source);
+        };
+    }
+
+    /*
+    * 记录一次上传压缩：压缩比（压缩后/原始）和压缩耗时
+    * */
+    void recordCompression(CompressionCodec codec, long rawBytes, long encodedBytes, long nanos) {
+        String encoding = encodingOf(codec);
+        Timer.builder("spaces.compression.time")
+                .description("压缩/解压耗时（不含读取源数据的时间）")
+                .tag("codec", encoding)
+                .tag("operation", "compress")
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        Counter.builder("spaces.compression.bytes")
+                .description("压缩前后的字节数")
+                .tag("codec", encoding)
+                .tag("stage", "raw")
+                .register(meterRegistry)
+                .increment(rawBytes);
+        Counter.builder("spaces.compression.bytes")
+                .description("压缩前后的字节数")
+                .tag("codec", encoding)
+                .tag("stage", "encoded")
+                .register(meterRegistry)
+                .increment(encodedBytes);
+        if (rawBytes > 0) {
+            DistributionSummary.builder("spaces.compression.ratio")
+                    .description("压缩后大小与原始大小之比")
+                    .tag("codec", encoding)
+                    .register(meterRegistry)
+                    .record((double) encodedBytes / rawBytes);
+        }
+    }
+
+    /*
+    * 记录一次下载解压耗时
+    * */
+    void recordDecompression(CompressionCodec codec, long nanos) {
+        Timer.builder("spaces.compression.time")
+                .description("压缩/解压耗时（不含读取源数据的时间）")
+                .tag("codec", encodingOf(codec))
+                .tag("operation", "decompress")
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static boolean isCompressed(byte[] head) {
+        for (byte[] magic : COMPRESSED_MAGIC) {
+            if (head.length >= magic.length && Arrays.equals(head, 0, magic.length, magic, 0, magic.length)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // 解析q值，缺省为1，非法值视为0
+    private static double qualityOf(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String parameter = parts[i].trim();
+            if (parameter.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2));
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    /*
+    * GZIPOutputStream不提供设置级别的构造器，通过受保护的def设置
+    * */
+    private static class LevelledGzipOutputStream extends GZIPOutputStream {
+        LevelledGzipOutputStream(OutputStream out, int level) throws IOException {
+            super(out, 64 * 1024);
+            def.setLevel(Math.min(level, 9));
+        }
+    }
+}
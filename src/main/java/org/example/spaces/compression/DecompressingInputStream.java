@@ -0,0 +1,93 @@
+package org.example.spaces.compression;
+
+import org.example.spaces.config.SpacesConfig.CompressionCodec;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/*
+* 边读边解压的输入流
+* 解压耗时 = 读取总耗时 - 读取源数据（网络）耗时，关闭时记录*/
+class DecompressingInputStream extends InputStream {
+    private final TimedInputStream source;
+    private final InputStream decoder;
+    private final CompressionCodec codec;
+    private final Compressor compressor;
+
+    private long totalNanos;
+    private boolean closed;
+
+    DecompressingInputStream(InputStream source, CompressionCodec codec, Compressor compressor) throws IOException {
+        this.source = new TimedInputStream(source);
+        this.codec = codec;
+        this.compressor = compressor;
+        // gzip在构造时读取文件头，构造耗时不计入统计
+        this.decoder = Compressor.decoder(codec, this.source);
+        this.source.nanos = 0;
+    }
+
+    @Override
+    public int read() throws IOException {
+        long start = System.nanoTime();
+        try {
+            return decoder.read();
+        } finally {
+            totalNanos += System.nanoTime() - start;
+        }
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        long start = System.nanoTime();
+        try {
+            return decoder.read(b, off, len);
+        } finally {
+            totalNanos += System.nanoTime() - start;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            decoder.close();
+        } finally {
+            compressor.recordDecompression(codec, Math.max(0, totalNanos - source.nanos));
+        }
+    }
+
+    /*
+    * 统计从源流读取的耗时
+    * */
+    private static class TimedInputStream extends FilterInputStream {
+        private long nanos;
+
+        TimedInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            long start = System.nanoTime();
+            try {
+                return super.read();
+            } finally {
+                nanos += System.nanoTime() - start;
+            }
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            long start = System.nanoTime();
+            try {
+                return super.read(b, off, len);
+            } finally {
+                nanos += System.nanoTime() - start;
+            }
+        }
+    }
+}
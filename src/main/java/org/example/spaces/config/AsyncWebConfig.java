@@ -0,0 +1,21 @@
+package org.example.spaces.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/*
+* 异步接口的MVC配置
+* 下载响应体从S3异步客户端的阻塞输入流写出，写出期间一直占用执行StreamingResponseBody的线程；
+* 异步模式下该执行器固定为虚拟线程，并发下载数不受applicationTaskExecutor（未开启虚拟线程时为8个平台线程）限制*/
+@Configuration
+@ConditionalOnProperty(prefix = "digitalocean.spaces.async", name = "enabled", havingValue = "true")
+public class AsyncWebConfig implements WebMvcConfigurer {
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(new VirtualThreadTaskExecutor("mvc-async-"));
+    }
+}
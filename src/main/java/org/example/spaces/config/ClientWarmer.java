@@ -0,0 +1,50 @@
+package org.example.spaces.config;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.spaces.routing.ShardTopology;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.s3.model.HeadBucketRequest;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/*
+* S3客户端预热
+* 就绪后在后台向每个存储桶（含副本）发一次HeadBucket：延迟创建的客户端在此时创建，并提前完成DNS解析和TLS握手，
+* 首个用户请求不再承担这些开销*/
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ClientWarmer {
+    private final ShardTopology shardTopology;
+    private final SpacesConfig spacesConfig;
+    private final ExecutorService transferExecutor;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!spacesConfig.getStartup().isWarmUp()) {
+            return;
+        }
+        for (ShardTopology.Target target : shardTopology.all()) {
+            transferExecutor.execute(() -> warmUp(target));
+        }
+    }
+
+    private void warmUp(ShardTopology.Target target) {
+        long start = System.nanoTime();
+        try {
+            target.client().headBucket(HeadBucketRequest.builder()
+                    .bucket(target.bucketName())
+                    .build());
+            log.info("S3客户端预热完成: {}, 耗时: {}ms",
+                    target.bucketName(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (SdkException e) {
+            // 预热失败（如密钥无桶级权限）不影响服务，连接已在请求中建立或留给首个请求
+            log.warn("S3客户端预热失败: {}, {}", target.bucketName(), e.getMessage());
+        }
+    }
+}
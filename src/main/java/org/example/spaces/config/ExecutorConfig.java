@@ -0,0 +1,22 @@
+package org.example.spaces.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/*
+* 传输线程池配置
+* 并发度由各操作自己的信号量控制，这里只提供虚拟线程执行器*/
+@Configuration
+public class ExecutorConfig {
+
+    /*
+    * 创建传输执行器，用于分片上传等并发的Spaces调用
+    * */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService transferExecutor() {
+        return Executors.newVirtualThreadPerTaskExecutor();
+    }
+}
@@ -0,0 +1,63 @@
+package org.example.spaces.config;
+
+import software.amazon.awssdk.services.s3.S3Client;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.function.Supplier;
+
+/*
+* 延迟创建的S3客户端
+* 动态代理S3Client接口，首次调用任一方法时才创建真正的客户端（HTTP连接池、端点规则等）；从未创建时close不做任何事*/
+final class LazyS3Client implements InvocationHandler {
+    private final Supplier<S3Client> factory;
+    private volatile S3Client delegate;
+
+    private LazyS3Client(Supplier<S3Client> factory) {
+        this.factory = factory;
+    }
+
+    static S3Client create(Supplier<S3Client> factory) {
+        return (S3Client) Proxy.newProxyInstance(S3Client.class.getClassLoader(),
+                new Class<?>[]{S3Client.class}, new LazyS3Client(factory));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class) {
+            return switch (method.getName()) {
+                case "equals" -> proxy == args[0];
+                case "hashCode" -> System.identityHashCode(proxy);
+                default -> "LazyS3Client[" + (delegate != null ? delegate : "not created") + "]";
+            };
+        }
+        if (method.getName().equals("close") && method.getParameterCount() == 0) {
+            S3Client client = delegate;
+            if (client != null) {
+                client.close();
+            }
+            return null;
+        }
+        try {
+            return method.invoke(delegate(), args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private S3Client delegate() {
+        S3Client client = delegate;
+        if (client == null) {
+            synchronized (this) {
+                client = delegate;
+                if (client == null) {
+                    client = factory.get();
+                    delegate = client;
+                }
+            }
+        }
+        return client;
+    }
+}
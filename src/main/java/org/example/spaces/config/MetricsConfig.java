@@ -0,0 +1,217 @@
+package org.example.spaces.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.example.spaces.cache.ContentHashIndex;
+import org.example.spaces.cache.DiskCache;
+import org.example.spaces.cache.KeyIndex;
+import org.example.spaces.cache.MetadataCache;
+import org.example.spaces.cache.RequestCoalescer;
+import org.example.spaces.checksum.Checksummer;
+import org.example.spaces.metrics.ConnectionPoolMetricPublisher;
+import org.example.spaces.ratelimit.AdaptiveRateLimiter;
+import org.example.spaces.ratelimit.OperationClass;
+import org.example.spaces.service.impl.UploadSpool;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+/*
+* 指标配置类
+* 将连接池和元数据缓存的统计注册为Micrometer指标*/
+@Configuration
+public class MetricsConfig {
+
+    /*
+    * HTTP连接池指标
+    * */
+    @Bean
+    public MeterBinder connectionPoolMetrics(ConnectionPoolMetricPublisher publisher) {
+        return registry -> {
+            Gauge.builder("spaces.http.pool.leased", publisher, p -> p.statistics().getLeased())
+                    .description("已借出的连接数")
+                    .register(registry);
+            Gauge.builder("spaces.http.pool.pending", publisher, p -> p.statistics().getPending())
+                    .description("等待获取连接的请求数")
+                    .register(registry);
+            Gauge.builder("spaces.http.pool.available", publisher, p -> p.statistics().getAvailable())
+                    .description("空闲可用的连接数")
+                    .register(registry);
+            Gauge.builder("spaces.http.pool.max", publisher, p -> p.statistics().getMaxConcurrency())
+                    .description("连接池最大连接数")
+                    .register(registry);
+        };
+    }
+
+    /*
+    * 元数据缓存指标
+    * */
+    @Bean
+    public MeterBinder metadataCacheMetrics(MetadataCache metadataCache) {
+        return registry -> {
+            FunctionCounter.builder("spaces.metadata.cache.hits", metadataCache, c -> c.statistics().getHitCount())
+                    .description("元数据缓存命中次数")
+                    .register(registry);
+            FunctionCounter.builder("spaces.metadata.cache.misses", metadataCache, c -> c.statistics().getMissCount())
+                    .description("元数据缓存未命中次数")
+                    .register(registry);
+            FunctionCounter.builder("spaces.metadata.cache.evictions", metadataCache, c -> c.statistics().getEvictionCount())
+                    .description("元数据缓存淘汰次数")
+                    .register(registry);
+            Gauge.builder("spaces.metadata.cache.size", metadataCache, c -> c.statistics().getSize())
+                    .description("元数据缓存条目数")
+                    .register(registry);
+        };
+    }
+
+    /*
+    * 磁盘缓存指标
+    * */
+    @Bean
+    public MeterBinder diskCacheMetrics(DiskCache diskCache) {
+        return registry -> {
+            FunctionCounter.builder("spaces.disk.cache.hits", diskCache, DiskCache::hitCount)
+                    .description("磁盘缓存命中次数")
+                    .register(registry);
+            FunctionCounter.builder("spaces.disk.cache.misses", diskCache, DiskCache::missCount)
+                    .description("磁盘缓存未命中次数")
+                    .register(registry);
+            FunctionCounter.builder("spaces.disk.cache.evictions", diskCache, DiskCache::evictionCount)
+                    .description("磁盘缓存淘汰次数")
+                    .register(registry);
+            Gauge.builder("spaces.disk.cache.bytes", diskCache, DiskCache::totalBytes)
+                    .description("磁盘缓存占用字节数")
+                    .baseUnit(BaseUnits.BYTES)
+                    .register(registry);
+        };
+    }
+
+    /*
+    * 内容去重指标
+    * */
+    @Bean
+    public MeterBinder dedupMetrics(ContentHashIndex contentHashIndex) {
+        return registry -> {
+            FunctionCounter.builder("spaces.dedup.hits", contentHashIndex, ContentHashIndex::hitCount)
+                    .description("上传命中内容去重的次数")
+                    .register(registry);
+            Gauge.builder("spaces.dedup.index.size", contentHashIndex, ContentHashIndex::size)
+                    .description("去重索引条目数")
+                    .register(registry);
+        };
+    }
+
+    /*
+    * 文件键索引指标
+    * */
+    @Bean
+    public MeterBinder keyIndexMetrics(KeyIndex keyIndex) {
+        return registry -> {
+            Gauge.builder("spaces.key.index.size", keyIndex, KeyIndex::size)
+                    .description("文件键索引快照中的文件数")
+                    .register(registry);
+            Gauge.builder("spaces.key.index.pending", keyIndex, KeyIndex::pendingChanges)
+                    .description("尚未合并进快照的上传/删除数")
+                    .register(registry);
+        };
+    }
+
+    /*
+    * 端到端校验和指标
+    * */
+    @Bean
+    public MeterBinder checksumMetrics(Checksummer checksummer) {
+        return registry -> FunctionCounter.builder("spaces.checksum.mismatches", checksummer, Checksummer::mismatchCount)
+                .description("下载时校验和不匹配的次数")
+                .register(registry);
+    }
+
+    /*
+    * 写回暂存指标
+    * */
+    @Bean
+    public MeterBinder uploadSpoolMetrics(UploadSpool uploadSpool) {
+        return registry -> {
+            Gauge.builder("spaces.upload.spool.pending", uploadSpool, UploadSpool::pendingCount)
+                    .description("暂存中尚未上传到Spaces的文件数")
+                    .register(registry);
+            Gauge.builder("spaces.upload.spool.bytes", uploadSpool, UploadSpool::spooledBytes)
+                    .description("暂存文件总大小")
+                    .baseUnit(BaseUnits.BYTES)
+                    .register(registry);
+            FunctionCounter.builder("spaces.upload.spool.failures", uploadSpool, UploadSpool::failedCount)
+                    .description("重试用尽、留待下次启动上传的次数")
+                    .register(registry);
+        };
+    }
+
+    /*
+    * 请求合并指标，按操作（head/list/get）区分
+    * */
+    @Bean
+    public MeterBinder coalescingMetrics(RequestCoalescer requestCoalescer) {
+        return registry -> {
+            for (String operation : List.of(RequestCoalescer.HEAD, RequestCoalescer.LIST, RequestCoalescer.GET)) {
+                FunctionCounter.builder("spaces.coalescing.requests", requestCoalescer,
+                                c -> c.leaderCount(operation))
+                        .description("请求合并：实际发出和被合并的请求数")
+                        .tag("operation", operation)
+                        .tag("role", "leader")
+                        .register(registry);
+                FunctionCounter.builder("spaces.coalescing.requests", requestCoalescer,
+                                c -> c.followerCount(operation))
+                        .description("请求合并：实际发出和被合并的请求数")
+                        .tag("operation", operation)
+                        .tag("role", "follower")
+                        .register(registry);
+                Gauge.builder("spaces.coalescing.ratio", requestCoalescer, c -> c.coalescingRatio(operation))
+                        .description("被合并的请求占总请求的比例")
+                        .tag("operation", operation)
+                        .register(registry);
+            }
+            Gauge.builder("spaces.coalescing.in.flight", requestCoalescer, RequestCoalescer::inFlightCount)
+                    .description("正在进行的合并请求数")
+                    .register(registry);
+        };
+    }
+
+    /*
+    * 客户端限流指标，按存储桶和操作类别（read/write/delete）区分
+    * */
+    @Bean
+    public MeterBinder rateLimitMetrics(AdaptiveRateLimiter adaptiveRateLimiter) {
+        return registry -> {
+            for (String bucket : adaptiveRateLimiter.bucketNames()) {
+                for (OperationClass operationClass : OperationClass.values()) {
+                    Gauge.builder("spaces.ratelimit.rate", adaptiveRateLimiter,
+                                    l -> l.rate(bucket, operationClass))
+                            .description("当前允许的请求速率（请求/秒）")
+                            .tag("bucket", bucket)
+                            .tag("class", operationClass.tag())
+                            .register(registry);
+                    Gauge.builder("spaces.ratelimit.waiting", adaptiveRateLimiter,
+                                    l -> l.waiting(bucket, operationClass))
+                            .description("等待令牌的请求数")
+                            .tag("bucket", bucket)
+                            .tag("class", operationClass.tag())
+                            .register(registry);
+                    FunctionCounter.builder("spaces.ratelimit.throttled", adaptiveRateLimiter,
+                                    l -> l.throttledCount(bucket, operationClass))
+                            .description("收到SlowDown的次数")
+                            .tag("bucket", bucket)
+                            .tag("class", operationClass.tag())
+                            .register(registry);
+                    FunctionCounter.builder("spaces.ratelimit.rejected", adaptiveRateLimiter,
+                                    l -> l.rejectedCount(bucket, operationClass))
+                            .description("等待令牌超过maxWait而失败的请求数")
+                            .tag("bucket", bucket)
+                            .tag("class", operationClass.tag())
+                            .register(registry);
+                }
+            }
+        };
+    }
+}
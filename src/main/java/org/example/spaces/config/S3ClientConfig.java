@@ -2,16 +2,37 @@ package org.example.spaces.config;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.example.spaces.controller.SpacesController;
+import org.example.spaces.metrics.ConnectionPoolMetricPublisher;
+import org.example.spaces.metrics.SdkCallMetricPublisher;
+import org.example.spaces.ratelimit.ThrottlingInterceptor;
+import org.example.spaces.routing.ShardTopology;
+import org.example.spaces.routing.ShardedS3Client;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
+import software.amazon.awssdk.core.retry.RetryPolicy;
+import software.amazon.awssdk.core.retry.backoff.FullJitterBackoffStrategy;
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
+import software.amazon.awssdk.http.urlconnection.UrlConnectionHttpClient;
 import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3ClientBuilder;
 import software.amazon.awssdk.services.s3.S3Configuration;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
 
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 /*
 * S3客户端配置类
@@ -21,31 +42,206 @@ import java.net.URI;
 @RequiredArgsConstructor
 public class S3ClientConfig {
     private final SpacesConfig spacesConfig;
+    private final ConnectionPoolMetricPublisher connectionPoolMetricPublisher;
+    private final SdkCallMetricPublisher sdkCallMetricPublisher;
+    private final ThrottlingInterceptor throttlingInterceptor;
 
     /*
-    * 创建S3客户端，返回配置好的S3客户端
+    * 创建同步S3客户端使用的HTTP客户端
+    * 单独注册为Bean，由Spring在关闭时释放连接池；延迟创建S3客户端时随客户端一起创建
     * */
     @Bean
-    public S3Client s3Client() {
-        log.info("Creating S3 client, connecting: {}",spacesConfig.getEndpointUrl());
+    @Lazy
+    public SdkHttpClient sdkHttpClient() {
+        SpacesConfig.Http http = spacesConfig.getHttp();
+        log.info("Creating {} http client, max connections: {}, acquisition timeout: {}",
+                http.getClient(), http.getMaxConnections(), http.getConnectionAcquisitionTimeout());
+        return httpClientBuilder(http).build();
+    }
+
+    /*
+    * 创建分片拓扑
+    * 未开启分片时只有一个存储桶，使用上面的HTTP客户端；开启后每个存储桶（含副本）一个客户端，连接池互相独立
+    * */
+    @Bean(destroyMethod = "close")
+    public ShardTopology shardTopology(ObjectProvider<SdkHttpClient> sdkHttpClient) {
+        SpacesConfig.RateLimit rateLimit = spacesConfig.getRateLimit();
+        if (rateLimit.isEnabled()) {
+            log.info("Client-side rate limiting enabled, read: {}/s, write: {}/s, delete: {}/s",
+                    rateLimit.getRead().getInitialRate(), rateLimit.getWrite().getInitialRate(),
+                    rateLimit.getDelete().getInitialRate());
+        }
+
+        SpacesConfig.Sharding sharding = spacesConfig.getSharding();
+        if (!sharding.isEnabled()) {
+            log.info("Creating S3 client, connecting: {}", spacesConfig.getEndpointUrl());
+            S3Client client = buildClient(spacesConfig.getEndpointUrl(),
+                    builder -> builder.httpClient(sdkHttpClient.getObject()));
+            log.info("S3 client created{}", spacesConfig.getStartup().isLazyClient() ? " (lazy)" : "");
+            return ShardTopology.single(spacesConfig, client, buildPresigner(spacesConfig.getEndpointUrl()));
+        }
+
+        Map<String, ShardTopology.Target> primaries = new LinkedHashMap<>();
+        Map<String, List<ShardTopology.Target>> replicas = new LinkedHashMap<>();
+        for (SpacesConfig.Shard shard : sharding.getShards()) {
+            SpacesConfig.Http http = shard.getHttp() != null ? shard.getHttp() : spacesConfig.getHttp();
+            primaries.put(shard.getName(), target(shard.getName(), shard.getBucketName(),
+                    shard.getEndpointUrl(), shard.getRegion(), false, http));
+            for (SpacesConfig.Replica replica : shard.getReplicas()) {
+                replicas.computeIfAbsent(shard.getName(), name -> new ArrayList<>())
+                        .add(target(shard.getName(), replica.getBucketName(),
+                                replica.getEndpointUrl(), replica.getRegion(), true, http));
+            }
+        }
+        log.info("Created {} shards, shard key: {}, local region: {}",
+                primaries.size(), sharding.getShardKey(), sharding.getLocalRegion());
+        return new ShardTopology(sharding, primaries, replicas);
+    }
+
+    /*
+    * 创建S3客户端：未分片时为唯一存储桶的客户端，分片时为按文件键路由的客户端
+    * 底层客户端由ShardTopology关闭
+    * */
+    @Bean(destroyMethod = "")
+    public S3Client s3Client(ShardTopology shardTopology) {
+        if (shardTopology.isSharded()) {
+            return new ShardedS3Client(shardTopology);
+        }
+        return shardTopology.primaries().iterator().next().client();
+    }
+
+    private ShardTopology.Target target(String shardName, String bucketName, String endpointUrl, String region,
+                                        boolean replica, SpacesConfig.Http http) {
+        log.info("Creating S3 client for shard {}{}: {} ({}), connecting: {}",
+                shardName, replica ? " replica" : "", bucketName, region, endpointUrl);
+        S3Client client = buildClient(endpointUrl, builder -> builder.httpClientBuilder(httpClientBuilder(http)));
+        return new ShardTopology.Target(shardName, bucketName, endpointUrl, region, replica,
+                client, buildPresigner(endpointUrl));
+    }
+
+    /*
+    * 构建S3客户端，开启延迟创建时返回代理，首次调用时才创建
+    * */
+    private S3Client buildClient(String endpointUrl, Consumer<S3ClientBuilder> httpClient) {
+        if (spacesConfig.getStartup().isLazyClient()) {
+            return LazyS3Client.create(() -> createClient(endpointUrl, httpClient));
+        }
+        return createClient(endpointUrl, httpClient);
+    }
 
+    /*
+    * 创建S3客户端，签名区域固定为us-east-1，实际区域由endpoint决定
+    * */
+    private S3Client createClient(String endpointUrl, Consumer<S3ClientBuilder> httpClient) {
         //创建AWS凭证
         AwsBasicCredentials awsCreds = AwsBasicCredentials.create(
                 spacesConfig.getAccessKey(),
                 spacesConfig.getSecretKey()
         );
 
+        ClientOverrideConfiguration.Builder overrideConfiguration = ClientOverrideConfiguration.builder()
+                .addMetricPublisher(connectionPoolMetricPublisher)
+                .addMetricPublisher(sdkCallMetricPublisher);
+        SpacesConfig.RateLimit rateLimit = spacesConfig.getRateLimit();
+        if (rateLimit.isEnabled()) {
+            overrideConfiguration
+                    .addExecutionInterceptor(throttlingInterceptor)
+                    .retryPolicy(retryPolicy(rateLimit));
+        }
+
         //构建S3客户端
-        S3Client client = S3Client.builder()
-                .endpointOverride(URI.create(spacesConfig.getEndpointUrl()))
+        S3ClientBuilder builder = S3Client.builder()
+                .endpointOverride(URI.create(endpointUrl))
                 .credentialsProvider(StaticCredentialsProvider.create(awsCreds))
                 .region(Region.US_EAST_1)
                 .serviceConfiguration(S3Configuration.builder()
                         .pathStyleAccessEnabled(true)
                         .build())
+                .overrideConfiguration(overrideConfiguration.build());
+        httpClient.accept(builder);
+        return builder.build();
+    }
+
+    private static SdkHttpClient.Builder<?> httpClientBuilder(SpacesConfig.Http http) {
+        return switch (http.getClient()) {
+            case APACHE -> ApacheHttpClient.builder()
+                    .maxConnections(http.getMaxConnections())
+                    .connectionAcquisitionTimeout(http.getConnectionAcquisitionTimeout())
+                    .connectionTimeout(http.getConnectionTimeout())
+                    .socketTimeout(http.getSocketTimeout())
+                    .tcpKeepAlive(http.isTcpKeepAlive())
+                    .connectionMaxIdleTime(http.getConnectionMaxIdleTime())
+                    .useIdleConnectionReaper(http.isReapIdleConnections());
+            case URL_CONNECTION -> UrlConnectionHttpClient.builder()
+                    .connectionTimeout(http.getConnectionTimeout())
+                    .socketTimeout(http.getSocketTimeout());
+        };
+    }
+
+    /*
+    * 重试策略：全抖动指数退避，SlowDown使用更大的退避基数，避免大量请求同时重试
+    * SlowDown在SDK的限流错误码中，默认重试条件已覆盖
+    * */
+    private static RetryPolicy retryPolicy(SpacesConfig.RateLimit rateLimit) {
+        return RetryPolicy.builder()
+                .numRetries(rateLimit.getMaxRetries())
+                .backoffStrategy(FullJitterBackoffStrategy.builder()
+                        .baseDelay(rateLimit.getBaseDelay())
+                        .maxBackoffTime(rateLimit.getMaxBackoff())
+                        .build())
+                .throttlingBackoffStrategy(FullJitterBackoffStrategy.builder()
+                        .baseDelay(rateLimit.getThrottlingBaseDelay())
+                        .maxBackoffTime(rateLimit.getMaxBackoff())
+                        .build())
+                .build();
+    }
+
+    /*
+    * 创建S3预签名器，签名在本地完成，不发起网络请求
+    * */
+    private S3Presigner buildPresigner(String endpointUrl) {
+        AwsBasicCredentials awsCreds = AwsBasicCredentials.create(
+                spacesConfig.getAccessKey(),
+                spacesConfig.getSecretKey()
+        );
+
+        return S3Presigner.builder()
+                .endpointOverride(URI.create(endpointUrl))
+                .credentialsProvider(StaticCredentialsProvider.create(awsCreds))
+                .region(Region.US_EAST_1)
+                .serviceConfiguration(S3Configuration.builder()
+                        .pathStyleAccessEnabled(true)
+                        .build())
+                .build();
+    }
+
+    /*
+    * 创建基于CRT的异步S3客户端，仅在开启异步后端时创建
+    * CRT客户端会自动将大对象拆分为并行的分片/区间请求
+    * */
+    @Bean
+    @ConditionalOnProperty(prefix = "digitalocean.spaces.async", name = "enabled", havingValue = "true")
+    public S3AsyncClient s3AsyncClient() {
+        SpacesConfig.Async async = spacesConfig.getAsync();
+        log.info("Creating S3 async client, connecting: {}, target throughput: {} Gbps",
+                spacesConfig.getEndpointUrl(), async.getTargetThroughputGbps());
+
+        AwsBasicCredentials awsCreds = AwsBasicCredentials.create(
+                spacesConfig.getAccessKey(),
+                spacesConfig.getSecretKey()
+        );
+
+        S3AsyncClient client = S3AsyncClient.crtBuilder()
+                .endpointOverride(URI.create(spacesConfig.getEndpointUrl()))
+                .credentialsProvider(StaticCredentialsProvider.create(awsCreds))
+                .region(Region.US_EAST_1)
+                .forcePathStyle(true)
+                .targetThroughputInGbps(async.getTargetThroughputGbps())
+                .maxConcurrency(async.getMaxConcurrency())
+                .minimumPartSizeInBytes(async.getMinimumPartSize().toBytes())
                 .build();
 
-        log.info("S3 client created");
+        log.info("S3 async client created");
         return client;
     }
 }
@@ -1,13 +1,27 @@
 package org.example.spaces.config;
 
 
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
 import org.springframework.validation.annotation.Validated;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
 /*
 * DigitalOcean Spaces配置类
 * 存储所有配置信息
@@ -31,4 +45,746 @@ public class SpacesConfig {
 
    @NotBlank(message = "Endpoint Url is required")
     private String endpointUrl;
+
+   @Valid
+    private Multipart multipart = new Multipart();
+
+   @Valid
+    private Download download = new Download();
+
+   @Valid
+    private Cache cache = new Cache();
+
+   @Valid
+    private BatchDelete batchDelete = new BatchDelete();
+
+   @Valid
+    private Async async = new Async();
+
+   @Valid
+    private Http http = new Http();
+
+   @Valid
+    private DiskCache diskCache = new DiskCache();
+
+   @Valid
+    private Presign presign = new Presign();
+
+   @Valid
+    private Dedup dedup = new Dedup();
+
+   @Valid
+    private Compression compression = new Compression();
+
+   @Valid
+    private HttpCache httpCache = new HttpCache();
+
+   @Valid
+    private BulkUpload bulkUpload = new BulkUpload();
+
+   @Valid
+    private Archive archive = new Archive();
+
+   @Valid
+    private Coalescing coalescing = new Coalescing();
+
+   @Valid
+    private RateLimit rateLimit = new RateLimit();
+
+   @Valid
+    private Sharding sharding = new Sharding();
+
+   @Valid
+    private KeyIndex keyIndex = new KeyIndex();
+
+   @Valid
+    private Copy copy = new Copy();
+
+   @Valid
+    private Spool spool = new Spool();
+
+   @Valid
+    private UploadSession uploadSession = new UploadSession();
+
+   @Valid
+    private Startup startup = new Startup();
+
+   @Valid
+    private Checksum checksum = new Checksum();
+
+    @AssertTrue(message = "Async backend does not support sharding")
+    public boolean isAsyncCompatibleWithSharding() {
+        return !(sharding.isEnabled() && async.isEnabled());
+    }
+
+    /*
+    * 分片上传配置
+    * 超过分片大小的文件通过CreateMultipartUpload/UploadPart并发上传
+    * */
+    @Data
+    public static class Multipart {
+        //分片大小，S3要求除最后一片外不小于5MB
+        @NotNull(message = "Part size is required")
+        private DataSize partSize = DataSize.ofMegabytes(8);
+
+        //同时上传的分片数，也是单次上传最多占用的缓冲区个数
+        @Min(value = 1, message = "Parallelism must be at least 1")
+        private int parallelism = 4;
+
+        //流式上传允许的最大对象大小
+        @NotNull(message = "Max object size is required")
+        private DataSize maxObjectSize = DataSize.ofGigabytes(50);
+
+        //S3除最后一片外不小于5MB；分片在内存中为单个byte[]，单次上传最多占用 分片大小 * (parallelism + 1)，上限取512MB
+        @AssertTrue(message = "Multipart part size must be between 5MB and 512MB")
+        public boolean isPartSizeValid() {
+            return partSize == null || (partSize.toBytes() >= DataSize.ofMegabytes(5).toBytes()
+                    && partSize.toBytes() <= DataSize.ofMegabytes(512).toBytes());
+        }
+
+        //S3单次分片上传最多10000片，最大对象按分片大小切分后不能超出
+        @AssertTrue(message = "Multipart max object size needs more than 10000 parts at the configured part size")
+        public boolean isPartCountValid() {
+            if (partSize == null || maxObjectSize == null) {
+                return true;
+            }
+            return (maxObjectSize.toBytes() + partSize.toBytes() - 1) / partSize.toBytes() <= 10_000;
+        }
+    }
+
+    /*
+    * 下载配置
+    * 开启并发分段下载后，大文件按分段大小并发发起Range GET，再按顺序写给客户端
+    * */
+    @Data
+    public static class Download {
+        //是否开启并发分段下载
+        private boolean parallelEnabled = false;
+
+        //超过该大小的完整下载才使用并发分段
+        @NotNull(message = "Parallel threshold is required")
+        private DataSize parallelThreshold = DataSize.ofMegabytes(64);
+
+        //每个Range GET的分段大小
+        @NotNull(message = "Part size is required")
+        private DataSize partSize = DataSize.ofMegabytes(8);
+
+        //同时进行的Range GET数，也是单次下载最多占用的缓冲区个数
+        @Min(value = 1, message = "Parallelism must be at least 1")
+        private int parallelism = 4;
+    }
+
+    /*
+    * 元数据缓存配置
+    * 缓存HEAD结果，不存在的文件按negativeTtl缓存
+    * */
+    @Data
+    public static class Cache {
+        //是否开启元数据缓存
+        private boolean enabled = true;
+
+        //最大缓存条目数
+        @Min(value = 1, message = "Cache max size must be at least 1")
+        private long maxSize = 10_000;
+
+        //存在的文件缓存时间
+        @NotNull(message = "Cache ttl is required")
+        private Duration ttl = Duration.ofMinutes(5);
+
+        //不存在的文件缓存时间
+        @NotNull(message = "Cache negative ttl is required")
+        private Duration negativeTtl = Duration.ofSeconds(30);
+    }
+
+    /*
+    * 请求合并配置
+    * 相同的HEAD/LIST（以及已知大小的小文件GET）同时进行时只发一次请求，结果共享给所有等待者
+    * */
+    @Data
+    public static class Coalescing {
+        //是否开启请求合并
+        private boolean enabled = true;
+
+        //不超过该大小的文件GET也参与合并（内容读入内存共享）
+        @NotNull(message = "Coalescing max object size is required")
+        private DataSize maxObjectSize = DataSize.ofKilobytes(256);
+    }
+
+    /*
+    * 批量删除配置
+    * 每批最多1000个键（DeleteObjects上限），批次之间并发执行
+    * */
+    @Data
+    public static class BatchDelete {
+        //同时进行的DeleteObjects请求数
+        @Min(value = 1, message = "Parallelism must be at least 1")
+        private int parallelism = 4;
+    }
+
+    /*
+    * 服务端复制配置
+    * 不超过阈值的文件用CopyObject一次复制，更大的文件用UploadPartCopy并发分段复制，数据不经过本服务
+    * */
+    @Data
+    public static class Copy {
+        //超过该大小使用分段复制，CopyObject单次最多复制5GB
+        @NotNull(message = "Copy multipart threshold is required")
+        private DataSize multipartThreshold = DataSize.ofGigabytes(5);
+
+        //分段复制的分段大小，5MB到5GB之间
+        @NotNull(message = "Copy part size is required")
+        private DataSize partSize = DataSize.ofMegabytes(512);
+
+        //单个文件同时进行的UploadPartCopy数
+        @Min(value = 1, message = "Part parallelism must be at least 1")
+        private int partParallelism = 8;
+
+        //按前缀复制/移动时同时复制的文件数
+        @Min(value = 1, message = "Parallelism must be at least 1")
+        private int parallelism = 16;
+
+        @AssertTrue(message = "Copy multipart threshold must not exceed 5GB, part size must be between 5MB and 5GB")
+        public boolean isSizesValid() {
+            return multipartThreshold == null || partSize == null
+                    || (multipartThreshold.toBytes() <= DataSize.ofGigabytes(5).toBytes()
+                    && partSize.toBytes() >= DataSize.ofMegabytes(5).toBytes()
+                    && partSize.toBytes() <= DataSize.ofGigabytes(5).toBytes());
+        }
+    }
+
+    /*
+    * 启动配置
+    * 按需扩容时冷启动时间直接影响可用性：S3客户端可推迟到首次使用时创建，就绪后在后台预热
+    * */
+    @Data
+    public static class Startup {
+        //是否延迟创建S3客户端（含HTTP连接池），首次调用或预热时才创建
+        private boolean lazyClient = false;
+
+        //就绪后是否在后台向每个存储桶发一次HeadBucket，提前创建客户端并建立连接
+        private boolean warmUp = true;
+    }
+
+    /*
+    * 可续传上传会话配置
+    * 每个会话对应一个Spaces分片上传，分块直接作为UploadPart转发；长时间没有新分块的分片上传由后台清理
+    * */
+    @Data
+    public static class UploadSession {
+        //建议客户端使用的分块大小，除最后一块外不能小于5MB
+        @NotNull(message = "Upload session chunk size is required")
+        private DataSize chunkSize = DataSize.ofMegabytes(8);
+
+        //超过该时间没有收到新分块的会话视为已放弃
+        @NotNull(message = "Upload session expiry is required")
+        private Duration expiry = Duration.ofHours(24);
+
+        //是否在后台中止本实例创建的、已放弃的会话；重启前创建的会话不在清理范围内，建议同时配置存储桶的分片上传过期规则
+        private boolean reaperEnabled = false;
+
+        //清理间隔
+        @NotNull(message = "Upload session reaper interval is required")
+        private Duration reaperInterval = Duration.ofHours(1);
+
+        @AssertTrue(message = "Upload session chunk size must be between 5MB and 5GB")
+        public boolean isChunkSizeValid() {
+            return chunkSize == null
+                    || (chunkSize.toBytes() >= DataSize.ofMegabytes(5).toBytes()
+                    && chunkSize.toBytes() <= DataSize.ofGigabytes(5).toBytes());
+        }
+    }
+
+    /*
+    * 写回暂存配置
+    * /upload 的请求体写入本地暂存目录并记录日志后立即返回202，后台上传到Spaces，失败时指数退避重试
+    * */
+    @Data
+    public static class Spool {
+        //是否开启写回模式
+        private boolean enabled = false;
+
+        //暂存目录，包含待上传文件和日志，重启后据此继续上传；开启时必须显式指定持久化磁盘上的目录
+        private String directory;
+
+        //暂存总大小上限，超出时退回同步上传
+        @NotNull(message = "Spool max size is required")
+        private DataSize maxSize = DataSize.ofGigabytes(10);
+
+        //同时上传的暂存文件数
+        @Min(value = 1, message = "Parallelism must be at least 1")
+        private int parallelism = 4;
+
+        //单个文件的最大重试次数，用尽后保留在暂存中，下次启动时再上传
+        @Min(value = 0, message = "Max retries must not be negative")
+        private int maxRetries = 10;
+
+        //首次重试的等待时间，之后每次翻倍
+        @NotNull(message = "Spool retry delay is required")
+        private Duration retryDelay = Duration.ofSeconds(1);
+
+        //重试等待时间上限
+        @NotNull(message = "Spool max retry delay is required")
+        private Duration maxRetryDelay = Duration.ofMinutes(5);
+
+        //写入暂存文件和日志后是否fsync，关闭后断电可能丢失已返回202的上传
+        private boolean fsync = true;
+
+        @AssertTrue(message = "Spool directory is required when spool is enabled")
+        public boolean isDirectoryValid() {
+            return !enabled || (directory != null && !directory.isBlank());
+        }
+    }
+
+    /*
+    * 批量上传配置
+    * 不超过分片大小的文件读入内存后并发上传，内存占用约为 multipart.part-size * parallelism
+    * */
+    @Data
+    public static class BulkUpload {
+        //同时上传的文件数
+        @Min(value = 1, message = "Parallelism must be at least 1")
+        private int parallelism = 8;
+    }
+
+    /*
+    * 打包下载配置
+    * 写出当前文件时预先打开后面的文件，小文件预读到内存，内存占用约为 prefetch * buffer-threshold
+    * */
+    @Data
+    public static class Archive {
+        //预先打开的文件数
+        @Min(value = 0, message = "Prefetch must not be negative")
+        private int prefetch = 4;
+
+        //不超过该大小的文件预读到内存，更大的文件只预先建立连接
+        @NotNull(message = "Archive buffer threshold is required")
+        private DataSize bufferThreshold = DataSize.ofMegabytes(1);
+    }
+
+    /*
+    * 异步客户端配置
+    * 开启后创建基于CRT的S3AsyncClient，并注册返回CompletableFuture的异步接口
+    * */
+    @Data
+    public static class Async {
+        //是否开启异步后端
+        private boolean enabled = false;
+
+        //目标吞吐量（Gbps），CRT据此决定并行连接数
+        @Min(value = 1, message = "Target throughput must be at least 1")
+        private double targetThroughputGbps = 10.0;
+
+        //最大并发请求数
+        @Min(value = 1, message = "Max concurrency must be at least 1")
+        private int maxConcurrency = 64;
+
+        //CRT自动分片的最小分片大小
+        @NotNull(message = "Minimum part size is required")
+        private DataSize minimumPartSize = DataSize.ofMegabytes(8);
+    }
+
+    /*
+    * HTTP传输配置
+    * 决定同步S3客户端使用的HTTP客户端及其连接池、超时设置
+    * */
+    @Data
+    public static class Http {
+        //HTTP客户端实现
+        @NotNull(message = "Http client type is required")
+        private HttpClientType client = HttpClientType.APACHE;
+
+        //连接池最大连接数（仅APACHE）
+        @Min(value = 1, message = "Max connections must be at least 1")
+        private int maxConnections = 100;
+
+        //从连接池获取连接的超时时间（仅APACHE）
+        @NotNull(message = "Connection acquisition timeout is required")
+        private Duration connectionAcquisitionTimeout = Duration.ofSeconds(2);
+
+        //建立连接超时时间
+        @NotNull(message = "Connection timeout is required")
+        private Duration connectionTimeout = Duration.ofSeconds(2);
+
+        //读取数据超时时间
+        @NotNull(message = "Socket timeout is required")
+        private Duration socketTimeout = Duration.ofSeconds(30);
+
+        //是否开启TCP keep-alive（仅APACHE）
+        private boolean tcpKeepAlive = true;
+
+        //空闲连接最长保留时间（仅APACHE）
+        @NotNull(message = "Connection max idle time is required")
+        private Duration connectionMaxIdleTime = Duration.ofSeconds(60);
+
+        //是否后台回收空闲连接（仅APACHE）
+        private boolean reapIdleConnections = true;
+
+        @AssertTrue(message = "Http timeouts must be positive")
+        public boolean isTimeoutsPositive() {
+            return isPositive(connectionAcquisitionTimeout)
+                    && isPositive(connectionTimeout)
+                    && isPositive(socketTimeout)
+                    && isPositive(connectionMaxIdleTime);
+        }
+
+        private static boolean isPositive(Duration duration) {
+            return duration == null || (!duration.isNegative() && !duration.isZero());
+        }
+    }
+
+    /*
+    * 客户端限流配置
+    * 按操作类别（读/写/删除）分别限速，收到SlowDown时按比例降速，成功时线性恢复（AIMD）
+    * */
+    @Data
+    public static class RateLimit {
+        //是否开启客户端限流
+        private boolean enabled = false;
+
+        //GET/HEAD/LIST
+        @Valid
+        private OperationLimit read = new OperationLimit(500, 800);
+
+        //PUT/分片上传/复制
+        @Valid
+        private OperationLimit write = new OperationLimit(150, 300);
+
+        //DELETE/批量删除/放弃分片上传
+        @Valid
+        private OperationLimit delete = new OperationLimit(150, 300);
+
+        //无SlowDown时每秒增加的速率（请求/秒）
+        @DecimalMin(value = "0", inclusive = false, message = "Increase per second must be positive")
+        private double increasePerSecond = 10;
+
+        //读请求排队时写/删除最多让行的时间，超过后按自身令牌桶继续，避免持续读限流时后台操作饿死
+        @NotNull(message = "Max yield is required")
+        private Duration maxYield = Duration.ofMillis(200);
+
+        //取令牌最多等待的时间，预计超过时请求失败并返回503；应小于调用方的请求超时
+        @NotNull(message = "Rate limit max wait is required")
+        private Duration maxWait = Duration.ofSeconds(2);
+
+        //收到SlowDown时速率乘以该系数
+        @DecimalMin(value = "0.1", message = "Decrease factor must be at least 0.1")
+        @DecimalMax(value = "0.95", message = "Decrease factor must be at most 0.95")
+        private double decreaseFactor = 0.5;
+
+        //SDK最大重试次数
+        @Min(value = 0, message = "Max retries must not be negative")
+        private int maxRetries = 5;
+
+        //普通错误重试的退避基数
+        @NotNull(message = "Retry base delay is required")
+        private Duration baseDelay = Duration.ofMillis(100);
+
+        //SlowDown重试的退避基数
+        @NotNull(message = "Throttling base delay is required")
+        private Duration throttlingBaseDelay = Duration.ofMillis(500);
+
+        //单次退避上限
+        @NotNull(message = "Max backoff is required")
+        private Duration maxBackoff = Duration.ofSeconds(20);
+    }
+
+    /*
+    * 多存储桶分片配置
+    * 文件键按一致性哈希分布到各分片，读请求优先走本地区的副本
+    * 开启后顶层的bucketName/endpointUrl只作为逻辑名称，实际请求按分片路由
+    * */
+    @Data
+    public static class Sharding {
+        //是否开启分片
+        private boolean enabled = false;
+
+        //按整个文件键还是第一级目录哈希；PREFIX时同一目录下的文件在同一分片，列目录无需扇出
+        @NotNull(message = "Shard key is required")
+        private ShardKey shardKey = ShardKey.KEY;
+
+        //每个分片（权重为1时）在哈希环上的虚拟节点数
+        @Min(value = 1, message = "Virtual nodes must be at least 1")
+        private int virtualNodes = 128;
+
+        //本服务所在区域，如sgp1；读请求优先发往该区域的副本
+        private String localRegion;
+
+        //新增分片后，读不到的文件回退到哈希环上的前一个归属分片，无需先迁移数据
+        private boolean migrationFallback = true;
+
+        @Valid
+        private List<Shard> shards = new ArrayList<>();
+
+        @AssertTrue(message = "Sharding requires at least one shard with a unique name")
+        public boolean isShardsValid() {
+            return !enabled || (!shards.isEmpty()
+                    && shards.stream().map(Shard::getName).distinct().count() == shards.size());
+        }
+    }
+
+    /*
+    * 本地文件键索引配置
+    * 开启后在内存中维护所有文件键及大小、修改时间，按前缀/后缀/大小/时间查询无需完整列出存储桶
+    * */
+    @Data
+    public static class KeyIndex {
+        //是否开启文件键索引
+        private boolean enabled = false;
+
+        //与存储桶完整对账的间隔，捕获其他客户端（如预签名上传）的变更
+        @NotNull(message = "Key index reconcile interval is required")
+        private Duration reconcileInterval = Duration.ofMinutes(10);
+
+        //每个目录按文件名首字符拆成的分区数，分区并行列出
+        @Min(value = 1, message = "Key index partitions must be at least 1")
+        private int partitions = 16;
+
+        //同时进行的listObjectsV2请求数
+        @Min(value = 1, message = "Parallelism must be at least 1")
+        private int parallelism = 8;
+    }
+
+    /*
+    * 分片：一个存储桶及其只读副本
+    * */
+    @Data
+    public static class Shard {
+        //分片名称，决定哈希环上的位置，改名会导致键重新分布
+        @NotBlank(message = "Shard name is required")
+        private String name;
+
+        @NotBlank(message = "Shard bucket name is required")
+        private String bucketName;
+
+        @NotBlank(message = "Shard endpoint url is required")
+        private String endpointUrl;
+
+        //所在区域，如sgp1、nyc3
+        @NotBlank(message = "Shard region is required")
+        private String region;
+
+        //权重，虚拟节点数 = virtualNodes * weight
+        @Min(value = 1, message = "Shard weight must be at least 1")
+        private int weight = 1;
+
+        //单独的HTTP客户端配置，未配置时使用全局配置
+        @Valid
+        private Http http;
+
+        //其他区域的副本（由存储桶复制同步），只用于读
+        @Valid
+        private List<Replica> replicas = new ArrayList<>();
+    }
+
+    /*
+    * 分片的只读副本
+    * */
+    @Data
+    public static class Replica {
+        @NotBlank(message = "Replica bucket name is required")
+        private String bucketName;
+
+        @NotBlank(message = "Replica endpoint url is required")
+        private String endpointUrl;
+
+        @NotBlank(message = "Replica region is required")
+        private String region;
+    }
+
+    /*
+    * 单类操作的速率（请求/秒）
+    * */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class OperationLimit {
+        //启动时的速率
+        @DecimalMin(value = "1", message = "Initial rate must be at least 1")
+        private double initialRate;
+
+        //速率上限
+        @DecimalMin(value = "1", message = "Max rate must be at least 1")
+        private double maxRate;
+
+        @AssertTrue(message = "Initial rate must not exceed max rate")
+        public boolean isInitialRateValid() {
+            return initialRate <= maxRate;
+        }
+    }
+
+    /*
+    * 本地磁盘缓存配置
+    * 热点文件缓存到本地磁盘，命中时按eTag校验后直接从文件通道写出
+    * */
+    @Data
+    public static class DiskCache {
+        //是否开启磁盘缓存
+        private boolean enabled = false;
+
+        //缓存目录，启动时清空
+        @NotBlank(message = "Disk cache directory is required")
+        private String directory = System.getProperty("java.io.tmpdir") + "/spaces-cache";
+
+        //缓存总大小上限，超出时按最近最少使用淘汰
+        @NotNull(message = "Disk cache max size is required")
+        private DataSize maxSize = DataSize.ofGigabytes(10);
+
+        //单个文件超过该大小时不缓存
+        @NotNull(message = "Disk cache max object size is required")
+        private DataSize maxObjectSize = DataSize.ofMegabytes(256);
+
+        //淘汰或覆盖的文件延迟删除的时间，需覆盖请求结束到Tomcat打开sendfile文件的间隔；期间磁盘占用可能超出上限
+        @NotNull(message = "Disk cache delete delay is required")
+        private Duration deleteDelay = Duration.ofSeconds(30);
+    }
+
+    /*
+    * 预签名URL配置
+    * 客户端凭预签名URL直接与Spaces传输数据，本服务只处理签名
+    * */
+    @Data
+    public static class Presign {
+        //未指定时的默认有效期
+        @NotNull(message = "Presign default expiry is required")
+        private Duration defaultExpiry = Duration.ofMinutes(15);
+
+        //允许的最长有效期，S3上限为7天
+        @NotNull(message = "Presign max expiry is required")
+        private Duration maxExpiry = Duration.ofDays(7);
+
+        //是否缓存下载URL，缓存时间为有效期的一半
+        private boolean cacheEnabled = true;
+
+        //下载URL缓存最大条目数
+        @Min(value = 1, message = "Presign cache max size must be at least 1")
+        private long cacheMaxSize = 10_000;
+    }
+
+    /*
+    * 分片键：整个文件键，或第一级目录
+    * */
+    public enum ShardKey {
+        KEY,
+        PREFIX
+    }
+
+    /*
+    * 同步S3客户端可选的HTTP客户端实现
+    * */
+    public enum HttpClientType {
+        //Apache HttpClient，带连接池，适合高并发
+        APACHE,
+        //JDK HttpURLConnection，依赖少、启动快，无连接池统计
+        URL_CONNECTION
+    }
+
+    /*
+    * 内容去重配置
+    * 上传时计算SHA-256，内容已存在则直接返回已有文件，不再重复写入
+    * */
+    @Data
+    public static class Dedup {
+        //是否开启内容去重
+        private boolean enabled = false;
+
+        //索引日志所在目录，重启后据此恢复索引；开启时必须显式指定持久化磁盘上的目录
+        private String directory;
+
+        @AssertTrue(message = "Dedup directory is required when dedup is enabled")
+        public boolean isDirectoryValid() {
+            return !enabled || (directory != null && !directory.isBlank());
+        }
+    }
+
+    /*
+    * 端到端校验和配置
+    * 上传时对已读入的分片计算校验和并以x-amz-checksum-*头发送，由Spaces校验；下载时边传输边校验，不额外读一遍
+    * 校验和针对存储的内容，压缩存储的文件为压缩后的内容
+    * */
+    @Data
+    public static class Checksum {
+        //是否开启校验和
+        private boolean enabled = false;
+
+        //校验和算法
+        @NotNull(message = "Checksum algorithm is required")
+        private ChecksumAlgorithm algorithm = ChecksumAlgorithm.CRC32C;
+
+        //下载完整文件时是否校验，文件没有校验和或为区间下载时不校验
+        private boolean verifyDownloads = true;
+    }
+
+    /*
+    * 透明压缩配置
+    * 按文件类型在上传时流式压缩，对象以Content-Encoding记录编码
+    * */
+    @Data
+    public static class Compression {
+        //是否开启压缩
+        private boolean enabled = false;
+
+        //压缩算法
+        @NotNull(message = "Compression codec is required")
+        private CompressionCodec codec = CompressionCodec.GZIP;
+
+        //压缩级别：gzip 1-9，zstd 1-22
+        @Min(value = 1, message = "Compression level must be at least 1")
+        private int level = 6;
+
+        //需要压缩的文件类型，支持 text/* 通配
+        @NotEmpty(message = "Compressible content types are required")
+        private List<String> contentTypes = new ArrayList<>(List.of(
+                "text/*",
+                "application/json",
+                "application/x-ndjson",
+                "application/xml",
+                "application/javascript",
+                "application/csv",
+                "image/svg+xml"));
+    }
+
+    /*
+    * HTTP缓存配置
+    * 下载响应的Cache-Control按文件键前缀设置，最长前缀优先
+    * */
+    @Data
+    public static class HttpCache {
+        //未匹配任何前缀时的Cache-Control，默认每次向本服务校验
+        @NotBlank(message = "Default cache control is required")
+        private String defaultCacheControl = "no-cache";
+
+        //按前缀设置的Cache-Control
+        @Valid
+        private List<CacheRule> rules = new ArrayList<>();
+    }
+
+    @Data
+    public static class CacheRule {
+        //文件键前缀
+        @NotBlank(message = "Cache rule prefix is required")
+        private String prefix;
+
+        //该前缀下文件的Cache-Control，如 public, max-age=86400
+        @NotBlank(message = "Cache rule cache control is required")
+        private String cacheControl;
+    }
+
+    /*
+    * 可选的校验和算法
+    * */
+    public enum ChecksumAlgorithm {
+        //CPU指令加速（SSE4.2/ARMv8 CRC32），开销可忽略
+        CRC32C,
+        //需要密码学强度时使用，开销明显高于CRC32C
+        SHA256
+    }
+
+    /*
+    * 可选的压缩算法
+    * */
+    public enum CompressionCodec {
+        //兼容性最好，所有浏览器都支持
+        GZIP,
+        //压缩和解压更快，部分客户端不支持，此时下载时服务端解压
+        ZSTD
+    }
 }
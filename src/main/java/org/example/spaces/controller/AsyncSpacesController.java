@@ -0,0 +1,166 @@
+package org.example.spaces.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.spaces.compression.Compressor;
+import org.example.spaces.model.ApiResponse;
+import org.example.spaces.model.FileContent;
+import org.example.spaces.model.FileMetadata;
+import org.example.spaces.service.AsyncSpacesService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+
+/*
+* 异步Spaces接口
+* 返回CompletableFuture，等待Spaces响应期间不占用Tomcat线程*/
+@Slf4j
+@RestController
+@RequestMapping("/api/v1/spaces/async")
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "digitalocean.spaces.async", name = "enabled", havingValue = "true")
+@Tag(name= "Spaces Async API", description = "DigitalOcean Spaces 非阻塞文件管理API")
+public class AsyncSpacesController {
+    private final AsyncSpacesService asyncSpacesService;
+    private final Compressor compressor;
+
+    /**
+     * 上传文件
+     */
+    @PostMapping("/upload")
+    @Operation(summary = "异步上传文件", description = "上传文件到DigitalOcean Spaces，不阻塞请求线程")
+    public CompletableFuture<ResponseEntity<ApiResponse<FileMetadata>>> uploadFile(
+            @Parameter(description = "要上传的文件", required = true)
+            @RequestParam("file") MultipartFile file,
+            @Parameter(description = "目标文件夹（可选）")
+            @RequestParam(value = "folder", required = false) String folder) {
+
+        log.info("接收到异步文件上传请求: {}, 大小: {} bytes",
+                file.getOriginalFilename(), file.getSize());
+
+        return asyncSpacesService.uploadFile(file, folder)
+                .thenApply(metadata -> ResponseEntity.ok(
+                        ApiResponse.success("文件上传成功", metadata)
+                ));
+    }
+
+    /**
+     * 下载文件
+     */
+    @GetMapping("/download/{key}")
+    @Operation(summary = "异步下载文件", description = "响应头到达后开始流式写出文件内容")
+    public CompletableFuture<ResponseEntity<StreamingResponseBody>> downloadFile(
+            @Parameter(description = "文件键", required = true)
+            @PathVariable String key,
+            @Parameter(description = "客户端接受的编码（可选），如 gzip, zstd")
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+
+        log.info("接收到异步文件下载请求: {}", key);
+
+        return asyncSpacesService.openFile(key)
+                .thenApply(content -> {
+                    FileMetadata metadata = content.getMetadata();
+                    String fileName = key.substring(key.lastIndexOf("/") + 1);
+
+                    // 压缩存储的文件：客户端接受该编码时原样返回，否则边解压边返回
+                    String contentEncoding = metadata.getContentEncoding();
+                    boolean passThrough = contentEncoding == null
+                            || compressor.accepts(acceptEncoding, contentEncoding);
+
+                    StreamingResponseBody body = outputStream -> {
+                        try (FileContent closeable = content;
+                             InputStream inputStream = passThrough
+                                     ? closeable.getInputStream()
+                                     : compressor.decode(closeable.getInputStream(), contentEncoding)) {
+                            inputStream.transferTo(outputStream);
+                        }
+                    };
+
+                    ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                            .contentType(metadata.getContentType() != null
+                                    ? MediaType.parseMediaType(metadata.getContentType())
+                                    : MediaType.APPLICATION_OCTET_STREAM)
+                            .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                                    .filename(fileName, StandardCharsets.UTF_8)
+                                    .build()
+                                    .toString());
+                    if (contentEncoding != null) {
+                        builder.header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+                    }
+                    if (passThrough) {
+                        builder.contentLength(metadata.getSize());
+                        if (contentEncoding != null) {
+                            builder.header(HttpHeaders.CONTENT_ENCODING, contentEncoding);
+                        }
+                    }
+                    return builder.body(body);
+                });
+    }
+
+    /**
+     * 获取文件元数据
+     */
+    @GetMapping("/metadata/{key}")
+    @Operation(summary = "异步获取文件元数据", description = "获取指定文件的元数据信息")
+    public CompletableFuture<ResponseEntity<ApiResponse<FileMetadata>>> getFileMetadata(
+            @Parameter(description = "文件键", required = true)
+            @PathVariable String key) {
+
+        log.info("异步获取文件元数据: {}", key);
+
+        return asyncSpacesService.getFileMetadata(key)
+                .thenApply(metadata -> ResponseEntity.ok(
+                        ApiResponse.success("获取文件元数据成功", metadata)
+                ));
+    }
+
+    /**
+     * 删除文件
+     */
+    @DeleteMapping("/{key}")
+    @Operation(summary = "异步删除文件", description = "删除指定的文件")
+    public CompletableFuture<ResponseEntity<ApiResponse<Void>>> deleteFile(
+            @Parameter(description = "文件键", required = true)
+            @PathVariable String key) {
+
+        log.info("异步删除文件: {}", key);
+
+        return asyncSpacesService.deleteFile(key)
+                .thenApply(success -> ResponseEntity.ok(success
+                        ? ApiResponse.<Void>success("文件删除成功", null)
+                        : ApiResponse.<Void>error("文件删除失败")
+                ));
+    }
+
+    /**
+     * 检查文件是否存在
+     */
+    @GetMapping("/exists/{key}")
+    @Operation(summary = "异步检查文件存在性", description = "检查指定文件是否存在")
+    public CompletableFuture<ResponseEntity<ApiResponse<Boolean>>> fileExists(
+            @Parameter(description = "文件键", required = true)
+            @PathVariable String key) {
+
+        log.info("异步检查文件是否存在: {}", key);
+
+        return asyncSpacesService.fileExists(key)
+                .thenApply(exists -> ResponseEntity.ok(
+                        ApiResponse.success(
+                                exists ? "文件存在" : "文件不存在",
+                                exists
+                        )
+                ));
+    }
+}
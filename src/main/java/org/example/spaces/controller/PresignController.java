@@ -0,0 +1,123 @@
+package org.example.spaces.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.spaces.model.ApiResponse;
+import org.example.spaces.model.CompleteMultipartRequest;
+import org.example.spaces.model.FileMetadata;
+import org.example.spaces.model.PresignedMultipartUpload;
+import org.example.spaces.model.PresignedUrl;
+import org.example.spaces.service.PresignService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Duration;
+
+/*
+* 预签名URL接口
+* 客户端拿到URL后直接与Spaces传输，文件内容不经过本服务*/
+@Slf4j
+@RestController
+@RequestMapping("/api/v1/spaces/presign")
+@RequiredArgsConstructor
+@Tag(name= "Spaces Presign API", description = "DigitalOcean Spaces 预签名URL API")
+public class PresignController {
+    private final PresignService presignService;
+
+    /**
+     * 签发下载URL
+     */
+    @GetMapping("/download/{key}")
+    @Operation(summary = "签发下载URL", description = "生成限时有效的GET URL")
+    public ResponseEntity<ApiResponse<PresignedUrl>> presignDownload(
+            @Parameter(description = "文件键", required = true)
+            @PathVariable String key,
+            @Parameter(description = "有效期，如15m、PT1H（可选）")
+            @RequestParam(value = "expiry", required = false) Duration expiry) {
+
+        log.info("签发下载URL请求: {}", key);
+
+        PresignedUrl url = presignService.presignDownload(key, expiry);
+        return ResponseEntity.ok(ApiResponse.success("签发下载URL成功", url));
+    }
+
+    /**
+     * 签发上传URL
+     */
+    @PostMapping("/upload")
+    @Operation(summary = "签发上传URL", description = "生成限时有效的PUT URL，上传时需携带返回的请求头")
+    public ResponseEntity<ApiResponse<PresignedUrl>> presignUpload(
+            @Parameter(description = "原始文件名", required = true)
+            @RequestParam("fileName") String fileName,
+            @Parameter(description = "目标文件夹（可选）")
+            @RequestParam(value = "folder", required = false) String folder,
+            @Parameter(description = "文件类型（可选）")
+            @RequestParam(value = "contentType", required = false) String contentType,
+            @Parameter(description = "有效期，如15m、PT1H（可选）")
+            @RequestParam(value = "expiry", required = false) Duration expiry) {
+
+        log.info("签发上传URL请求: {}", fileName);
+
+        PresignedUrl url = presignService.presignUpload(fileName, folder, contentType, expiry);
+        return ResponseEntity.ok(ApiResponse.success("签发上传URL成功", url));
+    }
+
+    /**
+     * 创建分片上传
+     */
+    @PostMapping("/multipart")
+    @Operation(summary = "创建分片上传", description = "创建分片上传并签发每个分片的PUT URL")
+    public ResponseEntity<ApiResponse<PresignedMultipartUpload>> presignMultipartUpload(
+            @Parameter(description = "原始文件名", required = true)
+            @RequestParam("fileName") String fileName,
+            @Parameter(description = "目标文件夹（可选）")
+            @RequestParam(value = "folder", required = false) String folder,
+            @Parameter(description = "文件类型（可选）")
+            @RequestParam(value = "contentType", required = false) String contentType,
+            @Parameter(description = "分片数（1-10000）", required = true)
+            @RequestParam("partCount") int partCount,
+            @Parameter(description = "有效期，如15m、PT1H（可选）")
+            @RequestParam(value = "expiry", required = false) Duration expiry) {
+
+        log.info("创建分片上传请求: {}, 分片数: {}", fileName, partCount);
+
+        PresignedMultipartUpload upload = presignService.presignMultipartUpload(
+                fileName, folder, contentType, partCount, expiry);
+        return ResponseEntity.ok(ApiResponse.success("创建分片上传成功", upload));
+    }
+
+    /**
+     * 完成分片上传
+     */
+    @PostMapping("/multipart/complete")
+    @Operation(summary = "完成分片上传", description = "提交各分片的ETag并合并为最终文件")
+    public ResponseEntity<ApiResponse<FileMetadata>> completeMultipartUpload(
+            @Valid @RequestBody CompleteMultipartRequest request) {
+
+        log.info("完成分片上传请求: {}, 分片数: {}", request.getKey(), request.getParts().size());
+
+        FileMetadata metadata = presignService.completeMultipartUpload(request);
+        return ResponseEntity.ok(ApiResponse.success("文件上传成功", metadata));
+    }
+
+    /**
+     * 中止分片上传
+     */
+    @DeleteMapping("/multipart")
+    @Operation(summary = "中止分片上传", description = "中止分片上传并释放已上传的分片")
+    public ResponseEntity<ApiResponse<Void>> abortMultipartUpload(
+            @Parameter(description = "文件键", required = true)
+            @RequestParam("key") String key,
+            @Parameter(description = "分片上传ID", required = true)
+            @RequestParam("uploadId") String uploadId) {
+
+        log.info("中止分片上传请求: {}, uploadId: {}", key, uploadId);
+
+        presignService.abortMultipartUpload(key, uploadId);
+        return ResponseEntity.ok(ApiResponse.<Void>success("分片上传已中止", null));
+    }
+}
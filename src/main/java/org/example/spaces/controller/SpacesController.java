@@ -1,25 +1,76 @@
 package org.example.spaces.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.enums.ParameterIn;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.fileupload2.core.DiskFileItem;
+import org.apache.commons.fileupload2.core.DiskFileItemFactory;
+import org.apache.commons.fileupload2.core.FileItemInput;
+import org.apache.commons.fileupload2.core.FileItemInputIterator;
+import org.apache.commons.fileupload2.jakarta.servlet6.JakartaServletFileUpload;
+import org.example.spaces.cache.DiskCache;
+import org.example.spaces.compression.Compressor;
+import org.example.spaces.config.SpacesConfig;
+import org.example.spaces.exception.FileChangedException;
+import org.example.spaces.exception.FileStorageException;
+import org.example.spaces.metrics.ConnectionPoolMetricPublisher;
 import org.example.spaces.model.ApiResponse;
+import org.example.spaces.model.BatchDeleteRequest;
+import org.example.spaces.model.BatchDeleteResult;
+import org.example.spaces.model.BulkUploadResult;
+import org.example.spaces.model.CacheStatistics;
+import org.example.spaces.model.CachedFile;
+import org.example.spaces.model.ConditionalContent;
+import org.example.spaces.model.ConnectionPoolStatistics;
+import org.example.spaces.model.FileContent;
 import org.example.spaces.model.FileMetadata;
+import org.example.spaces.model.FilePage;
+import org.example.spaces.model.FileQuery;
+import org.example.spaces.model.UploadChunk;
+import org.example.spaces.model.UploadSession;
 import org.example.spaces.service.SpacesService;
+import org.example.spaces.service.impl.ArchiveWriter;
+import org.example.spaces.service.impl.BulkUploader;
+import org.example.spaces.service.impl.UploadSessionManager;
+import org.example.spaces.service.impl.UploadSpool;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.net.URLEncoder;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Slf4j
 @RestController
@@ -28,13 +79,38 @@ import java.util.List;
 @Tag(name= "Spaces API", description = "DigitalOcean Spaces 文件管理API")
 
 public class SpacesController {
+    //GET /list 最多返回的文件数，与单页上限一致
+    private static final int LIST_LIMIT = 1000;
+
+    //Tomcat sendfile请求属性：支持时在请求处理结束后由连接器把文件直接发送到socket
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    //边解压返回时ETag的后缀
+    private static final String IDENTITY_ETAG_SUFFIX = "-identity";
+
     private final SpacesService spacesService;
+    private final ObjectMapper objectMapper;
+    private final ConnectionPoolMetricPublisher connectionPoolMetricPublisher;
+    private final DiskCache diskCache;
+    private final Compressor compressor;
+    private final SpacesConfig spacesConfig;
+    private final BulkUploader bulkUploader;
+    private final ArchiveWriter archiveWriter;
+    private final UploadSpool uploadSpool;
+    private final UploadSessionManager uploadSessionManager;
+
+    // 闭区间 [start, end]，已按文件大小换算
+    private record ByteRange(long start, long end) {
+    }
 
     /**
      * 上传文件
      */
     @PostMapping("/upload")
-    @Operation(summary = "上传文件", description = "上传文件到DigitalOcean Spaces")
+    @Operation(summary = "上传文件", description = "上传文件到DigitalOcean Spaces，开启写回模式时写入本地暂存后返回202")
     public ResponseEntity<ApiResponse<FileMetadata>> uploadFile(
             @Parameter(description = "要上传的文件", required = true)
             @RequestParam("file") MultipartFile file,
@@ -44,45 +120,565 @@ public class SpacesController {
         log.info("接收到文件上传请求: {}, 大小: {} bytes",
                 file.getOriginalFilename(), file.getSize());
 
+        // 写回模式：写入本地暂存即返回最终文件键，后台上传；暂存已满时同步上传
+        Optional<FileMetadata> spooled = uploadSpool.accept(file, folder);
+        if (spooled.isPresent()) {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(
+                    ApiResponse.success("文件已接收，正在后台上传", spooled.get())
+            );
+        }
+
         FileMetadata metadata = spacesService.uploadFile(file, folder);
         return ResponseEntity.ok(
                 ApiResponse.success("文件上传成功", metadata)
         );
     }
 
+    /**
+     * 流式上传文件
+     * 请求体即文件内容（如application/octet-stream），不经过MultipartFile缓冲
+     */
+    @PostMapping("/upload/stream")
+    @Operation(summary = "流式上传文件", description = "直接读取请求体并分片并发上传到DigitalOcean Spaces，适用于大文件")
+    public ResponseEntity<ApiResponse<FileMetadata>> uploadFileStream(
+            @Parameter(description = "文件名", required = true)
+            @RequestParam("fileName") String fileName,
+            @Parameter(description = "目标文件夹（可选）")
+            @RequestParam(value = "folder", required = false) String folder,
+            HttpServletRequest request) throws IOException {
+
+        log.info("接收到流式上传请求: {}, 声明大小: {} bytes", fileName, request.getContentLengthLong());
+
+        FileMetadata metadata = spacesService.uploadFile(
+                request.getInputStream(), fileName, request.getContentType(), folder);
+        return ResponseEntity.ok(
+                ApiResponse.success("文件上传成功", metadata)
+        );
+    }
+
+    /**
+     * 批量上传文件
+     * 不使用@RequestParam/MultipartFile：读取参数会让容器先解析并缓冲整个请求体
+     */
+    @PostMapping(value = "/upload/bulk", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @Operation(summary = "批量上传文件", description = "一个multipart请求上传多个文件，逐个流式读取并发上传，返回每个文件的结果")
+    @Parameter(name = "folder", in = ParameterIn.QUERY, description = "目标文件夹（可选）")
+    public ResponseEntity<ApiResponse<BulkUploadResult>> uploadFiles(HttpServletRequest request) throws IOException {
+        String folder = ServletUriComponentsBuilder.fromRequest(request).build()
+                .getQueryParams().getFirst("folder");
+
+        log.info("接收到批量上传请求，声明大小: {} bytes", request.getContentLengthLong());
+
+        JakartaServletFileUpload<DiskFileItem, DiskFileItemFactory> upload = new JakartaServletFileUpload<>();
+        FileItemInputIterator items = upload.getItemIterator(request);
+
+        // 跳过普通表单字段，只上传文件
+        BulkUploadResult result = bulkUploader.upload(() -> {
+            while (items.hasNext()) {
+                FileItemInput item = items.next();
+                if (!item.isFormField()) {
+                    return new BulkUploader.Part(item.getName(), item.getContentType(), item.getInputStream());
+                }
+            }
+            return null;
+        }, folder);
+
+        String message = String.format("上传成功 %d 个，失败 %d 个",
+                result.getUploadedCount(), result.getFailedCount());
+        if (result.getFailedCount() > 0) {
+            return ResponseEntity.ok(ApiResponse.<BulkUploadResult>builder()
+                    .success(false)
+                    .message(message)
+                    .data(result)
+                    .timestamp(LocalDateTime.now())
+                    .build());
+        }
+        return ResponseEntity.ok(ApiResponse.success(message, result));
+    }
+
+    /**
+     * 创建可续传上传会话
+     */
+    @PostMapping("/upload/sessions")
+    @Operation(summary = "创建上传会话", description = "创建可续传上传会话，之后按序号并发上传分块，失败时只重传该分块")
+    public ResponseEntity<ApiResponse<UploadSession>> createUploadSession(
+            @Parameter(description = "文件名", required = true)
+            @RequestParam("fileName") String fileName,
+            @Parameter(description = "文件类型（可选）")
+            @RequestParam(value = "contentType", required = false) String contentType,
+            @Parameter(description = "目标文件夹（可选）")
+            @RequestParam(value = "folder", required = false) String folder) {
+
+        log.info("创建上传会话: {}", fileName);
+
+        UploadSession session = uploadSessionManager.create(fileName, contentType, folder);
+        return ResponseEntity.ok(
+                ApiResponse.success("上传会话创建成功", session)
+        );
+    }
+
+    /**
+     * 上传分块
+     * 请求体即分块内容，需带Content-Length，直接转发到Spaces不落盘
+     */
+    @PutMapping("/upload/sessions/{sessionId}/chunks/{chunkNumber}")
+    @Operation(summary = "上传分块", description = "上传会话的一个分块，序号从1开始，可乱序并发；重复上传同一序号时覆盖")
+    public ResponseEntity<ApiResponse<UploadChunk>> uploadChunk(
+            @Parameter(description = "会话ID", required = true)
+            @PathVariable String sessionId,
+            @Parameter(description = "分块序号，1到10000", required = true)
+            @PathVariable int chunkNumber,
+            HttpServletRequest request) throws IOException {
+
+        UploadChunk chunk = uploadSessionManager.uploadChunk(
+                sessionId, chunkNumber, request.getContentLengthLong(), request.getInputStream());
+        return ResponseEntity.ok(
+                ApiResponse.success("分块上传成功", chunk)
+        );
+    }
+
+    /**
+     * 查询上传会话
+     */
+    @GetMapping("/upload/sessions/{sessionId}")
+    @Operation(summary = "查询上传会话", description = "返回已收到的分块，断线后只需补传缺少的分块")
+    public ResponseEntity<ApiResponse<UploadSession>> getUploadSession(
+            @Parameter(description = "会话ID", required = true)
+            @PathVariable String sessionId) {
+
+        UploadSession session = uploadSessionManager.get(sessionId);
+        return ResponseEntity.ok(
+                ApiResponse.success("查询上传会话成功", session)
+        );
+    }
+
+    /**
+     * 完成上传会话
+     */
+    @PostMapping("/upload/sessions/{sessionId}/complete")
+    @Operation(summary = "完成上传会话", description = "按序号合并已收到的分块生成文件")
+    public ResponseEntity<ApiResponse<FileMetadata>> completeUploadSession(
+            @Parameter(description = "会话ID", required = true)
+            @PathVariable String sessionId,
+            @Parameter(description = "预期分块数（可选），指定时检查1到该序号的分块是否都已收到")
+            @RequestParam(value = "chunkCount", required = false) Integer chunkCount) {
+
+        log.info("完成上传会话: {}", sessionId);
+
+        FileMetadata metadata = uploadSessionManager.complete(sessionId, chunkCount);
+        return ResponseEntity.ok(
+                ApiResponse.success("文件上传成功", metadata)
+        );
+    }
+
+    /**
+     * 取消上传会话
+     */
+    @DeleteMapping("/upload/sessions/{sessionId}")
+    @Operation(summary = "取消上传会话", description = "丢弃已收到的分块")
+    public ResponseEntity<ApiResponse<Void>> abortUploadSession(
+            @Parameter(description = "会话ID", required = true)
+            @PathVariable String sessionId) {
+
+        log.info("取消上传会话: {}", sessionId);
+
+        uploadSessionManager.abort(sessionId);
+        return ResponseEntity.ok(
+                ApiResponse.success("上传会话已取消", null)
+        );
+    }
+
     /**
      * 下载文件
+     * 支持单区间和多区间Range请求（206 Partial Content）
      */
     @GetMapping("/download/{key}")
-    @Operation(summary = "下载文件", description = "从DigitalOcean Spaces下载文件")
+    @Operation(summary = "下载文件", description = "从DigitalOcean Spaces下载文件，支持Range和条件请求")
     public void downloadFile(
             @Parameter(description = "文件键", required = true)
             @PathVariable String key,
+            @Parameter(description = "字节区间（可选），如 bytes=0-1023")
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String rangeHeader,
+            @Parameter(description = "客户端接受的编码（可选），如 gzip, zstd")
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            HttpServletRequest request,
             HttpServletResponse response) throws IOException {
 
-        log.info("接收到文件下载请求: {}", key);
+        log.info("接收到文件下载请求: {}, Range: {}", key, rangeHeader);
 
-        // 获取文件元数据
-        FileMetadata metadata = spacesService.getFileMetadata(key);
+        ServletWebRequest webRequest = new ServletWebRequest(request, response);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControlOf(key));
 
-        // 设置响应头
-        response.setContentType(metadata.getContentType() != null
-                ? metadata.getContentType()
-                : MediaType.APPLICATION_OCTET_STREAM_VALUE);
-        response.setContentLengthLong(metadata.getSize());
+        // 仍在写回暂存中的文件从本地返回完整内容，忽略Range
+        if (uploadSpool.isEnabled()) {
+            Optional<CachedFile> spooled = uploadSpool.open(key);
+            if (spooled.isPresent()) {
+                try (CachedFile file = spooled.get()) {
+                    FileMetadata metadata = file.getMetadata();
+                    if (checkNotModified(webRequest, metadata, acceptEncoding)) {
+                        return;
+                    }
+                    setDownloadHeaders(key, response);
+                    response.setHeader(HttpHeaders.ACCEPT_RANGES, "none");
+                    setEncodingHeaders(metadata, acceptEncoding, response);
+                    writeFile(file, request, response);
+                }
+                return;
+            }
+        }
+
+        // 区间下载需要先知道文件大小，元数据通常已在缓存中；压缩存储的文件不支持区间，返回完整内容
+        // If-Range与当前版本不符时忽略Range返回完整内容；缓存的元数据已过期（Spaces返回412）时重新获取一次
+        if (StringUtils.hasText(rangeHeader)) {
+            for (int attempt = 0; attempt < 2; attempt++) {
+                FileMetadata metadata = spacesService.getFileMetadata(key);
+                if (checkNotModified(webRequest, metadata, acceptEncoding)) {
+                    return;
+                }
+                if (metadata.getContentEncoding() != null || !isIfRangeFresh(request, metadata)) {
+                    break;
+                }
+                try {
+                    writeRanges(key, rangeHeader, metadata, response);
+                    return;
+                } catch (FileChangedException e) {
+                    log.info("区间下载期间文件已被覆盖，重新获取元数据: {}", key);
+                }
+            }
+        }
+
+        // 完整下载：磁盘缓存命中时直接从文件通道写出
+        if (diskCache.isEnabled()) {
+            // 先用（通常已缓存的）元数据判断条件请求，未修改时不把文件拉进磁盘缓存
+            FileMetadata current = spacesService.getFileMetadata(key);
+            if (checkNotModified(webRequest, current, acceptEncoding)) {
+                return;
+            }
+            Optional<CachedFile> cached = diskCache.open(key, current);
+            if (cached.isPresent()) {
+                try (CachedFile file = cached.get()) {
+                    // 校验器以实际写出的内容为准，拉取期间文件被覆盖时与上面的元数据不同
+                    FileMetadata metadata = file.getMetadata();
+                    setValidatorHeaders(metadata, acceptEncoding, response);
+                    setDownloadHeaders(key, response);
+                    if (setEncodingHeaders(metadata, acceptEncoding, response)) {
+                        writeFile(file, request, response);
+                    } else {
+                        try (InputStream decoded = compressor.decode(
+                                Channels.newInputStream(file.getChannel()), metadata.getContentEncoding())) {
+                            decoded.transferTo(response.getOutputStream());
+                        }
+                        response.flushBuffer();
+                    }
+                }
+                return;
+            }
+        }
+
+        // 完整下载：一次GET同时拿到元数据和内容；带条件头且未修改时不打开内容流
+        ConditionalContent conditional = spacesService.openFileIfModified(
+                key, request.getHeader(HttpHeaders.IF_NONE_MATCH), ifModifiedSinceOf(request));
+        if (conditional.isNotModified()) {
+            FileMetadata metadata = conditional.getMetadata();
+            if (checkNotModified(webRequest, metadata, acceptEncoding)) {
+                return;
+            }
+            // Spaces返回的304可能缺少校验器，此时直接设置状态码
+            if (Objects.equals(eTagOf(metadata, acceptEncoding), metadata.getETag())) {
+                response.setStatus(HttpStatus.NOT_MODIFIED.value());
+                return;
+            }
+            // 按存储的ETag未修改，但客户端持有的是压缩表示，本次要返回解压表示
+            conditional = ConditionalContent.modified(spacesService.openFile(key));
+        }
+
+        try (FileContent content = conditional.getContent()) {
+            FileMetadata metadata = content.getMetadata();
+            // 解压表示的ETag带后缀，Spaces无法比较，在这里按实际返回的表示再判断一次
+            if (checkNotModified(webRequest, metadata, acceptEncoding)) {
+                return;
+            }
+            setDownloadHeaders(key, response);
+            setValidatorHeaders(metadata, acceptEncoding, response);
+            if (setEncodingHeaders(metadata, acceptEncoding, response)) {
+                content.getInputStream().transferTo(response.getOutputStream());
+            } else {
+                try (InputStream decoded = compressor.decode(content.getInputStream(), metadata.getContentEncoding())) {
+                    decoded.transferTo(response.getOutputStream());
+                }
+            }
+        }
+        response.flushBuffer();
+    }
+
+    /**
+     * 获取下载响应头
+     */
+    @RequestMapping(value = "/download/{key}", method = RequestMethod.HEAD)
+    @Operation(summary = "获取下载响应头", description = "只返回下载的响应头，支持条件请求，不读取文件内容")
+    public void headFile(
+            @Parameter(description = "文件键", required = true)
+            @PathVariable String key,
+            @Parameter(description = "客户端接受的编码（可选），如 gzip, zstd")
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            HttpServletRequest request,
+            HttpServletResponse response) {
+
+        FileMetadata metadata = uploadSpool.find(key).orElseGet(() -> spacesService.getFileMetadata(key));
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControlOf(key));
+        if (checkNotModified(new ServletWebRequest(request, response), metadata, acceptEncoding)) {
+            return;
+        }
+        setDownloadHeaders(key, response);
+        setEncodingHeaders(metadata, acceptEncoding, response);
+    }
+
+    /*
+    * 比较条件请求头与当前校验器，未修改时设置304；GET/HEAD同时写入ETag和Last-Modified
+    * */
+    private boolean checkNotModified(ServletWebRequest webRequest, FileMetadata metadata, String acceptEncoding) {
+        long lastModified = metadata.getLastModified() != null ? metadata.getLastModified().toEpochMilli() : -1;
+        return webRequest.checkNotModified(eTagOf(metadata, acceptEncoding), lastModified);
+    }
+
+    private void setValidatorHeaders(FileMetadata metadata, String acceptEncoding, HttpServletResponse response) {
+        String eTag = eTagOf(metadata, acceptEncoding);
+        if (eTag != null) {
+            response.setHeader(HttpHeaders.ETAG, eTag);
+        }
+        if (metadata.getLastModified() != null) {
+            response.setDateHeader(HttpHeaders.LAST_MODIFIED, metadata.getLastModified().toEpochMilli());
+        }
+    }
+
+    /*
+    * 本次响应所用表示的ETag
+    * 存储的ETag对应压缩后的字节；客户端不接受该编码、边解压返回时是另一种表示，加 -identity 后缀，不与压缩表示共用同一校验器
+    * */
+    private String eTagOf(FileMetadata metadata, String acceptEncoding) {
+        String eTag = metadata.getETag();
+        String contentEncoding = metadata.getContentEncoding();
+        if (eTag == null || contentEncoding == null || compressor.accepts(acceptEncoding, contentEncoding)) {
+            return eTag;
+        }
+        int end = eTag.lastIndexOf('"');
+        return end > 0
+                ? eTag.substring(0, end) + IDENTITY_ETAG_SUFFIX + "\""
+                : eTag + IDENTITY_ETAG_SUFFIX;
+    }
+
+    // 非法日期按未携带处理
+    private Instant ifModifiedSinceOf(HttpServletRequest request) {
+        try {
+            long ifModifiedSince = request.getDateHeader(HttpHeaders.IF_MODIFIED_SINCE);
+            return ifModifiedSince >= 0 ? Instant.ofEpochMilli(ifModifiedSince) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    // 最长前缀优先，未匹配时使用默认值
+    private String cacheControlOf(String key) {
+        SpacesConfig.HttpCache config = spacesConfig.getHttpCache();
+        String cacheControl = config.getDefaultCacheControl();
+        int matched = -1;
+        for (SpacesConfig.CacheRule rule : config.getRules()) {
+            if (key.startsWith(rule.getPrefix()) && rule.getPrefix().length() > matched) {
+                cacheControl = rule.getCacheControl();
+                matched = rule.getPrefix().length();
+            }
+        }
+        return cacheControl;
+    }
+
+    /*
+    * 设置内容类型、长度和编码相关响应头
+    * @return true表示存储的字节可原样写出；false表示需要边解压边写出（长度未知）
+    * */
+    private boolean setEncodingHeaders(FileMetadata metadata, String acceptEncoding, HttpServletResponse response) {
+        response.setContentType(contentTypeOf(metadata));
+        String contentEncoding = metadata.getContentEncoding();
+        if (contentEncoding == null) {
+            response.setContentLengthLong(metadata.getSize());
+            return true;
+        }
+
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "none");
+        if (compressor.accepts(acceptEncoding, contentEncoding)) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, contentEncoding);
+            response.setContentLengthLong(metadata.getSize());
+            return true;
+        }
+        return false;
+    }
+
+    /*
+    * 解析Range，丢弃无法满足的区间并合并重叠/相邻的区间；非法或全部无法满足时返回416
+    * 第一个区间先按ETag打开：文件已被覆盖时抛出FileChangedException，此时尚未写出任何响应头
+    * */
+    private void writeRanges(String key, String rangeHeader, FileMetadata metadata,
+                             HttpServletResponse response) throws IOException {
+        long length = metadata.getSize();
+        List<ByteRange> ranges = satisfiableRanges(rangeHeader, length);
+        if (ranges.isEmpty()) {
+            setDownloadHeaders(key, response);
+            response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+            return;
+        }
+
+        String contentType = contentTypeOf(metadata);
+        ByteRange first = ranges.get(0);
+        try (InputStream firstPart = spacesService.downloadFile(key, first.start(), first.end(), metadata.getETag())) {
+            setDownloadHeaders(key, response);
+            setValidatorHeaders(metadata, null, response);
+            if (ranges.size() == 1) {
+                writeSingleRange(first, firstPart, length, contentType, response);
+            } else {
+                writeMultipleRanges(key, metadata.getETag(), ranges, firstPart, length, contentType, response);
+            }
+        }
+        response.flushBuffer();
+    }
+
+    /*
+    * If-Range（RFC 9110 13.1.5）：ETag按强比较，日期须与Last-Modified完全相同；未携带时视为匹配
+    * */
+    private boolean isIfRangeFresh(HttpServletRequest request, FileMetadata metadata) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (!StringUtils.hasText(ifRange)) {
+            return true;
+        }
+        ifRange = ifRange.trim();
+        if (ifRange.startsWith("W/")) {
+            return false;
+        }
+        if (ifRange.startsWith("\"")) {
+            return ifRange.equals(metadata.getETag());
+        }
+        try {
+            long date = request.getDateHeader(HttpHeaders.IF_RANGE);
+            // HTTP日期精确到秒
+            return metadata.getLastModified() != null
+                    && date == metadata.getLastModified().getEpochSecond() * 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /*
+    * 写出本地文件的全部内容，调用前已设置Content-Length
+    * 有路径且连接器声明支持sendfile时交给容器零拷贝发送（Tomcat明文HTTP的NIO/NIO2连接器）；
+    * sendfile在请求处理结束后才按路径打开文件，磁盘缓存淘汰的文件延迟删除，保证此时路径仍然有效
+    * 否则从已打开的通道transferTo到响应流
+    * */
+    private void writeFile(CachedFile file, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        long size = file.getChannel().size();
+        if (file.getPath() != null && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            request.setAttribute(SENDFILE_FILENAME, file.getPath().toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, 0L);
+            request.setAttribute(SENDFILE_END, size);
+            return;
+        }
+
+        WritableByteChannel target = Channels.newChannel(response.getOutputStream());
+        long position = 0;
+        while (position < size) {
+            position += file.getChannel().transferTo(position, size - position, target);
+        }
+        response.flushBuffer();
+    }
+
+    // 设置Accept-Ranges和下载文件名
+    private void setDownloadHeaders(String key, HttpServletResponse response) {
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
 
-        // 设置下载文件名
         String fileName = key.substring(key.lastIndexOf("/") + 1);
         String encodedFileName = URLEncoder.encode(fileName, StandardCharsets.UTF_8)
                 .replaceAll("\\+", "%20");
         response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
                 "attachment; filename*=UTF-8''" + encodedFileName);
+    }
+
+    private String contentTypeOf(FileMetadata metadata) {
+        return metadata.getContentType() != null
+                ? metadata.getContentType()
+                : MediaType.APPLICATION_OCTET_STREAM_VALUE;
+    }
+
+    /*
+    * 按RFC 9110 14.2只保留可满足的区间，按起点排序后合并重叠和相邻的区间
+    * 合并后各区间互不重叠，总长度不超过文件大小，重复的区间（如 bytes=0-,0-,...）不会放大对Spaces的读取
+    * */
+    private List<ByteRange> satisfiableRanges(String rangeHeader, long length) {
+        List<HttpRange> ranges;
+        try {
+            ranges = HttpRange.parseRanges(rangeHeader);
+        } catch (IllegalArgumentException e) {
+            return List.of();
+        }
+
+        List<ByteRange> satisfiable = new ArrayList<>();
+        for (HttpRange range : ranges) {
+            long start = range.getRangeStart(length);
+            long end = range.getRangeEnd(length);
+            if (start < length && start <= end) {
+                satisfiable.add(new ByteRange(start, end));
+            }
+        }
+        satisfiable.sort(Comparator.comparingLong(ByteRange::start));
+
+        List<ByteRange> merged = new ArrayList<>();
+        for (ByteRange range : satisfiable) {
+            ByteRange last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (last != null && range.start() <= last.end() + 1) {
+                merged.set(merged.size() - 1, new ByteRange(last.start(), Math.max(last.end(), range.end())));
+            } else {
+                merged.add(range);
+            }
+        }
+        return merged;
+    }
+
+    // 单区间：206 + Content-Range
+    private void writeSingleRange(ByteRange range, InputStream inputStream, long length, String contentType,
+                                  HttpServletResponse response) throws IOException {
+        response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+        response.setContentType(contentType);
+        response.setContentLengthLong(range.end() - range.start() + 1);
+        response.setHeader(HttpHeaders.CONTENT_RANGE,
+                "bytes " + range.start() + "-" + range.end() + "/" + length);
+        inputStream.transferTo(response.getOutputStream());
+    }
+
+    /*
+    * 多区间：206 + multipart/byteranges，每个区间单独向Spaces发起Range GET
+    * 后续区间同样按ETag固定版本，写出途中文件被覆盖时中断响应，不混入新版本的内容
+    * */
+    private void writeMultipleRanges(String key, String eTag, List<ByteRange> ranges, InputStream firstPart,
+                                     long length, String contentType, HttpServletResponse response) throws IOException {
+        String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+        response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
 
-        // 写入文件内容
-        try (InputStream inputStream = spacesService.downloadFile(key)) {
-            inputStream.transferTo(response.getOutputStream());
-            response.flushBuffer();
+        OutputStream out = response.getOutputStream();
+        for (int i = 0; i < ranges.size(); i++) {
+            ByteRange range = ranges.get(i);
+            String partHeader = "\r\n--" + boundary + "\r\n"
+                    + HttpHeaders.CONTENT_TYPE + ": " + contentType + "\r\n"
+                    + HttpHeaders.CONTENT_RANGE + ": bytes " + range.start() + "-" + range.end() + "/" + length
+                    + "\r\n\r\n";
+            out.write(partHeader.getBytes(StandardCharsets.US_ASCII));
+            if (i == 0) {
+                firstPart.transferTo(out);
+                continue;
+            }
+            try (InputStream inputStream = spacesService.downloadFile(key, range.start(), range.end(), eTag)) {
+                inputStream.transferTo(out);
+            }
         }
+        out.write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII));
     }
 
     /**
@@ -92,11 +688,16 @@ public class SpacesController {
     @Operation(summary = "获取文件元数据", description = "获取指定文件的元数据信息")
     public ResponseEntity<ApiResponse<FileMetadata>> getFileMetadata(
             @Parameter(description = "文件键", required = true)
-            @PathVariable String key) {
+            @PathVariable String key,
+            WebRequest webRequest) {
 
         log.info("获取文件元数据: {}", key);
 
-        FileMetadata metadata = spacesService.getFileMetadata(key);
+        FileMetadata metadata = uploadSpool.find(key).orElseGet(() -> spacesService.getFileMetadata(key));
+        long lastModified = metadata.getLastModified() != null ? metadata.getLastModified().toEpochMilli() : -1;
+        if (webRequest.checkNotModified(metadata.getETag(), lastModified)) {
+            return null;
+        }
         return ResponseEntity.ok(
                 ApiResponse.success("获取文件元数据成功", metadata)
         );
@@ -106,22 +707,228 @@ public class SpacesController {
      * 列出文件
      */
     @GetMapping("/list")
-    @Operation(summary = "列出文件", description = "列出存储桶中的所有文件")
+    @Operation(summary = "列出文件", description = "列出存储桶中的文件，最多返回1000个，更多文件请使用 /list/page 或 /list/stream")
     public ResponseEntity<ApiResponse<List<FileMetadata>>> listFiles(
             @Parameter(description = "前缀过滤（可选）")
             @RequestParam(value = "prefix", required = false) String prefix) {
 
         log.info("列出文件，前缀: {}", prefix);
 
-        List<FileMetadata> files = spacesService.listFiles(prefix);
+        FilePage page = spacesService.listFiles(prefix, null, LIST_LIMIT, null);
+        List<FileMetadata> files = page.getFiles();
+        String message = page.isTruncated()
+                ? String.format("只返回前 %d 个文件，更多文件请使用 /list/page 或 /list/stream", files.size())
+                : String.format("找到 %d 个文件", files.size());
+        return ResponseEntity.ok(ApiResponse.success(message, files));
+    }
+
+    /**
+     * 分页列出文件
+     */
+    @GetMapping("/list/page")
+    @Operation(summary = "分页列出文件", description = "按游标分页列出文件，可按分隔符聚合文件夹")
+    public ResponseEntity<ApiResponse<FilePage>> listFilesPage(
+            @Parameter(description = "前缀过滤（可选）")
+            @RequestParam(value = "prefix", required = false) String prefix,
+            @Parameter(description = "分隔符（可选），如 /")
+            @RequestParam(value = "delimiter", required = false) String delimiter,
+            @Parameter(description = "每页数量（1-1000）")
+            @RequestParam(value = "pageSize", defaultValue = "100") int pageSize,
+            @Parameter(description = "上一页返回的游标（可选）")
+            @RequestParam(value = "cursor", required = false) String cursor) {
+
+        log.info("分页列出文件，前缀: {}, 游标: {}", prefix, cursor);
+
+        FilePage page = spacesService.listFiles(prefix, delimiter, pageSize, cursor);
         return ResponseEntity.ok(
                 ApiResponse.success(
-                        String.format("找到 %d 个文件", files.size()),
-                        files
+                        String.format("本页找到 %d 个文件", page.getFiles().size()),
+                        page
                 )
         );
     }
 
+    /**
+     * 查询文件
+     * 查询本地文件键索引，可按后缀、大小、修改时间过滤，不请求Spaces
+     */
+    @GetMapping("/search")
+    @Operation(summary = "查询文件", description = "按前缀、后缀、大小和修改时间查询文件键索引（需开启key-index）")
+    public ResponseEntity<ApiResponse<FilePage>> searchFiles(
+            @Parameter(description = "前缀过滤（可选）")
+            @RequestParam(value = "prefix", required = false) String prefix,
+            @Parameter(description = "后缀过滤（可选，不区分大小写），如 .jpg")
+            @RequestParam(value = "suffix", required = false) String suffix,
+            @Parameter(description = "最小文件大小，字节（可选）")
+            @RequestParam(value = "minSize", required = false) Long minSize,
+            @Parameter(description = "最大文件大小，字节（可选）")
+            @RequestParam(value = "maxSize", required = false) Long maxSize,
+            @Parameter(description = "修改时间不早于（可选），ISO-8601，如 2024-01-01T00:00:00Z")
+            @RequestParam(value = "modifiedAfter", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant modifiedAfter,
+            @Parameter(description = "修改时间早于（可选），ISO-8601")
+            @RequestParam(value = "modifiedBefore", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant modifiedBefore,
+            @Parameter(description = "每页数量（1-1000）")
+            @RequestParam(value = "pageSize", defaultValue = "100") int pageSize,
+            @Parameter(description = "上一页返回的游标（可选）")
+            @RequestParam(value = "cursor", required = false) String cursor) {
+
+        FilePage page = spacesService.searchFiles(FileQuery.builder()
+                .prefix(prefix)
+                .suffix(suffix)
+                .minSize(minSize)
+                .maxSize(maxSize)
+                .modifiedAfter(modifiedAfter)
+                .modifiedBefore(modifiedBefore)
+                .limit(pageSize)
+                .cursor(cursor)
+                .build());
+        return ResponseEntity.ok(
+                ApiResponse.success(
+                        String.format("本页找到 %d 个文件", page.getFiles().size()),
+                        page
+                )
+        );
+    }
+
+    /**
+     * 流式列出所有文件
+     * 边分页拉取边写出，内存占用与文件总数无关
+     */
+    @GetMapping("/list/stream")
+    @Operation(summary = "流式列出文件", description = "以NDJSON或分块JSON数组流式列出所有文件")
+    public ResponseEntity<StreamingResponseBody> listFilesStream(
+            @Parameter(description = "前缀过滤（可选）")
+            @RequestParam(value = "prefix", required = false) String prefix,
+            @Parameter(description = "输出格式：ndjson 或 json")
+            @RequestParam(value = "format", defaultValue = "ndjson") String format) {
+
+        log.info("流式列出文件，前缀: {}, 格式: {}", prefix, format);
+
+        boolean jsonArray = "json".equalsIgnoreCase(format);
+        StreamingResponseBody body = outputStream -> {
+            try (Stream<FileMetadata> files = spacesService.streamFiles(prefix)) {
+                boolean first = true;
+                if (jsonArray) {
+                    outputStream.write('[');
+                }
+                for (FileMetadata file : (Iterable<FileMetadata>) files::iterator) {
+                    if (jsonArray && !first) {
+                        outputStream.write(',');
+                    }
+                    outputStream.write(objectMapper.writeValueAsBytes(file));
+                    if (!jsonArray) {
+                        outputStream.write('\n');
+                    }
+                    first = false;
+                }
+                if (jsonArray) {
+                    outputStream.write(']');
+                }
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(jsonArray ? MediaType.APPLICATION_JSON : MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    /**
+     * 打包下载
+     * 边列出边下载边写出ZIP，内存占用与打包大小无关，不落本地磁盘
+     */
+    @GetMapping("/archive")
+    @Operation(summary = "打包下载", description = "将前缀下的所有文件流式打包为ZIP下载，读取失败的文件列在ERRORS.txt中")
+    public ResponseEntity<StreamingResponseBody> downloadArchive(
+            @Parameter(description = "前缀", required = true)
+            @RequestParam("prefix") String prefix) {
+
+        if (!StringUtils.hasText(prefix)) {
+            throw new FileStorageException("打包下载的前缀不能为空");
+        }
+        log.info("打包下载，前缀: {}", prefix);
+
+        String name = StringUtils.trimTrailingCharacter(prefix, '/');
+        name = name.substring(name.lastIndexOf('/') + 1);
+        String encodedFileName = URLEncoder.encode(name.isEmpty() ? "archive" : name, StandardCharsets.UTF_8)
+                .replaceAll("\\+", "%20");
+
+        StreamingResponseBody body = outputStream -> archiveWriter.write(prefix, outputStream);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename*=UTF-8''" + encodedFileName + ".zip")
+                .body(body);
+    }
+
+    /**
+     * 复制文件
+     * 在Spaces内部复制，数据不经过本服务
+     */
+    @PostMapping("/copy")
+    @Operation(summary = "复制文件", description = "服务端复制文件，目标已存在时覆盖；大于5GB的文件分段并发复制")
+    public ResponseEntity<ApiResponse<FileMetadata>> copyFile(
+            @Parameter(description = "源文件键", required = true)
+            @RequestParam("source") String source,
+            @Parameter(description = "目标文件键", required = true)
+            @RequestParam("target") String target) {
+
+        FileMetadata metadata = spacesService.copyFile(source, target);
+        return ResponseEntity.ok(ApiResponse.success("文件复制成功", metadata));
+    }
+
+    /**
+     * 移动（重命名）文件
+     */
+    @PostMapping("/move")
+    @Operation(summary = "移动文件", description = "服务端复制后删除源文件，用于重命名或移动到其他文件夹")
+    public ResponseEntity<ApiResponse<FileMetadata>> moveFile(
+            @Parameter(description = "源文件键", required = true)
+            @RequestParam("source") String source,
+            @Parameter(description = "目标文件键", required = true)
+            @RequestParam("target") String target) {
+
+        FileMetadata metadata = spacesService.moveFile(source, target);
+        return ResponseEntity.ok(ApiResponse.success("文件移动成功", metadata));
+    }
+
+    /**
+     * 按前缀复制或移动
+     * 以NDJSON流式返回进度：每完成一个文件一行，最后一行done为true，为汇总结果
+     */
+    @PostMapping("/copy/prefix")
+    @Operation(summary = "按前缀复制/移动", description = "并发复制前缀下的所有文件，move=true时复制完成后删除源文件，以NDJSON返回进度")
+    public ResponseEntity<StreamingResponseBody> copyPrefix(
+            @Parameter(description = "源前缀", required = true)
+            @RequestParam("source") String source,
+            @Parameter(description = "目标前缀，可为空（复制到根目录）")
+            @RequestParam(value = "target", defaultValue = "") String target,
+            @Parameter(description = "是否删除源文件")
+            @RequestParam(value = "move", defaultValue = "false") boolean move) {
+
+        // 响应开始后无法再返回错误状态码，先校验参数
+        if (!StringUtils.hasText(source)) {
+            throw new FileStorageException("源前缀不能为空");
+        }
+        if (target.startsWith(source)) {
+            throw new FileStorageException("目标前缀不能位于源前缀之下");
+        }
+        log.info("按前缀{}: {} -> {}", move ? "移动" : "复制", source, target);
+
+        StreamingResponseBody body = outputStream -> spacesService.copyPrefix(source, target, move, progress -> {
+            try {
+                outputStream.write(objectMapper.writeValueAsBytes(progress));
+                outputStream.write('\n');
+                outputStream.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
     /**
      * 删除文件
      */
@@ -133,6 +940,8 @@ public class SpacesController {
 
         log.info("删除文件: {}", key);
 
+        // 仍在暂存中的文件先取消后台上传，正在上传的由后台在完成后删除
+        uploadSpool.cancel(key);
         boolean success = spacesService.deleteFile(key);
         if (success) {
             return ResponseEntity.ok(
@@ -145,6 +954,71 @@ public class SpacesController {
         }
     }
 
+    /**
+     * 批量删除文件
+     */
+    @PostMapping("/delete/batch")
+    @Operation(summary = "批量删除文件", description = "按每批1000个键并发删除，返回每个键的结果")
+    public ResponseEntity<ApiResponse<BatchDeleteResult>> deleteFiles(
+            @Valid @RequestBody BatchDeleteRequest request) {
+
+        log.info("批量删除文件，数量: {}", request.getKeys().size());
+
+        BatchDeleteResult result = spacesService.deleteFiles(request.getKeys());
+        return ResponseEntity.ok(batchDeleteResponse(result));
+    }
+
+    /**
+     * 按前缀删除文件
+     */
+    @PostMapping("/delete/prefix")
+    @Operation(summary = "按前缀删除文件", description = "删除前缀下的所有文件，边列出边删除")
+    public ResponseEntity<ApiResponse<BatchDeleteResult>> deleteByPrefix(
+            @Parameter(description = "前缀", required = true)
+            @RequestParam("prefix") String prefix) {
+
+        log.info("按前缀删除文件: {}", prefix);
+
+        BatchDeleteResult result = spacesService.deleteByPrefix(prefix);
+        return ResponseEntity.ok(batchDeleteResponse(result));
+    }
+
+    private ApiResponse<BatchDeleteResult> batchDeleteResponse(BatchDeleteResult result) {
+        String message = String.format("删除成功 %d 个，失败 %d 个",
+                result.getDeletedCount(), result.getFailedCount());
+        if (result.getFailedCount() > 0) {
+            return ApiResponse.<BatchDeleteResult>builder()
+                    .success(false)
+                    .message(message)
+                    .data(result)
+                    .timestamp(LocalDateTime.now())
+                    .build();
+        }
+        return ApiResponse.success(message, result);
+    }
+
+    /**
+     * 获取元数据缓存统计
+     */
+    @GetMapping("/cache/stats")
+    @Operation(summary = "获取缓存统计", description = "获取元数据缓存的命中/未命中统计")
+    public ResponseEntity<ApiResponse<CacheStatistics>> getCacheStatistics() {
+        return ResponseEntity.ok(
+                ApiResponse.success("获取缓存统计成功", spacesService.getCacheStatistics())
+        );
+    }
+
+    /**
+     * 获取HTTP连接池统计
+     */
+    @GetMapping("/http/pool")
+    @Operation(summary = "获取连接池统计", description = "获取S3客户端HTTP连接池的借出、等待和空闲连接数")
+    public ResponseEntity<ApiResponse<ConnectionPoolStatistics>> getConnectionPoolStatistics() {
+        return ResponseEntity.ok(
+                ApiResponse.success("获取连接池统计成功", connectionPoolMetricPublisher.statistics())
+        );
+    }
+
     /**
      * 检查文件是否存在
      */
@@ -156,7 +1030,7 @@ public class SpacesController {
 
         log.info("检查文件是否存在: {}", key);
 
-        boolean exists = spacesService.fileExists(key);
+        boolean exists = uploadSpool.find(key).isPresent() || spacesService.fileExists(key);
         return ResponseEntity.ok(
                 ApiResponse.success(
                         exists ? "文件存在" : "文件不存在",
@@ -0,0 +1,10 @@
+package org.example.spaces.exception;
+
+/*
+* 文件已被覆盖异常
+* 按ETag固定版本的读取（If-Match）返回412时抛出，调用方可重新获取元数据后重试*/
+public class FileChangedException extends FileStorageException {
+    public FileChangedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
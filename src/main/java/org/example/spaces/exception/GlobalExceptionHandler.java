@@ -2,12 +2,13 @@ package org.example.spaces.exception;
 
 import lombok.extern.slf4j.Slf4j;
 import org.example.spaces.model.ApiResponse;
-import org.springdoc.webmvc.ui.SwaggerResourceResolver;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.multipart.MaxUploadSizeExceededException;
+import software.amazon.awssdk.core.exception.SdkServiceException;
 
 /*
 * 全局异常处理器
@@ -16,16 +17,16 @@ import org.springframework.web.multipart.MaxUploadSizeExceededException;
 @Slf4j
 @RestControllerAdvice
 public class GlobalExceptionHandler {
-    private final SwaggerResourceResolver swaggerResourceResolver;
-
-    public GlobalExceptionHandler(SwaggerResourceResolver swaggerResourceResolver) {
-        this.swaggerResourceResolver = swaggerResourceResolver;
-    }
+    //重试用尽仍被Spaces限流时，建议客户端等待的秒数
+    private static final String RETRY_AFTER_SECONDS = "1";
 
     // 处理文件存储异常
     @ExceptionHandler(FileStorageException.class)
     public ResponseEntity<ApiResponse<Void>> handleFileStorageException(FileStorageException ex) {
         log.error("文件处理异常 {}",ex.getMessage());
+        if (isThrottled(ex)) {
+            return serviceUnavailable();
+        }
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ApiResponse.error(ex.getMessage()));
     }
 
@@ -40,6 +41,29 @@ public class GlobalExceptionHandler {
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ApiResponse<Void>> handleGenericException(Exception ex) {
         log.error("未知异常 {}",ex.getMessage());
+        // 限流器在SDK拦截器中抛出的异常会被包装为SdkClientException
+        if (isThrottled(ex)) {
+            return serviceUnavailable();
+        }
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ApiResponse.error("服务器内部错误"));
     }
+
+    private static ResponseEntity<ApiResponse<Void>> serviceUnavailable() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                .body(ApiResponse.error("存储服务繁忙，请稍后重试"));
+    }
+
+    // 异常链中是否有SlowDown等限流错误，或客户端限流等待超时
+    private static boolean isThrottled(Throwable ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SdkServiceException serviceException && serviceException.isThrottlingException()) {
+                return true;
+            }
+            if (cause instanceof RateLimitExceededException) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
@@ -0,0 +1,10 @@
+package org.example.spaces.exception;
+
+/*
+* 限流等待超时异常
+* 客户端限流器在maxWait内取不到令牌时抛出，对外返回503和Retry-After*/
+public class RateLimitExceededException extends FileStorageException {
+    public RateLimitExceededException(String message) {
+        super(message);
+    }
+}
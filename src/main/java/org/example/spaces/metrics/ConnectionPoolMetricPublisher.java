@@ -0,0 +1,49 @@
+package org.example.spaces.metrics;
+
+import org.example.spaces.model.ConnectionPoolStatistics;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.http.HttpMetric;
+import software.amazon.awssdk.metrics.MetricCollection;
+import software.amazon.awssdk.metrics.MetricPublisher;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/*
+* 连接池指标收集器
+* 注册到S3客户端，每次调用结束后记录HTTP客户端上报的连接池状态*/
+@Component
+public class ConnectionPoolMetricPublisher implements MetricPublisher {
+    private final AtomicReference<String> httpClientName = new AtomicReference<>();
+    private final AtomicInteger maxConcurrency = new AtomicInteger();
+    private final AtomicInteger leased = new AtomicInteger();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicInteger available = new AtomicInteger();
+
+    @Override
+    public void publish(MetricCollection metricCollection) {
+        // 连接池指标位于 ApiCall -> ApiCallAttempt -> HttpClient 子集合中
+        MetricCollections.last(metricCollection, HttpMetric.HTTP_CLIENT_NAME).ifPresent(httpClientName::set);
+        MetricCollections.last(metricCollection, HttpMetric.MAX_CONCURRENCY).ifPresent(maxConcurrency::set);
+        MetricCollections.last(metricCollection, HttpMetric.LEASED_CONCURRENCY).ifPresent(leased::set);
+        MetricCollections.last(metricCollection, HttpMetric.PENDING_CONCURRENCY_ACQUIRES).ifPresent(pending::set);
+        MetricCollections.last(metricCollection, HttpMetric.AVAILABLE_CONCURRENCY).ifPresent(available::set);
+    }
+
+    /*
+    * 获取最近一次上报的连接池统计
+    * */
+    public ConnectionPoolStatistics statistics() {
+        return ConnectionPoolStatistics.builder()
+                .httpClientName(httpClientName.get())
+                .maxConcurrency(maxConcurrency.get())
+                .leased(leased.get())
+                .pending(pending.get())
+                .available(available.get())
+                .build();
+    }
+
+    @Override
+    public void close() {
+    }
+}
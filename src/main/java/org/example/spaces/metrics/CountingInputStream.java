@@ -0,0 +1,37 @@
+package org.example.spaces.metrics;
+
+import io.micrometer.core.instrument.Counter;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/*
+* 统计读取字节数的输入流
+* 每次读取后累加到计数器，客户端中途断开时也能统计已传输的字节*/
+public class CountingInputStream extends FilterInputStream {
+    private final Counter counter;
+
+    public CountingInputStream(InputStream in, Counter counter) {
+        super(in);
+        this.counter = counter;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b >= 0) {
+            counter.increment();
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = super.read(b, off, len);
+        if (n > 0) {
+            counter.increment(n);
+        }
+        return n;
+    }
+}
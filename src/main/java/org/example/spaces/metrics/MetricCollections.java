@@ -0,0 +1,32 @@
+package org.example.spaces.metrics;
+
+import software.amazon.awssdk.metrics.MetricCollection;
+import software.amazon.awssdk.metrics.SdkMetric;
+
+import java.util.List;
+import java.util.Optional;
+
+/*
+* SDK指标集合工具方法*/
+final class MetricCollections {
+    private MetricCollections() {
+    }
+
+    /*
+    * 在集合及其子集合中查找指标，有多个值时取最后一个（最后一次重试）
+    * */
+    static <T> Optional<T> last(MetricCollection collection, SdkMetric<T> metric) {
+        Optional<T> result = Optional.empty();
+        List<T> values = collection.metricValues(metric);
+        if (!values.isEmpty()) {
+            result = Optional.of(values.get(values.size() - 1));
+        }
+        for (MetricCollection child : collection.children()) {
+            Optional<T> childValue = last(child, metric);
+            if (childValue.isPresent()) {
+                result = childValue;
+            }
+        }
+        return result;
+    }
+}
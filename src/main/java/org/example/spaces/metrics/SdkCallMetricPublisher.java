@@ -0,0 +1,64 @@
+package org.example.spaces.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.core.metrics.CoreMetric;
+import software.amazon.awssdk.http.HttpMetric;
+import software.amazon.awssdk.metrics.MetricCollection;
+import software.amazon.awssdk.metrics.MetricPublisher;
+
+import java.time.Duration;
+
+/*
+* SDK调用指标收集器
+* 按S3 API记录每次调用耗时、重试次数和HTTP状态码，与服务层耗时对比可区分Spaces耗时和本地耗时*/
+@Component
+@RequiredArgsConstructor
+public class SdkCallMetricPublisher implements MetricPublisher {
+    private final MeterRegistry meterRegistry;
+
+    @Override
+    public void publish(MetricCollection metricCollection) {
+        String operation = MetricCollections.last(metricCollection, CoreMetric.OPERATION_NAME).orElse("unknown");
+        boolean successful = MetricCollections.last(metricCollection, CoreMetric.API_CALL_SUCCESSFUL).orElse(false);
+        String status = MetricCollections.last(metricCollection, HttpMetric.HTTP_STATUS_CODE)
+                .map(String::valueOf)
+                .orElse("none");
+
+        MetricCollections.last(metricCollection, CoreMetric.API_CALL_DURATION).ifPresent(duration ->
+                Timer.builder("spaces.sdk.call")
+                        .description("S3 API调用耗时（含重试）")
+                        .tag("api", operation)
+                        .tag("status", status)
+                        .tag("outcome", successful ? "success" : "error")
+                        .publishPercentileHistogram()
+                        .register(meterRegistry)
+                        .record(duration));
+
+        MetricCollections.last(metricCollection, CoreMetric.RETRY_COUNT).ifPresent(retries ->
+                DistributionSummary.builder("spaces.sdk.retries")
+                        .description("S3 API调用重试次数")
+                        .tag("api", operation)
+                        .register(meterRegistry)
+                        .record(retries));
+
+        MetricCollections.last(metricCollection, CoreMetric.SERVICE_CALL_DURATION).ifPresent(duration ->
+                recordServiceCall(operation, duration));
+    }
+
+    // 最后一次尝试的网络往返耗时，不含SDK本地的签名与重试等待
+    private void recordServiceCall(String operation, Duration duration) {
+        Timer.builder("spaces.sdk.service.call")
+                .description("S3服务端往返耗时（最后一次尝试）")
+                .tag("api", operation)
+                .register(meterRegistry)
+                .record(duration);
+    }
+
+    @Override
+    public void close() {
+    }
+}
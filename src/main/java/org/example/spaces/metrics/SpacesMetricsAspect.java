@@ -0,0 +1,111 @@
+package org.example.spaces.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.example.spaces.model.ConditionalContent;
+import org.example.spaces.model.FileContent;
+import org.example.spaces.model.FileMetadata;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.core.exception.SdkClientException;
+
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+* 服务层指标切面
+* 为SpacesService的每个操作记录耗时、并发数、错误码和传输字节数*/
+@Aspect
+@Component
+public class SpacesMetricsAspect {
+    private final MeterRegistry meterRegistry;
+    private final Counter uploadedBytes;
+    private final Counter downloadedBytes;
+    private final Map<String, AtomicInteger> activeRequests = new ConcurrentHashMap<>();
+
+    public SpacesMetricsAspect(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.uploadedBytes = Counter.builder("spaces.bytes.uploaded")
+                .description("上传到Spaces的字节数")
+                .baseUnit(BaseUnits.BYTES)
+                .register(meterRegistry);
+        this.downloadedBytes = Counter.builder("spaces.bytes.downloaded")
+                .description("从Spaces下载的字节数")
+                .baseUnit(BaseUnits.BYTES)
+                .register(meterRegistry);
+    }
+
+    @Around("execution(* org.example.spaces.service.SpacesService.*(..))")
+    public Object record(ProceedingJoinPoint joinPoint) throws Throwable {
+        String operation = joinPoint.getSignature().getName();
+        AtomicInteger active = activeRequests.computeIfAbsent(operation, op ->
+                meterRegistry.gauge("spaces.operation.active", Tags.of("operation", op), new AtomicInteger()));
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        active.incrementAndGet();
+        String outcome = "success";
+        try {
+            return instrument(operation, joinPoint.proceed());
+        } catch (Throwable e) {
+            outcome = "error";
+            meterRegistry.counter("spaces.operation.errors",
+                    "operation", operation,
+                    "error.code", errorCode(e)).increment();
+            throw e;
+        } finally {
+            active.decrementAndGet();
+            sample.stop(Timer.builder("spaces.operation")
+                    .description("SpacesService操作耗时")
+                    .tag("operation", operation)
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+    }
+
+    /*
+    * 统计上传字节数，并包装下载流以统计实际写出的字节数
+    * */
+    private Object instrument(String operation, Object result) {
+        // 去重命中的上传没有实际传输字节
+        if (result instanceof FileMetadata metadata && operation.startsWith("upload") && metadata.getSize() != null
+                && !Boolean.TRUE.equals(metadata.getDeduplicated())) {
+            uploadedBytes.increment(metadata.getSize());
+        } else if (result instanceof FileContent content) {
+            return new FileContent(content.getMetadata(),
+                    new CountingInputStream(content.getInputStream(), downloadedBytes));
+        } else if (result instanceof ConditionalContent conditional && !conditional.isNotModified()) {
+            FileContent content = conditional.getContent();
+            return ConditionalContent.modified(new FileContent(content.getMetadata(),
+                    new CountingInputStream(content.getInputStream(), downloadedBytes)));
+        } else if (result instanceof InputStream inputStream) {
+            return new CountingInputStream(inputStream, downloadedBytes);
+        }
+        return result;
+    }
+
+    /*
+    * 取异常链中的S3错误码，没有时使用异常类型
+    * */
+    private String errorCode(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof AwsServiceException serviceException
+                    && serviceException.awsErrorDetails() != null
+                    && serviceException.awsErrorDetails().errorCode() != null) {
+                return serviceException.awsErrorDetails().errorCode();
+            }
+            if (cause instanceof SdkClientException) {
+                return "ClientError";
+            }
+        }
+        return e.getClass().getSimpleName();
+    }
+}
@@ -0,0 +1,19 @@
+package org.example.spaces.model;
+
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/*
+* 批量删除请求模型*/
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchDeleteRequest {
+    //要删除的文件键
+    @NotEmpty(message = "Keys are required")
+    private List<String> keys;
+}
@@ -0,0 +1,28 @@
+package org.example.spaces.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/*
+* 批量删除结果模型*/
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchDeleteResult {
+    //删除成功数量
+    private int deletedCount;
+
+    //删除失败数量
+    private int failedCount;
+
+    //删除成功的文件键
+    private List<String> deletedKeys;
+
+    //删除失败的文件及原因
+    private List<FileError> errors;
+}
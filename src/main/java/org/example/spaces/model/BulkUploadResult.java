@@ -0,0 +1,28 @@
+package org.example.spaces.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/*
+* 批量上传结果模型*/
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkUploadResult {
+    //上传成功数量
+    private int uploadedCount;
+
+    //上传失败数量
+    private int failedCount;
+
+    //上传成功的文件元数据，按请求中的顺序
+    private List<FileMetadata> files;
+
+    //上传失败的文件及原因，key为原始文件名
+    private List<FileError> errors;
+}
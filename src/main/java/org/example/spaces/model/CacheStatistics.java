@@ -0,0 +1,29 @@
+package org.example.spaces.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/*
+* 缓存统计模型*/
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheStatistics {
+    //命中次数
+    private long hitCount;
+
+    //未命中次数
+    private long missCount;
+
+    //命中率
+    private double hitRate;
+
+    //淘汰次数
+    private long evictionCount;
+
+    //当前条目数
+    private long size;
+}
@@ -0,0 +1,30 @@
+package org.example.spaces.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+/*
+* 磁盘缓存文件模型
+* 持有已打开的文件通道，缓存淘汰删除文件后仍可读完，使用后需关闭*/
+@Getter
+@AllArgsConstructor
+public class CachedFile implements Closeable {
+    //文件元数据
+    private final FileMetadata metadata;
+
+    //缓存文件通道
+    private final FileChannel channel;
+
+    //文件路径，可交给容器用sendfile发送；文件可能随时被删除（如暂存文件）时为null
+    private final Path path;
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
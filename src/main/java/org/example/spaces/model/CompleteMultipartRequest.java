@@ -0,0 +1,43 @@
+package org.example.spaces.model;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/*
+* 完成分片上传请求模型*/
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CompleteMultipartRequest {
+    //文件键
+    @NotBlank(message = "Key is required")
+    private String key;
+
+    //分片上传ID
+    @NotBlank(message = "Upload id is required")
+    private String uploadId;
+
+    //已上传的分片
+    @Valid
+    @NotEmpty(message = "Parts are required")
+    private List<UploadedPart> parts;
+
+    /*
+    * 已上传分片：序号及PUT响应中的ETag
+    * */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class UploadedPart {
+        private int partNumber;
+
+        @NotBlank(message = "Part eTag is required")
+        private String eTag;
+    }
+}
@@ -0,0 +1,40 @@
+package org.example.spaces.model;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/*
+* 条件GET结果模型
+* 校验器匹配（未修改）时不打开内容流，content为null*/
+@Getter
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class ConditionalContent implements Closeable {
+    //当前校验器（eTag/lastModified）；由Spaces返回304时只有这两项
+    private final FileMetadata metadata;
+
+    //文件内容，未修改时为null
+    private final FileContent content;
+
+    public static ConditionalContent modified(FileContent content) {
+        return new ConditionalContent(content.getMetadata(), content);
+    }
+
+    public static ConditionalContent notModified(FileMetadata metadata) {
+        return new ConditionalContent(metadata, null);
+    }
+
+    public boolean isNotModified() {
+        return content == null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (content != null) {
+            content.close();
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package org.example.spaces.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/*
+* HTTP连接池统计模型
+* 取自最近一次SDK调用上报的连接池指标*/
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConnectionPoolStatistics {
+    //HTTP客户端名称
+    private String httpClientName;
+
+    //连接池最大连接数
+    private int maxConcurrency;
+
+    //已借出的连接数
+    private int leased;
+
+    //等待获取连接的请求数
+    private int pending;
+
+    //空闲可用的连接数
+    private int available;
+}
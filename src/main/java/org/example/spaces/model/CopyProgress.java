@@ -0,0 +1,36 @@
+package org.example.spaces.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/*
+* 复制/移动进度模型
+* 按前缀复制时每完成一个文件产生一个事件，最后一个事件done为true，计数为最终结果*/
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CopyProgress {
+    //本事件对应的源文件键，汇总事件为null
+    private String sourceKey;
+
+    //本事件对应的目标文件键，汇总事件为null
+    private String targetKey;
+
+    //该文件失败的原因，成功时为null
+    private String error;
+
+    //已复制成功的文件数
+    private int copiedCount;
+
+    //失败的文件数（复制失败，或移动时删除源文件失败）
+    private int failedCount;
+
+    //已复制的字节数
+    private long copiedBytes;
+
+    //是否已全部完成
+    private boolean done;
+}
@@ -0,0 +1,26 @@
+package org.example.spaces.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/*
+* 文件内容模型
+* 一次GET同时返回元数据和内容输入流，使用后需关闭*/
+@Getter
+@AllArgsConstructor
+public class FileContent implements Closeable {
+    //文件元数据
+    private final FileMetadata metadata;
+
+    //文件内容输入流
+    private final InputStream inputStream;
+
+    @Override
+    public void close() throws IOException {
+        inputStream.close();
+    }
+}
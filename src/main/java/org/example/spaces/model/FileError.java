@@ -0,0 +1,23 @@
+package org.example.spaces.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/*
+* 单个文件操作失败信息*/
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FileError {
+    //文件键
+    private String key;
+
+    //错误码（S3错误码或本地错误类型）
+    private String code;
+
+    //错误信息
+    private String message;
+}
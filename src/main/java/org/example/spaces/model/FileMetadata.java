@@ -10,7 +10,7 @@ import java.time.Instant;
 /*
 * 文件元数据模型*/
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class FileMetadata {
@@ -29,6 +29,21 @@ public class FileMetadata {
     //文件类型
     private String contentType;
 
+    //存储编码（gzip/zstd），未压缩时为null；此时size为压缩后大小
+    private String contentEncoding;
+
+    //校验和算法（CRC32C/SHA256），文件没有校验和时为null
+    private String checksumAlgorithm;
+
+    //存储内容的校验和（Base64）；分片上传的文件为各分片校验和拼接后的校验和，带 -分片数 后缀
+    private String checksum;
+
+    //分片上传时的分片大小（最后一片可能更小），用于按分片校验复合校验和
+    private Long checksumPartSize;
+
     //公共访问URL
     private String publicUrl;
+
+    //上传是否命中内容去重（仅上传响应中有值）
+    private Boolean deduplicated;
 }
@@ -0,0 +1,28 @@
+package org.example.spaces.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/*
+* 分页文件列表模型*/
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FilePage {
+    //当前页文件
+    private List<FileMetadata> files;
+
+    //公共前缀（指定分隔符时返回，相当于子文件夹）
+    private List<String> commonPrefixes;
+
+    //下一页游标，为空表示已是最后一页
+    private String nextCursor;
+
+    //是否还有下一页
+    private boolean truncated;
+}
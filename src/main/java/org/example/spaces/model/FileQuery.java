@@ -0,0 +1,40 @@
+package org.example.spaces.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/*
+* 文件索引查询条件，未设置的条件不参与过滤*/
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FileQuery {
+    //文件键前缀
+    private String prefix;
+
+    //文件键后缀（不区分大小写），如扩展名 .jpg
+    private String suffix;
+
+    //最小文件大小（字节，含）
+    private Long minSize;
+
+    //最大文件大小（字节，含）
+    private Long maxSize;
+
+    //修改时间不早于
+    private Instant modifiedAfter;
+
+    //修改时间早于
+    private Instant modifiedBefore;
+
+    //每页数量
+    private int limit;
+
+    //上一页返回的游标（最后一个文件键）
+    private String cursor;
+}
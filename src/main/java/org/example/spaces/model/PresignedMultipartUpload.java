@@ -0,0 +1,30 @@
+package org.example.spaces.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+
+/*
+* 预签名分片上传模型
+* 客户端用各分片URL直接PUT到Spaces，再调用完成接口提交各分片eTag*/
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PresignedMultipartUpload {
+    //文件键
+    private String key;
+
+    //分片上传ID
+    private String uploadId;
+
+    //各分片的预签名URL
+    private List<PresignedPart> parts;
+
+    //过期时间
+    private Instant expiresAt;
+}
@@ -0,0 +1,20 @@
+package org.example.spaces.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/*
+* 分片上传中单个分片的预签名URL模型*/
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PresignedPart {
+    //分片序号，从1开始
+    private int partNumber;
+
+    //预签名PUT URL
+    private String url;
+}
@@ -0,0 +1,32 @@
+package org.example.spaces.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.Map;
+
+/*
+* 预签名URL模型*/
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PresignedUrl {
+    //文件键
+    private String key;
+
+    //预签名URL
+    private String url;
+
+    //HTTP方法
+    private String method;
+
+    //客户端必须原样携带的请求头（如Content-Type）
+    private Map<String, String> headers;
+
+    //过期时间
+    private Instant expiresAt;
+}
@@ -0,0 +1,28 @@
+package org.example.spaces.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/*
+* 上传会话中已收到的分块模型*/
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadChunk {
+    //分块序号，从1开始
+    private int chunkNumber;
+
+    //分块大小（字节）
+    private long size;
+
+    //分块eTag
+    private String eTag;
+
+    //收到时间
+    private Instant lastModified;
+}
@@ -0,0 +1,39 @@
+package org.example.spaces.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+
+/*
+* 可续传上传会话模型
+* 会话状态保存在Spaces的分片上传中，任一实例都可以接收分块；断线后查询已收到的分块，只补传缺少的部分*/
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadSession {
+    //会话ID，后续分块、查询、完成和取消请求使用
+    private String sessionId;
+
+    //完成后的文件键
+    private String key;
+
+    //建议的分块大小（字节），除最后一块外不能小于5MB
+    private long chunkSize;
+
+    //已收到的分块，按序号排列（创建响应中为空）
+    private List<UploadChunk> chunks;
+
+    //已收到的总字节数
+    private long receivedBytes;
+
+    //创建时间
+    private Instant createdAt;
+
+    //最后一次收到分块（或创建）之后超过该时间未继续上传，会话将被清理
+    private Instant expiresAt;
+}
@@ -0,0 +1,215 @@
+package org.example.spaces.ratelimit;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.spaces.config.SpacesConfig;
+import org.example.spaces.exception.FileStorageException;
+import org.example.spaces.exception.RateLimitExceededException;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+* 自适应限流器
+* Spaces按存储桶限流，每个存储桶的每类操作一个令牌桶，收到SlowDown时速率乘以decreaseFactor，成功时每秒增加increasePerSecond（AIMD）
+* 读请求优先：有读请求在排队时写/删除先让行，最多maxYield，之后按各自的令牌桶继续；读触发的SlowDown同时降低写/删除的速率
+* 每次最多等待maxWait，预计等不到令牌时立即失败，不让请求线程无限排队*/
+@Slf4j
+@Component
+public class AdaptiveRateLimiter {
+    //同一批在途请求收到的多个SlowDown只降速一次
+    private static final long DECREASE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    //读请求排队时后台操作的轮询间隔
+    private static final long YIELD_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final double MIN_RATE = 1;
+
+    private final Map<String, Map<OperationClass, Bucket>> buckets = new ConcurrentHashMap<>();
+    private final SpacesConfig.RateLimit config;
+    private final List<String> bucketNames;
+
+    public AdaptiveRateLimiter(SpacesConfig spacesConfig) {
+        this.config = spacesConfig.getRateLimit();
+
+        // 预先创建已配置存储桶的令牌桶，便于注册指标
+        Set<String> names = new LinkedHashSet<>();
+        if (spacesConfig.getSharding().isEnabled()) {
+            for (SpacesConfig.Shard shard : spacesConfig.getSharding().getShards()) {
+                names.add(shard.getBucketName());
+                shard.getReplicas().forEach(replica -> names.add(replica.getBucketName()));
+            }
+        } else {
+            names.add(spacesConfig.getBucketName());
+        }
+        this.bucketNames = new ArrayList<>(names);
+        bucketNames.forEach(this::bucketsOf);
+    }
+
+    /*
+    * 获取一个令牌，没有令牌时阻塞等待
+    * @param bucketName 请求的存储桶
+    * @throws RateLimitExceededException maxWait内取不到令牌
+    * */
+    public void acquire(String bucketName, OperationClass operationClass) {
+        Map<OperationClass, Bucket> classes = bucketsOf(bucketName);
+        Bucket bucket = classes.get(operationClass);
+        Bucket reads = classes.get(OperationClass.READ);
+        long start = System.nanoTime();
+        long yieldDeadline = start + config.getMaxYield().toNanos();
+        long deadline = start + config.getMaxWait().toNanos();
+        bucket.waiting.incrementAndGet();
+        try {
+            while (true) {
+                if (operationClass != OperationClass.READ && reads.waiting.get() > 0
+                        && System.nanoTime() - yieldDeadline < 0) {
+                    park(YIELD_NANOS);
+                    continue;
+                }
+                long waitNanos = bucket.tryTake();
+                if (waitNanos == 0) {
+                    return;
+                }
+                if (waitNanos > deadline - System.nanoTime()) {
+                    bucket.rejected.increment();
+                    throw new RateLimitExceededException("等待限流令牌超时: " + bucketName + " " + operationClass.tag());
+                }
+                park(waitNanos);
+            }
+        } finally {
+            bucket.waiting.decrementAndGet();
+        }
+    }
+
+    /*
+    * 请求成功：线性增加速率
+    * */
+    public void onSuccess(String bucketName, OperationClass operationClass) {
+        bucketsOf(bucketName).get(operationClass).increase(config.getIncreasePerSecond());
+    }
+
+    /*
+    * 收到SlowDown：该类操作降速，读操作被限流时后台操作一并降速
+    * */
+    public void onThrottled(String bucketName, OperationClass operationClass) {
+        Map<OperationClass, Bucket> classes = bucketsOf(bucketName);
+        Bucket bucket = classes.get(operationClass);
+        bucket.throttled.increment();
+        bucket.decrease(bucketName, config.getDecreaseFactor());
+        if (operationClass == OperationClass.READ) {
+            classes.get(OperationClass.WRITE).decrease(bucketName, config.getDecreaseFactor());
+            classes.get(OperationClass.DELETE).decrease(bucketName, config.getDecreaseFactor());
+        }
+    }
+
+    /*
+    * 已配置的存储桶
+    * */
+    public List<String> bucketNames() {
+        return bucketNames;
+    }
+
+    public double rate(String bucketName, OperationClass operationClass) {
+        return bucketsOf(bucketName).get(operationClass).rate();
+    }
+
+    public int waiting(String bucketName, OperationClass operationClass) {
+        return bucketsOf(bucketName).get(operationClass).waiting.get();
+    }
+
+    public long throttledCount(String bucketName, OperationClass operationClass) {
+        return bucketsOf(bucketName).get(operationClass).throttled.sum();
+    }
+
+    public long rejectedCount(String bucketName, OperationClass operationClass) {
+        return bucketsOf(bucketName).get(operationClass).rejected.sum();
+    }
+
+    private Map<OperationClass, Bucket> bucketsOf(String bucketName) {
+        return buckets.computeIfAbsent(bucketName, name -> {
+            Map<OperationClass, Bucket> classes = new EnumMap<>(OperationClass.class);
+            classes.put(OperationClass.READ, new Bucket(config.getRead()));
+            classes.put(OperationClass.WRITE, new Bucket(config.getWrite()));
+            classes.put(OperationClass.DELETE, new Bucket(config.getDelete()));
+            return classes;
+        });
+    }
+
+    private static void park(long nanos) {
+        LockSupport.parkNanos(nanos);
+        if (Thread.interrupted()) {
+            Thread.currentThread().interrupt();
+            throw new FileStorageException("等待限流令牌时被中断");
+        }
+    }
+
+    /*
+    * 令牌桶，容量为100毫秒的配额（至少1个），避免空闲后瞬间突发
+    * */
+    private static class Bucket {
+        private final double maxRate;
+        private final AtomicInteger waiting = new AtomicInteger();
+        private final LongAdder throttled = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+
+        private double rate;
+        private double tokens;
+        private long lastRefill = System.nanoTime();
+        private long lastDecrease;
+
+        Bucket(SpacesConfig.OperationLimit limit) {
+            this.rate = limit.getInitialRate();
+            this.maxRate = limit.getMaxRate();
+            this.tokens = capacity();
+            this.lastDecrease = lastRefill - DECREASE_INTERVAL_NANOS;
+        }
+
+        // 取到令牌返回0，否则返回预计等待时间
+        synchronized long tryTake() {
+            refill();
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+            return (long) Math.ceil((1 - tokens) / rate * TimeUnit.SECONDS.toNanos(1));
+        }
+
+        // 每次成功增加 increasePerSecond / rate，满速时约每秒增加increasePerSecond
+        synchronized void increase(double increasePerSecond) {
+            rate = Math.min(maxRate, rate + increasePerSecond / rate);
+        }
+
+        synchronized void decrease(String bucketName, double factor) {
+            long now = System.nanoTime();
+            if (now - lastDecrease < DECREASE_INTERVAL_NANOS) {
+                return;
+            }
+            lastDecrease = now;
+            refill();
+            rate = Math.max(MIN_RATE, rate * factor);
+            tokens = Math.min(tokens, capacity());
+            log.warn("收到SlowDown，降低 {} 的请求速率至 {} 次/秒", bucketName, String.format("%.1f", rate));
+        }
+
+        synchronized double rate() {
+            return rate;
+        }
+
+        private void refill() {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity(), tokens + (now - lastRefill) * rate / TimeUnit.SECONDS.toNanos(1));
+            lastRefill = now;
+        }
+
+        private double capacity() {
+            return Math.max(1, rate / 10);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package org.example.spaces.ratelimit;
+
+import java.util.Locale;
+
+/*
+* 限流的操作类别
+* 按S3 API名称划分，每类单独限速*/
+public enum OperationClass {
+    READ,
+    WRITE,
+    DELETE;
+
+    /*
+    * 根据S3 API名称（如GetObject、UploadPart）判断类别
+    * */
+    public static OperationClass of(String operationName) {
+        if (operationName == null) {
+            return WRITE;
+        }
+        if (operationName.startsWith("Get") || operationName.startsWith("Head") || operationName.startsWith("List")) {
+            return READ;
+        }
+        if (operationName.startsWith("Delete") || operationName.startsWith("Abort")) {
+            return DELETE;
+        }
+        return WRITE;
+    }
+
+    public String tag() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,48 @@
+package org.example.spaces.ratelimit;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+import software.amazon.awssdk.core.interceptor.SdkExecutionAttribute;
+
+/*
+* S3客户端限流拦截器
+* 每次HTTP尝试（含SDK重试）发出前取令牌，根据响应状态码调整速率*/
+@Component
+@RequiredArgsConstructor
+public class ThrottlingInterceptor implements ExecutionInterceptor {
+    //503 SlowDown；兼容返回429的S3实现
+    private static final int SLOW_DOWN = 503;
+    private static final int TOO_MANY_REQUESTS = 429;
+
+    private final AdaptiveRateLimiter adaptiveRateLimiter;
+
+    @Override
+    public void beforeTransmission(Context.BeforeTransmission context, ExecutionAttributes executionAttributes) {
+        adaptiveRateLimiter.acquire(bucketOf(context), operationClassOf(executionAttributes));
+    }
+
+    @Override
+    public void afterTransmission(Context.AfterTransmission context, ExecutionAttributes executionAttributes) {
+        int status = context.httpResponse().statusCode();
+        OperationClass operationClass = operationClassOf(executionAttributes);
+        if (status == SLOW_DOWN || status == TOO_MANY_REQUESTS) {
+            adaptiveRateLimiter.onThrottled(bucketOf(context), operationClass);
+        } else {
+            adaptiveRateLimiter.onSuccess(bucketOf(context), operationClass);
+        }
+    }
+
+    // 分片时每个客户端访问不同的存储桶，各自限速；CopyObject/UploadPartCopy按目标桶计
+    private static String bucketOf(Context.BeforeTransmission context) {
+        return context.request().getValueForField("Bucket", String.class)
+                .or(() -> context.request().getValueForField("DestinationBucket", String.class))
+                .orElse("");
+    }
+
+    private static OperationClass operationClassOf(ExecutionAttributes executionAttributes) {
+        return OperationClass.of(executionAttributes.getAttribute(SdkExecutionAttribute.OPERATION_NAME));
+    }
+}
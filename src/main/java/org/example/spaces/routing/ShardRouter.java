@@ -0,0 +1,89 @@
+package org.example.spaces.routing;
+
+import org.example.spaces.config.SpacesConfig;
+import org.example.spaces.config.SpacesConfig.ShardKey;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/*
+* 一致性哈希环
+* 分片按名称和权重生成虚拟节点，新增分片只接管约 1/n 的键，其余键的归属不变*/
+public class ShardRouter {
+    private final TreeMap<Long, String> ring = new TreeMap<>();
+    private final ShardKey shardKey;
+
+    public ShardRouter(List<SpacesConfig.Shard> shards, int virtualNodes, ShardKey shardKey) {
+        this.shardKey = shardKey;
+        for (SpacesConfig.Shard shard : shards) {
+            for (int i = 0; i < virtualNodes * shard.getWeight(); i++) {
+                ring.put(hash(shard.getName() + "#" + i), shard.getName());
+            }
+        }
+    }
+
+    /*
+    * 文件键当前归属的分片
+    * */
+    public String owner(String key) {
+        return ownerAt(hash(routingKey(key))).getValue();
+    }
+
+    /*
+    * 新增分片之前该键归属的分片：哈希环上顺时针的下一个不同分片
+    * 新分片接管的键原本都属于这个分片
+    * */
+    public Optional<String> previousOwner(String key) {
+        Map.Entry<Long, String> owner = ownerAt(hash(routingKey(key)));
+        Map.Entry<Long, String> next = owner;
+        for (int i = 0; i < ring.size(); i++) {
+            next = ring.higherEntry(next.getKey());
+            if (next == null) {
+                next = ring.firstEntry();
+            }
+            if (!next.getValue().equals(owner.getValue())) {
+                return Optional.of(next.getValue());
+            }
+        }
+        return Optional.empty();
+    }
+
+    /*
+    * 前缀下的所有键是否归属同一分片（仅PREFIX模式且前缀包含完整的第一级目录时）
+    * */
+    public Optional<String> ownerOfPrefix(String prefix) {
+        if (shardKey != ShardKey.PREFIX || prefix == null || prefix.indexOf('/') < 0) {
+            return Optional.empty();
+        }
+        return Optional.of(owner(prefix));
+    }
+
+    private Map.Entry<Long, String> ownerAt(long hash) {
+        Map.Entry<Long, String> entry = ring.ceilingEntry(hash);
+        return entry != null ? entry : ring.firstEntry();
+    }
+
+    private String routingKey(String key) {
+        if (shardKey == ShardKey.PREFIX) {
+            int slash = key.indexOf('/');
+            return slash < 0 ? key : key.substring(0, slash);
+        }
+        return key;
+    }
+
+    // MD5前8字节，分布均匀且与JVM无关，各实例路由一致
+    private static long hash(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(value.getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(digest).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
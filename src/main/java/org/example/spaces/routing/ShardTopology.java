@@ -0,0 +1,192 @@
+package org.example.spaces.routing;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.spaces.config.SpacesConfig;
+import org.springframework.util.StringUtils;
+import org.springframework.web.util.UriUtils;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/*
+* 分片拓扑
+* 持有每个存储桶（分片主桶和副本）的客户端与预签名器，按文件键选择读写目标；未开启分片时只有一个目标*/
+@Slf4j
+public class ShardTopology implements AutoCloseable {
+    private final ShardRouter router;
+    private final boolean sharded;
+    private final boolean migrationFallback;
+    private final Map<String, Target> primaries;
+    private final Map<String, Target> nearest = new LinkedHashMap<>();
+    private final List<Target> all = new ArrayList<>();
+
+    /*
+    * 一个存储桶
+    * @param replica 是否为只读副本
+    * */
+    public record Target(String shardName, String bucketName, String endpointUrl, String region, boolean replica,
+                         S3Client client, S3Presigner presigner) {
+    }
+
+    /*
+    * @param primaries 分片名称到主桶
+    * @param replicas 分片名称到副本
+    * */
+    public ShardTopology(SpacesConfig.Sharding sharding, Map<String, Target> primaries,
+                         Map<String, List<Target>> replicas) {
+        this.sharded = sharding.isEnabled();
+        this.migrationFallback = sharding.isMigrationFallback();
+        this.primaries = primaries;
+        this.router = new ShardRouter(sharding.getShards(), sharding.getVirtualNodes(), sharding.getShardKey());
+
+        for (Target primary : primaries.values()) {
+            all.add(primary);
+            List<Target> shardReplicas = replicas.getOrDefault(primary.shardName(), List.of());
+            all.addAll(shardReplicas);
+            // 主桶本身就在本地区时不走副本，避免复制延迟
+            String localRegion = sharding.getLocalRegion();
+            Target local = primary;
+            if (StringUtils.hasText(localRegion) && !primary.region().equalsIgnoreCase(localRegion)) {
+                local = shardReplicas.stream()
+                        .filter(replica -> replica.region().equalsIgnoreCase(localRegion))
+                        .findFirst()
+                        .orElse(primary);
+            }
+            nearest.put(primary.shardName(), local);
+            log.info("分片 {}: {} ({}), 读取: {} ({})", primary.shardName(), primary.bucketName(), primary.region(),
+                    local.bucketName(), local.region());
+        }
+    }
+
+    /*
+    * 未开启分片时的单桶拓扑
+    * */
+    public static ShardTopology single(SpacesConfig spacesConfig, S3Client client, S3Presigner presigner) {
+        SpacesConfig.Shard shard = new SpacesConfig.Shard();
+        shard.setName("default");
+        shard.setBucketName(spacesConfig.getBucketName());
+        shard.setEndpointUrl(spacesConfig.getEndpointUrl());
+        shard.setRegion(spacesConfig.getRegion());
+
+        SpacesConfig.Sharding sharding = new SpacesConfig.Sharding();
+        sharding.setShards(List.of(shard));
+        sharding.setMigrationFallback(false);
+
+        Target target = new Target(shard.getName(), shard.getBucketName(), shard.getEndpointUrl(),
+                shard.getRegion(), false, client, presigner);
+        return new ShardTopology(sharding, Map.of(shard.getName(), target), Map.of());
+    }
+
+    public boolean isSharded() {
+        return sharded;
+    }
+
+    /*
+    * 写入目标：文件键归属分片的主桶
+    * */
+    public Target primary(String key) {
+        return primaries.get(router.owner(key));
+    }
+
+    /*
+    * 离本服务最近的存储桶：本地区的副本，没有时为主桶
+    * */
+    public Target nearest(String key) {
+        return nearest.get(router.owner(key));
+    }
+
+    /*
+    * 文件可能所在的主桶：归属分片，迁移期间还包括之前的归属分片
+    * 删除时两者都删，避免回退读取到已删除的文件；复制时依次作为复制源
+    * */
+    public List<Target> ownerTargets(String key) {
+        List<Target> targets = new ArrayList<>();
+        targets.add(primary(key));
+        previousPrimary(key).ifPresent(targets::add);
+        return targets;
+    }
+
+    /*
+    * 两个存储桶是否在同一endpoint，同一endpoint下才能服务端复制
+    * */
+    public static boolean sameEndpoint(Target a, Target b) {
+        return StringUtils.trimTrailingCharacter(a.endpointUrl(), '/')
+                .equalsIgnoreCase(StringUtils.trimTrailingCharacter(b.endpointUrl(), '/'));
+    }
+
+    /*
+    * 读取候选，依次尝试：最近的副本、主桶（副本复制延迟时）、之前的归属分片（迁移期间）
+    * */
+    public List<Target> readTargets(String key) {
+        String owner = router.owner(key);
+        List<Target> targets = new ArrayList<>();
+        targets.add(nearest.get(owner));
+        if (nearest.get(owner).replica()) {
+            targets.add(primaries.get(owner));
+        }
+        previousPrimary(key).ifPresent(targets::add);
+        return targets;
+    }
+
+    /*
+    * 列出前缀时需要查询的存储桶：前缀归属单个分片时只查该分片，否则所有分片
+    * */
+    public List<Target> listTargets(String prefix) {
+        Optional<String> owner = router.ownerOfPrefix(prefix);
+        if (owner.isEmpty()) {
+            return new ArrayList<>(nearest.values());
+        }
+        List<Target> targets = new ArrayList<>();
+        targets.add(nearest.get(owner.get()));
+        previousPrimary(prefix).ifPresent(targets::add);
+        return targets;
+    }
+
+    /*
+    * 各分片的主桶
+    * */
+    public Collection<Target> primaries() {
+        return primaries.values();
+    }
+
+    /*
+    * 所有存储桶，包括副本
+    * */
+    public List<Target> all() {
+        return all;
+    }
+
+    /*
+    * 文件的公开访问URL，指向归属分片的主桶
+    * */
+    public String publicUrl(String key) {
+        Target target = primary(key);
+        // 与S3客户端一致使用路径风格：endpoint/bucket/key
+        String endpoint = StringUtils.trimTrailingCharacter(target.endpointUrl(), '/');
+        return endpoint + "/" + target.bucketName() + "/" + UriUtils.encodePath(key, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() {
+        for (Target target : all) {
+            target.client().close();
+            if (target.presigner() != null) {
+                target.presigner().close();
+            }
+        }
+    }
+
+    private Optional<Target> previousPrimary(String key) {
+        if (!migrationFallback) {
+            return Optional.empty();
+        }
+        return router.previousOwner(key).map(primaries::get);
+    }
+}
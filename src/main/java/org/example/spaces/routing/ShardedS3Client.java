@@ -0,0 +1,360 @@
+package org.example.spaces.routing;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.spaces.cache.KeyIndex;
+import org.example.spaces.routing.ShardTopology.Target;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.core.sync.ResponseTransformer;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3ServiceClientConfiguration;
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/*
+* 分片路由的S3客户端
+* 按文件键把请求转发到对应存储桶的客户端，请求中的bucket替换为目标桶；服务层仍按单桶使用S3Client*/
+@Slf4j
+@RequiredArgsConstructor
+public class ShardedS3Client implements S3Client {
+    //listObjectsV2单页最多1000个
+    private static final int MAX_KEYS = 1000;
+    //UTF-8字节序中最大的字符，startAfter跳过整个公共前缀
+    private static final String MAX_CHAR = "\uDBFF\uDFFF";
+
+    private final ShardTopology topology;
+
+    @Override
+    public PutObjectResponse putObject(PutObjectRequest request, RequestBody requestBody) {
+        Target target = topology.primary(request.key());
+        return target.client().putObject(request.toBuilder().bucket(target.bucketName()).build(), requestBody);
+    }
+
+    @Override
+    public <ReturnT> ReturnT getObject(GetObjectRequest request,
+                                       ResponseTransformer<GetObjectResponse, ReturnT> responseTransformer) {
+        return read(request.key(), target -> target.client().getObject(
+                request.toBuilder().bucket(target.bucketName()).build(), responseTransformer));
+    }
+
+    @Override
+    public HeadObjectResponse headObject(HeadObjectRequest request) {
+        return read(request.key(), target -> target.client().headObject(
+                request.toBuilder().bucket(target.bucketName()).build()));
+    }
+
+    @Override
+    public DeleteObjectResponse deleteObject(DeleteObjectRequest request) {
+        DeleteObjectResponse response = null;
+        for (Target target : topology.ownerTargets(request.key())) {
+            DeleteObjectResponse deleted = target.client().deleteObject(
+                    request.toBuilder().bucket(target.bucketName()).build());
+            if (response == null) {
+                response = deleted;
+            }
+        }
+        return response;
+    }
+
+    /*
+    * 按分片分组删除，任一目标桶删除失败都算失败
+    * */
+    @Override
+    public DeleteObjectsResponse deleteObjects(DeleteObjectsRequest request) {
+        Map<Target, List<ObjectIdentifier>> groups = new LinkedHashMap<>();
+        for (ObjectIdentifier object : request.delete().objects()) {
+            for (Target target : topology.ownerTargets(object.key())) {
+                groups.computeIfAbsent(target, t -> new ArrayList<>()).add(object);
+            }
+        }
+
+        Map<String, DeletedObject> deleted = new LinkedHashMap<>();
+        Map<String, S3Error> errors = new LinkedHashMap<>();
+        for (Map.Entry<Target, List<ObjectIdentifier>> group : groups.entrySet()) {
+            Target target = group.getKey();
+            DeleteObjectsResponse response = target.client().deleteObjects(request.toBuilder()
+                    .bucket(target.bucketName())
+                    .delete(request.delete().toBuilder().objects(group.getValue()).build())
+                    .build());
+            response.deleted().forEach(object -> deleted.putIfAbsent(object.key(), object));
+            response.errors().forEach(error -> errors.putIfAbsent(error.key(), error));
+        }
+        errors.keySet().forEach(deleted::remove);
+
+        return DeleteObjectsResponse.builder()
+                .deleted(deleted.values())
+                .errors(errors.values())
+                .build();
+    }
+
+    /*
+    * 前缀归属单个分片时直接转发；否则向各分片查询同一起点之后的一页并按键归并
+    * 续页标记为已返回的最后一个键（或公共前缀），下一页各分片从该位置之后继续
+    * 归并和截断按UTF-8字节序比较，与各分片返回的顺序一致
+    * */
+    @Override
+    public ListObjectsV2Response listObjectsV2(ListObjectsV2Request request) {
+        List<Target> targets = topology.listTargets(request.prefix());
+        if (targets.size() == 1) {
+            Target target = targets.get(0);
+            return target.client().listObjectsV2(request.toBuilder().bucket(target.bucketName()).build());
+        }
+
+        int maxKeys = request.maxKeys() != null ? request.maxKeys() : MAX_KEYS;
+        String startAfter = request.continuationToken() != null
+                ? decodeToken(request.continuationToken())
+                : request.startAfter();
+
+        // 值为S3Object或公共前缀字符串
+        TreeMap<String, Object> entries = new TreeMap<>(KeyIndex::compareKeys);
+        String cutoff = null;
+        for (Target target : targets) {
+            ListObjectsV2Response page = target.client().listObjectsV2(request.toBuilder()
+                    .bucket(target.bucketName())
+                    .continuationToken(null)
+                    .startAfter(startAfter)
+                    .maxKeys(maxKeys)
+                    .build());
+            // 迁移期间同一个键可能同时存在于两个分片，取较新的
+            page.contents().forEach(object -> entries.merge(object.key(), object, ShardedS3Client::newer));
+            page.commonPrefixes().forEach(prefix -> entries.putIfAbsent(prefix.prefix(), prefix.prefix()));
+
+            // 某个分片还有下一页时，只能返回不超过该分片本页最后一项的条目
+            if (Boolean.TRUE.equals(page.isTruncated())) {
+                String last = lastEntry(page);
+                if (cutoff == null || KeyIndex.compareKeys(last, cutoff) < 0) {
+                    cutoff = last;
+                }
+            }
+        }
+
+        List<S3Object> contents = new ArrayList<>();
+        List<CommonPrefix> commonPrefixes = new ArrayList<>();
+        String lastReturned = null;
+        boolean lastIsPrefix = false;
+        for (Map.Entry<String, Object> entry : entries.entrySet()) {
+            if (contents.size() + commonPrefixes.size() == maxKeys
+                    || (cutoff != null && KeyIndex.compareKeys(entry.getKey(), cutoff) > 0)) {
+                break;
+            }
+            if (entry.getValue() instanceof S3Object object) {
+                contents.add(object);
+                lastIsPrefix = false;
+            } else {
+                commonPrefixes.add(CommonPrefix.builder().prefix(entry.getKey()).build());
+                lastIsPrefix = true;
+            }
+            lastReturned = entry.getKey();
+        }
+
+        int returned = contents.size() + commonPrefixes.size();
+        boolean truncated = cutoff != null || returned < entries.size();
+        return ListObjectsV2Response.builder()
+                .name(request.bucket())
+                .prefix(request.prefix())
+                .delimiter(request.delimiter())
+                .maxKeys(maxKeys)
+                .keyCount(returned)
+                .contents(contents)
+                .commonPrefixes(commonPrefixes)
+                .isTruncated(truncated)
+                .continuationToken(request.continuationToken())
+                .nextContinuationToken(truncated && lastReturned != null
+                        ? encodeToken(lastIsPrefix ? lastReturned + MAX_CHAR : lastReturned)
+                        : null)
+                .build();
+    }
+
+    /*
+    * 源和目标在同一endpoint时服务端跨桶复制，否则经本服务读出再写入（仅跨区域分片时发生）
+    * */
+    @Override
+    public CopyObjectResponse copyObject(CopyObjectRequest request) {
+        Target target = topology.primary(request.destinationKey());
+        return fromSource(request.sourceKey(), source -> {
+            if (ShardTopology.sameEndpoint(source, target)) {
+                return target.client().copyObject(request.toBuilder()
+                        .sourceBucket(source.bucketName())
+                        .destinationBucket(target.bucketName())
+                        .build());
+            }
+            try (ResponseInputStream<GetObjectResponse> in = source.client().getObject(GetObjectRequest.builder()
+                    .bucket(source.bucketName())
+                    .key(request.sourceKey())
+                    .ifMatch(request.copySourceIfMatch())
+                    .build())) {
+                GetObjectResponse object = in.response();
+                PutObjectResponse response = target.client().putObject(PutObjectRequest.builder()
+                                .bucket(target.bucketName())
+                                .key(request.destinationKey())
+                                .contentType(object.contentType())
+                                .contentEncoding(object.contentEncoding())
+                                .cacheControl(object.cacheControl())
+                                .metadata(object.metadata())
+                                .build(),
+                        RequestBody.fromInputStream(in, object.contentLength()));
+                return CopyObjectResponse.builder()
+                        .copyObjectResult(CopyObjectResult.builder()
+                                .eTag(response.eTag())
+                                .lastModified(Instant.now())
+                                .build())
+                        .build();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    @Override
+    public UploadPartCopyResponse uploadPartCopy(UploadPartCopyRequest request) {
+        Target target = topology.primary(request.destinationKey());
+        return fromSource(request.sourceKey(), source -> {
+            if (ShardTopology.sameEndpoint(source, target)) {
+                return target.client().uploadPartCopy(request.toBuilder()
+                        .sourceBucket(source.bucketName())
+                        .destinationBucket(target.bucketName())
+                        .build());
+            }
+            try (ResponseInputStream<GetObjectResponse> in = source.client().getObject(GetObjectRequest.builder()
+                    .bucket(source.bucketName())
+                    .key(request.sourceKey())
+                    .range(request.copySourceRange())
+                    .ifMatch(request.copySourceIfMatch())
+                    .build())) {
+                UploadPartResponse response = target.client().uploadPart(UploadPartRequest.builder()
+                                .bucket(target.bucketName())
+                                .key(request.destinationKey())
+                                .uploadId(request.uploadId())
+                                .partNumber(request.partNumber())
+                                .contentLength(in.response().contentLength())
+                                .build(),
+                        RequestBody.fromInputStream(in, in.response().contentLength()));
+                return UploadPartCopyResponse.builder()
+                        .copyPartResult(CopyPartResult.builder().eTag(response.eTag()).build())
+                        .build();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    @Override
+    public CreateMultipartUploadResponse createMultipartUpload(CreateMultipartUploadRequest request) {
+        Target target = topology.primary(request.key());
+        return target.client().createMultipartUpload(request.toBuilder().bucket(target.bucketName()).build());
+    }
+
+    @Override
+    public UploadPartResponse uploadPart(UploadPartRequest request, RequestBody requestBody) {
+        Target target = topology.primary(request.key());
+        return target.client().uploadPart(request.toBuilder().bucket(target.bucketName()).build(), requestBody);
+    }
+
+    @Override
+    public CompleteMultipartUploadResponse completeMultipartUpload(CompleteMultipartUploadRequest request) {
+        Target target = topology.primary(request.key());
+        return target.client().completeMultipartUpload(request.toBuilder().bucket(target.bucketName()).build());
+    }
+
+    @Override
+    public AbortMultipartUploadResponse abortMultipartUpload(AbortMultipartUploadRequest request) {
+        Target target = topology.primary(request.key());
+        return target.client().abortMultipartUpload(request.toBuilder().bucket(target.bucketName()).build());
+    }
+
+    @Override
+    public ListPartsResponse listParts(ListPartsRequest request) {
+        Target target = topology.primary(request.key());
+        return target.client().listParts(request.toBuilder().bucket(target.bucketName()).build());
+    }
+
+    public S3ServiceClientConfiguration serviceClientConfiguration() {
+        return topology.primaries().iterator().next().client().serviceClientConfiguration();
+    }
+
+    @Override
+    public String serviceName() {
+        return SERVICE_NAME;
+    }
+
+    /*
+    * 各分片客户端由ShardTopology关闭
+    * */
+    @Override
+    public void close() {
+    }
+
+    /*
+    * 依次尝试读取候选：文件不存在时尝试下一个；副本不可用时回退到主桶
+    * */
+    private <T> T read(String key, Function<Target, T> call) {
+        RuntimeException last = null;
+        for (Target target : topology.readTargets(key)) {
+            try {
+                return call.apply(target);
+            } catch (NoSuchKeyException e) {
+                last = e;
+            } catch (SdkException e) {
+                if (!target.replica()) {
+                    throw e;
+                }
+                log.warn("读取副本失败，回退到主桶: {} ({}), {}", target.bucketName(), target.region(), e.getMessage());
+                last = e;
+            }
+        }
+        throw last;
+    }
+
+    /*
+    * 依次以归属分片、之前的归属分片为复制源，源文件不存在时尝试下一个
+    * */
+    private <T> T fromSource(String sourceKey, Function<Target, T> call) {
+        S3Exception last = null;
+        for (Target source : topology.ownerTargets(sourceKey)) {
+            try {
+                return call.apply(source);
+            } catch (S3Exception e) {
+                if (e.statusCode() != 404) {
+                    throw e;
+                }
+                last = e;
+            }
+        }
+        throw last;
+    }
+
+    private static S3Object newer(S3Object a, S3Object b) {
+        if (a.lastModified() == null || b.lastModified() == null) {
+            return a;
+        }
+        return b.lastModified().isAfter(a.lastModified()) ? b : a;
+    }
+
+    private static String lastEntry(ListObjectsV2Response page) {
+        String lastKey = page.contents().isEmpty() ? "" : page.contents().get(page.contents().size() - 1).key();
+        String lastPrefix = page.commonPrefixes().isEmpty()
+                ? "" : page.commonPrefixes().get(page.commonPrefixes().size() - 1).prefix();
+        return KeyIndex.compareKeys(lastKey, lastPrefix) >= 0 ? lastKey : lastPrefix;
+    }
+
+    private static String encodeToken(String startAfter) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(startAfter.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decodeToken(String token) {
+        return new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,49 @@
+package org.example.spaces.service;
+
+import org.example.spaces.model.FileContent;
+import org.example.spaces.model.FileMetadata;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.concurrent.CompletableFuture;
+
+
+/*
+* 定义非阻塞的文件存储操作
+* 基于S3AsyncClient，调用线程不等待Spaces响应*/
+public interface AsyncSpacesService {
+    /*
+    * 上传文件
+    * @param file 要上传的文件
+    * @param folder 目标文件夹（可选）
+    * @return 文件元数据
+    * */
+    CompletableFuture<FileMetadata> uploadFile(MultipartFile file, String folder);
+
+    /*
+     * 打开文件，响应头到达后即完成，内容以阻塞输入流方式读取
+     * @param key 文件键
+     * @return 文件内容（使用后需关闭）
+     * */
+    CompletableFuture<FileContent> openFile(String key);
+
+    /*
+     * 获取文件元数据
+     * @param key 文件键
+     * @return 文件元数据
+     * */
+    CompletableFuture<FileMetadata> getFileMetadata(String key);
+
+    /*
+     * 删除文件
+     * @param key 文件键
+     * @return 是否删除成功
+     * */
+    CompletableFuture<Boolean> deleteFile(String key);
+
+    /*
+     * 检查文件是否存在
+     * @param key 文件键
+     * @return 是否存在
+     * */
+    CompletableFuture<Boolean> fileExists(String key);
+}
@@ -0,0 +1,58 @@
+package org.example.spaces.service;
+
+import org.example.spaces.model.CompleteMultipartRequest;
+import org.example.spaces.model.FileMetadata;
+import org.example.spaces.model.PresignedMultipartUpload;
+import org.example.spaces.model.PresignedUrl;
+
+import java.time.Duration;
+
+
+/*
+* 定义预签名URL相关操作
+* 客户端凭签名URL直接与Spaces传输，数据不经过本服务*/
+public interface PresignService {
+    /*
+    * 签发下载URL
+    * @param key 文件键
+    * @param expiry 有效期（可选，默认使用配置值）
+    * @return 预签名GET URL
+    * */
+    PresignedUrl presignDownload(String key, Duration expiry);
+
+    /*
+     * 签发上传URL，客户端必须携带签名时指定的Content-Type
+     * @param originalFilename 原始文件名
+     * @param folder 目标文件夹（可选）
+     * @param contentType 文件类型（可选）
+     * @param expiry 有效期（可选）
+     * @return 预签名PUT URL
+     * */
+    PresignedUrl presignUpload(String originalFilename, String folder, String contentType, Duration expiry);
+
+    /*
+     * 创建分片上传并签发各分片的上传URL
+     * @param originalFilename 原始文件名
+     * @param folder 目标文件夹（可选）
+     * @param contentType 文件类型（可选）
+     * @param partCount 分片数（1-10000）
+     * @param expiry 有效期（可选）
+     * @return 分片上传ID及各分片URL
+     * */
+    PresignedMultipartUpload presignMultipartUpload(String originalFilename, String folder, String contentType,
+                                                    int partCount, Duration expiry);
+
+    /*
+     * 完成分片上传
+     * @param request 分片上传ID及各分片eTag
+     * @return 文件元数据
+     * */
+    FileMetadata completeMultipartUpload(CompleteMultipartRequest request);
+
+    /*
+     * 中止分片上传
+     * @param key 文件键
+     * @param uploadId 分片上传ID
+     * */
+    void abortMultipartUpload(String key, String uploadId);
+}
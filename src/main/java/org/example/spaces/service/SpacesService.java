@@ -1,10 +1,20 @@
 package org.example.spaces.service;
 
+import org.example.spaces.model.BatchDeleteResult;
+import org.example.spaces.model.CacheStatistics;
+import org.example.spaces.model.ConditionalContent;
+import org.example.spaces.model.CopyProgress;
+import org.example.spaces.model.FileContent;
 import org.example.spaces.model.FileMetadata;
+import org.example.spaces.model.FilePage;
+import org.example.spaces.model.FileQuery;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.InputStream;
+import java.time.Instant;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 
 /*
@@ -18,6 +28,25 @@ public interface SpacesService {
     * */
     FileMetadata uploadFile(MultipartFile file, String folder);
 
+    /*
+     * 流式上传文件，直接读取请求体，超过分片大小时并发分片上传
+     * @param inputStream 文件内容输入流
+     * @param originalFilename 原始文件名
+     * @param contentType 文件类型
+     * @param folder 目标文件夹（可选）
+     * @return 文件元数据
+     * */
+    FileMetadata uploadFile(InputStream inputStream, String originalFilename, String contentType, String folder);
+
+    /*
+     * 流式上传到指定文件键，用于写回暂存的后台上传；不按去重复用其他文件，保证文件键不变
+     * @param key 文件键
+     * @param inputStream 文件内容输入流
+     * @param contentType 文件类型
+     * @return 文件元数据
+     * */
+    FileMetadata uploadFileAs(String key, InputStream inputStream, String contentType);
+
     /*
      * 下载文件
      * @param key 文件键
@@ -25,6 +54,38 @@ public interface SpacesService {
      * */
     InputStream downloadFile(String key);
 
+    /*
+     * 下载文件的指定字节区间
+     * @param key 文件键
+     * @param start 起始字节（包含）
+     * @param end 结束字节（包含）
+     * @return 区间内容输入流
+     * */
+    InputStream downloadFile(String key, long start, long end);
+
+    /*
+     * 下载文件指定版本的字节区间
+     * @param eTag 期望的ETag，文件已被覆盖时抛出FileChangedException并丢弃缓存的元数据；为null时不校验
+     * @return 区间内容输入流
+     * */
+    InputStream downloadFile(String key, long start, long end, String eTag);
+
+    /*
+     * 打开文件，一次GET同时返回元数据和内容，大文件按配置并发分段拉取
+     * @param key 文件键
+     * @return 文件内容（使用后需关闭）
+     * */
+    FileContent openFile(String key);
+
+    /*
+     * 条件打开文件，元数据已缓存时在本地比较校验器，否则把条件交给Spaces判断
+     * @param key 文件键
+     * @param ifNoneMatch 请求头If-None-Match（可选）
+     * @param ifModifiedSince 请求头If-Modified-Since（可选）
+     * @return 未修改时不含内容，否则同openFile（使用后需关闭）
+     * */
+    ConditionalContent openFileIfModified(String key, String ifNoneMatch, Instant ifModifiedSince);
+
     /*
      * 获取文件元数据
      * @param key 文件键
@@ -33,12 +94,60 @@ public interface SpacesService {
     FileMetadata getFileMetadata(String key);
 
     /*
-     * 列出所有文件
+     * 列出文件，最多返回一页（1000个），更多文件使用分页或流式列出
      * @param prefix 前缀过滤（可选）
      * @return 文件元数据列表
      * */
     List<FileMetadata> listFiles(String prefix);
 
+    /*
+     * 分页列出文件
+     * @param prefix 前缀过滤（可选）
+     * @param delimiter 分隔符（可选），如"/"时按文件夹聚合为公共前缀
+     * @param pageSize 每页数量（1-1000）
+     * @param cursor 上一页返回的游标（可选）
+     * @return 当前页文件与下一页游标
+     * */
+    FilePage listFiles(String prefix, String delimiter, int pageSize, String cursor);
+
+    /*
+     * 流式列出所有文件，遍历时按需拉取下一页
+     * @param prefix 前缀过滤（可选）
+     * @return 文件元数据流（使用后需关闭）
+     * */
+    Stream<FileMetadata> streamFiles(String prefix);
+
+    /*
+     * 按前缀、后缀、大小和修改时间查询本地文件键索引，不请求Spaces
+     * @param query 查询条件，limit为每页数量（1-1000）
+     * @return 当前页文件与下一页游标
+     * */
+    FilePage searchFiles(FileQuery query);
+
+    /*
+     * 服务端复制文件，数据不经过本服务，目标已存在时覆盖
+     * @param sourceKey 源文件键
+     * @param targetKey 目标文件键
+     * @return 目标文件元数据
+     * */
+    FileMetadata copyFile(String sourceKey, String targetKey);
+
+    /*
+     * 移动（重命名）文件：服务端复制后删除源文件
+     * @return 目标文件元数据
+     * */
+    FileMetadata moveFile(String sourceKey, String targetKey);
+
+    /*
+     * 复制或移动前缀下的所有文件，并发执行
+     * @param sourcePrefix 源前缀
+     * @param targetPrefix 目标前缀，源前缀替换为目标前缀即为目标键
+     * @param move 是否删除源文件
+     * @param listener 每完成一个文件回调一次进度，最后一次为汇总
+     * @return 汇总结果
+     * */
+    CopyProgress copyPrefix(String sourcePrefix, String targetPrefix, boolean move, Consumer<CopyProgress> listener);
+
     /*
      * 删除文件
      * @param key 文件键
@@ -46,6 +155,20 @@ public interface SpacesService {
      * */
     boolean deleteFile(String key);
 
+    /*
+     * 批量删除文件
+     * @param keys 文件键列表
+     * @return 每个键的删除结果
+     * */
+    BatchDeleteResult deleteFiles(List<String> keys);
+
+    /*
+     * 删除前缀下的所有文件
+     * @param prefix 前缀（不能为空）
+     * @return 每个键的删除结果
+     * */
+    BatchDeleteResult deleteByPrefix(String prefix);
+
     /*
      * 检查文件是否存在
      * @param key 文件键
@@ -53,6 +176,12 @@ public interface SpacesService {
      * */
     boolean fileExists(String key);
 
+    /*
+     * 获取元数据缓存统计
+     * @return 缓存命中/未命中统计
+     * */
+    CacheStatistics getCacheStatistics();
+
     /*
      * 生产文件的公共URL
      * @param key 文件键
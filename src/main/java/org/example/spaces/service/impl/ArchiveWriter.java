@@ -0,0 +1,266 @@
+package org.example.spaces.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.spaces.compression.Compressor;
+import org.example.spaces.config.SpacesConfig;
+import org.example.spaces.model.FileContent;
+import org.example.spaces.model.FileMetadata;
+import org.example.spaces.service.SpacesService;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.util.StringUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/*
+* 流式打包下载
+* 分页器按需列出文件，写出当前文件时后台预先打开后面几个文件，整个过程不落本地磁盘*/
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ArchiveWriter {
+    //读取失败的文件记录在该条目中
+    private static final String ERRORS_ENTRY = "ERRORS.txt";
+
+    //内容本身已压缩的类型，只存储不再压缩
+    private static final List<MimeType> COMPRESSED_TYPES = List.of(
+            MimeTypeUtils.parseMimeType("image/jpeg"),
+            MimeTypeUtils.parseMimeType("image/png"),
+            MimeTypeUtils.parseMimeType("image/gif"),
+            MimeTypeUtils.parseMimeType("image/webp"),
+            MimeTypeUtils.parseMimeType("image/avif"),
+            MimeTypeUtils.parseMimeType("video/*"),
+            MimeTypeUtils.parseMimeType("audio/*"),
+            MimeTypeUtils.parseMimeType("application/zip"),
+            MimeTypeUtils.parseMimeType("application/gzip"),
+            MimeTypeUtils.parseMimeType("application/x-gzip"),
+            MimeTypeUtils.parseMimeType("application/zstd"),
+            MimeTypeUtils.parseMimeType("application/x-bzip2"),
+            MimeTypeUtils.parseMimeType("application/x-xz"),
+            MimeTypeUtils.parseMimeType("application/x-7z-compressed"),
+            MimeTypeUtils.parseMimeType("application/vnd.rar"),
+            MimeTypeUtils.parseMimeType("application/pdf"));
+
+    //类型为application/octet-stream时按扩展名判断
+    private static final Set<String> COMPRESSED_EXTENSIONS = Set.of(
+            "jpg", "jpeg", "png", "gif", "webp", "avif", "heic",
+            "mp4", "mov", "mkv", "webm", "mp3", "aac", "ogg", "flac",
+            "zip", "gz", "tgz", "zst", "bz2", "xz", "7z", "rar", "jar", "docx", "xlsx", "pptx", "pdf");
+
+    private final SpacesService spacesService;
+    private final SpacesConfig spacesConfig;
+    private final Compressor compressor;
+    private final ExecutorService transferExecutor;
+
+    /*
+    * 预取结果：小文件为内存中的内容，大文件为已打开的流，失败时为异常
+    * */
+    private record Fetched(String key, FileMetadata metadata, byte[] buffered, FileContent content, Throwable error) {
+        static Fetched failed(String key, Throwable error) {
+            return new Fetched(key, null, null, null, error);
+        }
+
+        void discard() {
+            if (content != null) {
+                try {
+                    content.close();
+                } catch (IOException e) {
+                    log.debug("关闭预取的文件流失败: {}", key);
+                }
+            }
+        }
+    }
+
+    /*
+    * 将前缀下的所有文件打包为ZIP写入输出流
+    * 条目名称为对象键去掉前缀所在目录后的相对路径，读取失败或名称不可用的文件列在ERRORS.txt中
+    * @param prefix 对象键前缀
+    * @param outputStream 目标输出流，调用方负责关闭
+    * @return 写入的文件数
+    * */
+    public int write(String prefix, OutputStream outputStream) throws IOException {
+        SpacesConfig.Archive config = spacesConfig.getArchive();
+        String baseDirectory = prefix.substring(0, prefix.lastIndexOf('/') + 1);
+        Deque<CompletableFuture<Fetched>> window = new ArrayDeque<>();
+        List<String> failures = new ArrayList<>();
+        // 已写出的条目名称，ERRORS.txt预先占用
+        Set<String> entryNames = new HashSet<>(Set.of(ERRORS_ENTRY));
+        int written = 0;
+
+        ZipOutputStream zip = new ZipOutputStream(outputStream, StandardCharsets.UTF_8);
+        try (Stream<FileMetadata> files = spacesService.streamFiles(prefix)) {
+            // 目录占位对象不打包
+            Iterator<FileMetadata> iterator = files.filter(file -> !file.getKey().endsWith("/")).iterator();
+            try {
+                while (window.size() <= config.getPrefetch() && iterator.hasNext()) {
+                    window.add(fetch(iterator.next()));
+                }
+                while (!window.isEmpty()) {
+                    Fetched fetched = window.poll().join();
+                    // 先补充预取窗口，写出当前文件时后面的文件已在打开
+                    if (iterator.hasNext()) {
+                        window.add(fetch(iterator.next()));
+                    }
+                    if (writeEntry(zip, baseDirectory, fetched, entryNames, failures)) {
+                        written++;
+                    }
+                }
+            } finally {
+                // 写出中途失败（如客户端断开）时释放已打开的连接
+                window.forEach(future -> future.thenAccept(Fetched::discard));
+            }
+        }
+
+        if (!failures.isEmpty()) {
+            zip.setLevel(Deflater.DEFAULT_COMPRESSION);
+            zip.putNextEntry(new ZipEntry(ERRORS_ENTRY));
+            zip.write(String.join("\n", failures).getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+        }
+        zip.finish();
+        zip.flush();
+
+        log.info("打包下载完成，前缀: {}, 文件数: {}, 失败: {}", prefix, written, failures.size());
+        return written;
+    }
+
+    /*
+    * 在传输线程池中打开文件，不超过阈值的文件直接读入内存并释放连接
+    * */
+    private CompletableFuture<Fetched> fetch(FileMetadata listed) {
+        String key = listed.getKey();
+        long threshold = spacesConfig.getArchive().getBufferThreshold().toBytes();
+        return CompletableFuture.supplyAsync(() -> {
+            FileContent content = spacesService.openFile(key);
+            if (listed.getSize() > threshold) {
+                return new Fetched(key, content.getMetadata(), null, content, null);
+            }
+            try (content) {
+                return new Fetched(key, content.getMetadata(), content.getInputStream().readAllBytes(), null, null);
+            } catch (IOException e) {
+                return Fetched.failed(key, e);
+            }
+        }, transferExecutor).exceptionally(e -> Fetched.failed(key,
+                e instanceof CompletionException && e.getCause() != null ? e.getCause() : e));
+    }
+
+    /*
+    * 写出一个条目，读取源文件失败时记录并继续；写出到客户端失败时抛出
+    * @return 是否完整写出
+    * */
+    private boolean writeEntry(ZipOutputStream zip, String baseDirectory, Fetched fetched,
+                               Set<String> entryNames, List<String> failures) throws IOException {
+        if (fetched.error() != null) {
+            log.error("打包下载读取文件失败: {}, {}", fetched.key(), fetched.error().getMessage());
+            failures.add(fetched.key() + ": " + fetched.error().getMessage());
+            return false;
+        }
+
+        // 规范化后为空或与已写出的条目重名（如 a/./b 与 a/b）时跳过，重名条目会使ZipOutputStream抛出异常
+        String name = entryName(baseDirectory, fetched.key());
+        if (name == null || !entryNames.add(name)) {
+            log.warn("打包下载跳过文件: {}, 条目名称: {}", fetched.key(), name);
+            failures.add(fetched.key() + ": " + (name == null ? "无法生成有效的条目名称" : "条目名称重复: " + name));
+            fetched.discard();
+            return false;
+        }
+
+        FileMetadata metadata = fetched.metadata();
+        ZipEntry entry = new ZipEntry(name);
+        if (metadata.getLastModified() != null) {
+            entry.setLastModifiedTime(FileTime.from(metadata.getLastModified()));
+        }
+        // java.util.zip的STORED条目需要预先知道CRC，流式写出时改用0级压缩，开销约为每64KB五个字节
+        zip.setLevel(isCompressed(fetched.key(), metadata.getContentType())
+                ? Deflater.NO_COMPRESSION : Deflater.DEFAULT_COMPRESSION);
+        zip.putNextEntry(entry);
+
+        InputStream stored = fetched.buffered() != null
+                ? new ByteArrayInputStream(fetched.buffered())
+                : fetched.content().getInputStream();
+        // 透明压缩的对象解压后再打包
+        try (InputStream source = compressor.decode(stored, metadata.getContentEncoding())) {
+            byte[] buffer = new byte[64 * 1024];
+            int n;
+            while (true) {
+                try {
+                    n = source.read(buffer);
+                } catch (IOException e) {
+                    // 条目内容不完整但ZIP结构仍然有效
+                    log.error("打包下载读取文件中断: {}, {}", fetched.key(), e.getMessage());
+                    failures.add(fetched.key() + ": 读取中断，内容不完整, " + e.getMessage());
+                    zip.closeEntry();
+                    return false;
+                }
+                if (n < 0) {
+                    break;
+                }
+                zip.write(buffer, 0, n);
+            }
+        } finally {
+            fetched.discard();
+        }
+        zip.closeEntry();
+        return true;
+    }
+
+    /*
+    * 对象键相对于前缀所在目录的路径，前缀本身就是对象键时取文件名
+    * 去掉 .、..、空段和开头的斜杠（反斜杠同样视为分隔符），解压时不会写到目标目录之外；什么都不剩时返回null
+    * */
+    private static String entryName(String baseDirectory, String key) {
+        String name = normalize(key.startsWith(baseDirectory) ? key.substring(baseDirectory.length()) : key);
+        if (name.isEmpty()) {
+            name = normalize(key.substring(key.lastIndexOf('/') + 1));
+        }
+        return name.isEmpty() ? null : name;
+    }
+
+    private static String normalize(String path) {
+        StringJoiner joiner = new StringJoiner("/");
+        for (String segment : path.split("[/\\\\]")) {
+            if (!segment.isEmpty() && !segment.equals(".") && !segment.equals("..")) {
+                joiner.add(segment);
+            }
+        }
+        return joiner.toString();
+    }
+
+    private static boolean isCompressed(String key, String contentType) {
+        if (StringUtils.hasText(contentType)) {
+            try {
+                MimeType mimeType = MimeTypeUtils.parseMimeType(contentType);
+                if (COMPRESSED_TYPES.stream().anyMatch(type -> type.includes(mimeType))) {
+                    return true;
+                }
+            } catch (IllegalArgumentException e) {
+                // 非法类型按扩展名判断
+            }
+        }
+        String extension = StringUtils.getFilenameExtension(key);
+        return extension != null && COMPRESSED_EXTENSIONS.contains(extension.toLowerCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,243 @@
+package org.example.spaces.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.spaces.cache.ContentHashIndex;
+import org.example.spaces.cache.KeyIndex;
+import org.example.spaces.cache.MetadataCache;
+import org.example.spaces.checksum.Checksummer;
+import org.example.spaces.compression.Compressor;
+import org.example.spaces.config.SpacesConfig;
+import org.example.spaces.exception.FileStorageException;
+import org.example.spaces.model.FileContent;
+import org.example.spaces.model.FileMetadata;
+import org.example.spaces.service.AsyncSpacesService;
+import org.example.spaces.service.SpacesService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import org.springframework.web.multipart.MultipartFile;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+
+/*
+* 基于S3AsyncClient的文件存储实现
+* 需要边读边处理内容的上传（压缩、去重、校验和）交给同步上传流程，在传输执行器（虚拟线程）上执行，保证两个后端结果一致；
+* 下载与同步实现一样请求校验和并边读边校验*/
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "digitalocean.spaces.async", name = "enabled", havingValue = "true")
+public class AsyncSpacesServiceImpl implements AsyncSpacesService {
+    private final S3AsyncClient s3AsyncClient;
+    private final SpacesConfig spacesConfig;
+    private final SpacesService spacesService;
+    private final MetadataCache metadataCache;
+    private final KeyIndex keyIndex;
+    private final Compressor compressor;
+    private final ContentHashIndex contentHashIndex;
+    private final UploadSpool uploadSpool;
+    private final Checksummer checksummer;
+    private final ExecutorService transferExecutor;
+
+    @Override
+    public CompletableFuture<FileMetadata> uploadFile(MultipartFile file, String folder) {
+        if (file.isEmpty()) {
+            return CompletableFuture.failedFuture(new FileStorageException("上传文件不能为空"));
+        }
+
+        if (requiresPipeline(file.getContentType())) {
+            return CompletableFuture.supplyAsync(() -> spacesService.uploadFile(file, folder), transferExecutor);
+        }
+
+        String originalFilename = StringUtils.cleanPath(file.getOriginalFilename());
+        String key = SpacesServiceImpl.buildKey(originalFilename, folder);
+        log.info("开始异步上传文件: {} -> {}", originalFilename, key);
+
+        PutObjectRequest putRequest = PutObjectRequest.builder()
+                .bucket(spacesConfig.getBucketName())
+                .key(key)
+                .contentType(file.getContentType())
+                .contentLength(file.getSize())
+                .build();
+
+        AsyncRequestBody body;
+        try {
+            // 输入流由传输执行器读取，请求线程不阻塞
+            body = AsyncRequestBody.fromInputStream(file.getInputStream(), file.getSize(), transferExecutor);
+        } catch (IOException e) {
+            log.error("文件上传失败: {}", e.getMessage());
+            return CompletableFuture.failedFuture(new FileStorageException("文件上传失败: " + e.getMessage()));
+        }
+
+        return s3AsyncClient.putObject(putRequest, body)
+                .thenApply(response -> {
+                    log.info("文件上传成功，ETag: {}", response.eTag());
+                    FileMetadata metadata = FileMetadata.builder()
+                            .key(key)
+                            .size(file.getSize())
+                            .lastModified(Instant.now())
+                            .eTag(response.eTag())
+                            .contentType(file.getContentType())
+                            .publicUrl(spacesService.generatePublicUrl(key))
+                            .build();
+                    metadataCache.put(metadata);
+                    keyIndex.put(metadata);
+                    return metadata;
+                })
+                .exceptionally(e -> {
+                    throw translate(e, key, "文件上传");
+                });
+    }
+
+    @Override
+    public CompletableFuture<FileContent> openFile(String key) {
+        log.info("开始异步下载文件: {}", key);
+
+        GetObjectRequest getRequest = checksummer.request(GetObjectRequest.builder()
+                .bucket(spacesConfig.getBucketName())
+                .key(key))
+                .build();
+
+        return s3AsyncClient.getObject(getRequest, AsyncResponseTransformer.toBlockingInputStream())
+                .thenApply(inputStream -> {
+                    GetObjectResponse response = inputStream.response();
+                    FileMetadata metadata = checksummer.describe(FileMetadata.builder()
+                                    .key(key)
+                                    .size(response.contentLength())
+                                    .lastModified(response.lastModified())
+                                    .eTag(response.eTag())
+                                    .contentType(response.contentType())
+                                    .contentEncoding(response.contentEncoding())
+                                    .publicUrl(spacesService.generatePublicUrl(key)),
+                            response.checksumCRC32C(), response.checksumSHA256(), response.metadata())
+                            .build();
+                    metadataCache.put(metadata);
+                    return new FileContent(metadata, checksummer.verify(inputStream, metadata));
+                })
+                .exceptionally(e -> {
+                    throw translate(e, key, "下载文件");
+                });
+    }
+
+    @Override
+    public CompletableFuture<FileMetadata> getFileMetadata(String key) {
+        return headObject(key).thenApply(metadata -> metadata.orElseThrow(() -> {
+            log.error("文件不存在: {}", key);
+            return new FileStorageException("文件不存在: " + key);
+        }));
+    }
+
+    /*
+    * 是否需要走同步上传流程：压缩、去重和校验和都要在上传前读取内容
+    * */
+    private boolean requiresPipeline(String contentType) {
+        return compressor.isCompressible(contentType) || contentHashIndex.isEnabled() || checksummer.isEnabled();
+    }
+
+    @Override
+    public CompletableFuture<Boolean> deleteFile(String key) {
+        log.info("异步删除文件：{}", key);
+
+        // 仍在写回暂存中的文件先取消后台上传
+        uploadSpool.cancel(key);
+
+        DeleteObjectRequest deleteRequest = DeleteObjectRequest.builder()
+                .bucket(spacesConfig.getBucketName())
+                .key(key)
+                .build();
+
+        return s3AsyncClient.deleteObject(deleteRequest)
+                .thenApply(response -> {
+                    metadataCache.markMissing(key);
+                    keyIndex.remove(key);
+                    log.info("删除成功：{}", key);
+                    return true;
+                })
+                .exceptionally(e -> {
+                    // 与同步实现一致：重试用尽仍被限流时交给调用方处理（503），而不是当作删除失败
+                    Throwable cause = unwrap(e);
+                    if (cause instanceof S3Exception s3Exception && s3Exception.isThrottlingException()) {
+                        log.warn("删除文件被限流: {}", key);
+                        throw new FileStorageException("删除文件被限流: " + cause.getMessage(), cause);
+                    }
+                    if (!(cause instanceof S3Exception)) {
+                        throw translate(e, key, "删除文件");
+                    }
+                    log.error("删除文件失败: {}", cause.getMessage());
+                    return false;
+                });
+    }
+
+    @Override
+    public CompletableFuture<Boolean> fileExists(String key) {
+        return headObject(key).thenApply(Optional::isPresent);
+    }
+
+    /*
+    * 先查元数据缓存，未命中时发起异步HEAD，文件不存在时返回Optional.empty()
+    * */
+    private CompletableFuture<Optional<FileMetadata>> headObject(String key) {
+        Optional<FileMetadata> cached = metadataCache.getIfPresent(key);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        HeadObjectRequest headRequest = checksummer.request(HeadObjectRequest.builder()
+                .bucket(spacesConfig.getBucketName())
+                .key(key))
+                .build();
+
+        return s3AsyncClient.headObject(headRequest)
+                .thenApply(response -> {
+                    FileMetadata metadata = checksummer.describe(FileMetadata.builder()
+                                    .key(key)
+                                    .size(response.contentLength())
+                                    .lastModified(response.lastModified())
+                                    .eTag(response.eTag())
+                                    .contentType(response.contentType())
+                                    .contentEncoding(response.contentEncoding())
+                                    .publicUrl(spacesService.generatePublicUrl(key)),
+                            response.checksumCRC32C(), response.checksumSHA256(), response.metadata())
+                            .build();
+                    metadataCache.put(metadata);
+                    return Optional.of(metadata);
+                })
+                .exceptionally(e -> {
+                    if (unwrap(e) instanceof NoSuchKeyException) {
+                        metadataCache.markMissing(key);
+                        return Optional.empty();
+                    }
+                    throw translate(e, key, "获取文件元数据");
+                });
+    }
+
+    private static Throwable unwrap(Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+    }
+
+    /*
+    * 将异步异常转换为FileStorageException，交由全局异常处理器处理
+    * */
+    private FileStorageException translate(Throwable e, String key, String operation) {
+        Throwable cause = unwrap(e);
+        if (cause instanceof FileStorageException fileStorageException) {
+            return fileStorageException;
+        }
+        if (cause instanceof NoSuchKeyException) {
+            log.error("文件不存在: {}", key);
+            return new FileStorageException("文件不存在: " + key);
+        }
+        log.error("{}失败: {}", operation, cause.getMessage());
+        return new FileStorageException(operation + "失败: " + cause.getMessage(), cause);
+    }
+}
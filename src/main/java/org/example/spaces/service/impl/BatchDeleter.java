@@ -0,0 +1,167 @@
+package org.example.spaces.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.spaces.cache.KeyIndex;
+import org.example.spaces.cache.MetadataCache;
+import org.example.spaces.config.SpacesConfig;
+import org.example.spaces.exception.FileStorageException;
+import org.example.spaces.model.BatchDeleteResult;
+import org.example.spaces.model.FileError;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Collectors;
+
+/*
+* 批量删除
+* 按DeleteObjects上限分批，批次并发执行，前缀删除时边列出边删除*/
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BatchDeleter {
+    //DeleteObjects单次最多1000个键
+    private static final int MAX_BATCH_SIZE = 1000;
+
+    private final S3Client s3Client;
+    private final SpacesConfig spacesConfig;
+    private final MetadataCache metadataCache;
+    private final KeyIndex keyIndex;
+    private final ExecutorService transferExecutor;
+
+    /*
+    * 删除指定的文件键
+    * @param keys 文件键
+    * @return 每个键的删除结果
+    * */
+    public BatchDeleteResult deleteKeys(List<String> keys) {
+        List<List<String>> batches = new ArrayList<>();
+        for (int i = 0; i < keys.size(); i += MAX_BATCH_SIZE) {
+            batches.add(keys.subList(i, Math.min(keys.size(), i + MAX_BATCH_SIZE)));
+        }
+        return deleteBatches(batches.iterator());
+    }
+
+    /*
+    * 删除前缀下的所有文件，每拿到一页列表就提交一批删除
+    * @param prefix 前缀
+    * @return 每个键的删除结果
+    * */
+    public BatchDeleteResult deletePrefix(String prefix) {
+        ListObjectsV2Request request = ListObjectsV2Request.builder()
+                .bucket(spacesConfig.getBucketName())
+                .prefix(prefix)
+                .maxKeys(MAX_BATCH_SIZE)
+                .build();
+
+        Iterator<List<String>> batches = s3Client.listObjectsV2Paginator(request).stream()
+                .map(page -> page.contents().stream()
+                        .map(S3Object::key)
+                        .collect(Collectors.toList()))
+                .filter(batch -> !batch.isEmpty())
+                .iterator();
+        return deleteBatches(batches);
+    }
+
+    private BatchDeleteResult deleteBatches(Iterator<List<String>> batches) {
+        // 获取许可后再取下一批，列表拉取速度受删除进度约束
+        Semaphore permits = new Semaphore(spacesConfig.getBatchDelete().getParallelism());
+        List<CompletableFuture<BatchDeleteResult>> futures = new ArrayList<>();
+
+        try {
+            while (true) {
+                permits.acquire();
+                if (!batches.hasNext()) {
+                    permits.release();
+                    break;
+                }
+                List<String> batch = batches.next();
+                futures.add(CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return deleteBatch(batch);
+                    } finally {
+                        permits.release();
+                    }
+                }, transferExecutor));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FileStorageException("批量删除被中断", e);
+        }
+
+        List<String> deleted = new ArrayList<>();
+        List<FileError> errors = new ArrayList<>();
+        for (CompletableFuture<BatchDeleteResult> future : futures) {
+            BatchDeleteResult result = future.join();
+            deleted.addAll(result.getDeletedKeys());
+            errors.addAll(result.getErrors());
+        }
+
+        log.info("批量删除完成，成功: {}, 失败: {}", deleted.size(), errors.size());
+        return BatchDeleteResult.builder()
+                .deletedCount(deleted.size())
+                .failedCount(errors.size())
+                .deletedKeys(deleted)
+                .errors(errors)
+                .build();
+    }
+
+    /*
+    * 执行一次DeleteObjects，整批请求失败时所有键都记为失败
+    * */
+    private BatchDeleteResult deleteBatch(List<String> keys) {
+        try {
+            DeleteObjectsRequest request = DeleteObjectsRequest.builder()
+                    .bucket(spacesConfig.getBucketName())
+                    .delete(Delete.builder()
+                            .objects(keys.stream()
+                                    .map(key -> ObjectIdentifier.builder().key(key).build())
+                                    .collect(Collectors.toList()))
+                            .build())
+                    .build();
+
+            DeleteObjectsResponse response = s3Client.deleteObjects(request);
+
+            List<String> deleted = response.deleted().stream()
+                    .map(DeletedObject::key)
+                    .collect(Collectors.toList());
+            deleted.forEach(metadataCache::markMissing);
+            deleted.forEach(keyIndex::remove);
+
+            List<FileError> errors = response.errors().stream()
+                    .map(error -> FileError.builder()
+                            .key(error.key())
+                            .code(error.code())
+                            .message(error.message())
+                            .build())
+                    .collect(Collectors.toList());
+            errors.forEach(error -> metadataCache.invalidate(error.getKey()));
+
+            return BatchDeleteResult.builder()
+                    .deletedKeys(deleted)
+                    .errors(errors)
+                    .build();
+
+        } catch (S3Exception e) {
+            log.error("批量删除请求失败: {}", e.getMessage());
+            String code = e.awsErrorDetails() != null ? e.awsErrorDetails().errorCode() : null;
+            return BatchDeleteResult.builder()
+                    .deletedKeys(List.of())
+                    .errors(keys.stream()
+                            .map(key -> FileError.builder()
+                                    .key(key)
+                                    .code(code)
+                                    .message(e.getMessage())
+                                    .build())
+                            .collect(Collectors.toList()))
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package org.example.spaces.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.spaces.config.SpacesConfig;
+import org.example.spaces.exception.FileStorageException;
+import org.example.spaces.model.BulkUploadResult;
+import org.example.spaces.model.FileError;
+import org.example.spaces.model.FileMetadata;
+import org.example.spaces.service.SpacesService;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+
+/*
+* 批量上传
+* 按顺序读取请求中的文件，小文件读入内存后并发上传，大文件在读取线程上直接流式上传*/
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BulkUploader {
+    private final SpacesService spacesService;
+    private final SpacesConfig spacesConfig;
+    private final ExecutorService transferExecutor;
+
+    /*
+    * 请求中的一个文件，输入流只在下一次调用PartSource.next()之前有效
+    * */
+    public record Part(String originalFilename, String contentType, InputStream inputStream) {
+    }
+
+    /*
+    * 文件来源，如multipart请求的流式迭代器
+    * */
+    @FunctionalInterface
+    public interface PartSource {
+        //返回下一个文件，没有时返回null
+        Part next() throws IOException;
+    }
+
+    private record Outcome(FileMetadata metadata, FileError error) {
+    }
+
+    /*
+    * 上传所有文件
+    * @param parts 文件来源
+    * @param folder 目标文件夹（可选）
+    * @return 每个文件的上传结果
+    * */
+    public BulkUploadResult upload(PartSource parts, String folder) throws IOException {
+        int threshold = Math.toIntExact(spacesConfig.getMultipart().getPartSize().toBytes());
+        // 获取许可后再读取下一个文件，内存中最多parallelism个文件
+        Semaphore permits = new Semaphore(spacesConfig.getBulkUpload().getParallelism());
+        List<CompletableFuture<Outcome>> futures = new ArrayList<>();
+
+        try {
+            while (true) {
+                permits.acquire();
+                Part part = parts.next();
+                if (part == null) {
+                    permits.release();
+                    break;
+                }
+
+                byte[] head;
+                try {
+                    head = part.inputStream().readNBytes(threshold);
+                } catch (IOException e) {
+                    permits.release();
+                    throw e;
+                }
+
+                if (head.length < threshold) {
+                    futures.add(CompletableFuture.supplyAsync(() -> {
+                        try {
+                            return uploadOne(part, folder, new ByteArrayInputStream(head));
+                        } finally {
+                            permits.release();
+                        }
+                    }, transferExecutor));
+                } else {
+                    // 大文件必须读完才能读取下一个文件，直接在当前线程上传（内部按分片并发）
+                    try {
+                        InputStream remaining = new SequenceInputStream(new ByteArrayInputStream(head), part.inputStream());
+                        futures.add(CompletableFuture.completedFuture(uploadOne(part, folder, remaining)));
+                    } finally {
+                        permits.release();
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FileStorageException("批量上传被中断", e);
+        }
+
+        List<FileMetadata> files = new ArrayList<>();
+        List<FileError> errors = new ArrayList<>();
+        for (CompletableFuture<Outcome> future : futures) {
+            Outcome outcome = future.join();
+            if (outcome.metadata() != null) {
+                files.add(outcome.metadata());
+            } else {
+                errors.add(outcome.error());
+            }
+        }
+
+        log.info("批量上传完成，成功: {}, 失败: {}", files.size(), errors.size());
+        return BulkUploadResult.builder()
+                .uploadedCount(files.size())
+                .failedCount(errors.size())
+                .files(files)
+                .errors(errors)
+                .build();
+    }
+
+    /*
+    * 上传单个文件，失败记录在结果中，不影响其他文件
+    * */
+    private Outcome uploadOne(Part part, String folder, InputStream inputStream) {
+        try {
+            FileMetadata metadata = spacesService.uploadFile(
+                    inputStream, part.originalFilename(), part.contentType(), folder);
+            return new Outcome(metadata, null);
+        } catch (RuntimeException e) {
+            log.error("批量上传文件失败: {}, {}", part.originalFilename(), e.getMessage());
+            return new Outcome(null, FileError.builder()
+                    .key(part.originalFilename())
+                    .code(errorCode(e))
+                    .message(e.getMessage())
+                    .build());
+        }
+    }
+
+    // 取异常链中的S3错误码，没有时使用异常类型
+    private static String errorCode(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof AwsServiceException serviceException
+                    && serviceException.awsErrorDetails() != null
+                    && serviceException.awsErrorDetails().errorCode() != null) {
+                return serviceException.awsErrorDetails().errorCode();
+            }
+        }
+        return e.getClass().getSimpleName();
+    }
+}
@@ -0,0 +1,240 @@
+package org.example.spaces.service.impl;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.spaces.checksum.Checksummer;
+import org.example.spaces.config.SpacesConfig;
+import org.example.spaces.exception.FileStorageException;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+/*
+* 流式分片上传
+* 按分片大小切分输入流，并发执行UploadPart，缓冲区个数受parallelism限制*/
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MultipartUploader {
+    //S3单次分片上传最多10000片，预签名、复制和分块会话共用
+    static final int MAX_PARTS = 10_000;
+
+    //S3要求除最后一片外每片不小于5MB
+    private static final int MIN_PART_SIZE = 5 * 1024 * 1024;
+
+    private final S3Client s3Client;
+    private final SpacesConfig spacesConfig;
+    private final Checksummer checksummer;
+    private final ExecutorService transferExecutor;
+
+    /*
+    * 上传结果
+    * */
+    @Getter
+    @AllArgsConstructor
+    public static class Result {
+        private final String eTag;
+        private final long size;
+
+        //是否已写入Spaces；shouldCommit返回false时为false
+        private final boolean committed;
+
+        //存储内容的校验和，未开启校验和时为null；分片上传时为复合校验和
+        private final String checksum;
+
+        //分片上传时的分片大小，单次putObject时为null
+        private final Long checksumPartSize;
+    }
+
+    /*
+    * 上传输入流，不足一个分片时退化为单次putObject
+    * @param key 文件键
+    * @param contentType 文件类型
+    * @param inputStream 输入流，由调用方负责关闭
+    * @return 上传结果
+    * */
+    public Result upload(String key, String contentType, InputStream inputStream) throws IOException {
+        return upload(key, contentType, null, inputStream, Map.of(), () -> true);
+    }
+
+    /*
+    * 上传输入流，并在提交（putObject/CompleteMultipartUpload）前询问是否继续
+    * @param contentEncoding 输入流已编码时的Content-Encoding（可选）
+    * @param metadata 对象自定义元数据
+    * @param shouldCommit 输入流读完后、提交前调用，返回false时放弃上传
+    * @return 上传结果，放弃时committed为false
+    * */
+    public Result upload(String key, String contentType, String contentEncoding, InputStream inputStream,
+                         Map<String, String> metadata, BooleanSupplier shouldCommit) throws IOException {
+        SpacesConfig.Multipart config = spacesConfig.getMultipart();
+        int partSize = Math.toIntExact(Math.max(MIN_PART_SIZE, config.getPartSize().toBytes()));
+        long maxObjectSize = config.getMaxObjectSize().toBytes();
+
+        byte[] first = inputStream.readNBytes(partSize);
+        if (first.length < partSize) {
+            if (!shouldCommit.getAsBoolean()) {
+                return new Result(null, first.length, false, null, null);
+            }
+            // 内容已在内存中，校验和在发送前一次算出，作为请求头随请求发送
+            String checksum = checksummer.checksumOf(first);
+            PutObjectResponse response = s3Client.putObject(checksummer.apply(PutObjectRequest.builder()
+                                    .bucket(spacesConfig.getBucketName())
+                                    .key(key)
+                                    .contentType(contentType)
+                                    .contentEncoding(contentEncoding)
+                                    .contentLength((long) first.length)
+                                    .metadata(metadata),
+                            checksum).build(),
+                    RequestBody.fromBytes(first));
+            return new Result(response.eTag(), first.length, true, checksum, null);
+        }
+
+        Map<String, String> objectMetadata = metadata;
+        if (checksummer.isEnabled()) {
+            objectMetadata = new HashMap<>(metadata);
+            objectMetadata.put(Checksummer.PART_SIZE_METADATA_KEY, String.valueOf(partSize));
+        }
+        String uploadId = s3Client.createMultipartUpload(checksummer.apply(CreateMultipartUploadRequest.builder()
+                .bucket(spacesConfig.getBucketName())
+                .key(key)
+                .contentType(contentType)
+                .contentEncoding(contentEncoding)
+                .metadata(objectMetadata)).build()).uploadId();
+        log.info("开始分片上传: {}, uploadId: {}", key, uploadId);
+
+        // 信号量在读取分片前获取，保证同一时刻最多parallelism个缓冲区
+        Semaphore permits = new Semaphore(config.getParallelism());
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<CompletableFuture<CompletedPart>> futures = new ArrayList<>();
+        long total = 0;
+
+        try {
+            byte[] buffer = first;
+            int partNumber = 1;
+            permits.acquire();
+            while (true) {
+                total += buffer.length;
+                if (total > maxObjectSize) {
+                    throw new FileStorageException("文件大小超出限制: " + config.getMaxObjectSize());
+                }
+                if (partNumber > MAX_PARTS) {
+                    throw new FileStorageException("分片数超出限制，请增大分片大小");
+                }
+
+                futures.add(submitPart(key, uploadId, partNumber++, buffer, permits, failure));
+                if (buffer.length < partSize) {
+                    break;
+                }
+
+                permits.acquire();
+                // 已有分片失败时不再读取，下面的join会抛出失败原因
+                if (failure.get() != null) {
+                    permits.release();
+                    break;
+                }
+                buffer = inputStream.readNBytes(partSize);
+                if (buffer.length == 0) {
+                    permits.release();
+                    break;
+                }
+            }
+
+            List<CompletedPart> parts = new ArrayList<>(futures.size());
+            for (CompletableFuture<CompletedPart> future : futures) {
+                parts.add(future.join());
+            }
+            parts.sort(Comparator.comparing(CompletedPart::partNumber));
+
+            if (!shouldCommit.getAsBoolean()) {
+                abort(key, uploadId, futures);
+                return new Result(null, total, false, null, null);
+            }
+
+            CompleteMultipartUploadResponse response = s3Client.completeMultipartUpload(
+                    CompleteMultipartUploadRequest.builder()
+                            .bucket(spacesConfig.getBucketName())
+                            .key(key)
+                            .uploadId(uploadId)
+                            .multipartUpload(CompletedMultipartUpload.builder().parts(parts).build())
+                            .build());
+
+            log.info("分片上传完成: {}, 分片数: {}, 大小: {} bytes", key, parts.size(), total);
+            String checksum = checksummer.composite(parts);
+            return new Result(response.eTag(), total, true, checksum, checksum != null ? (long) partSize : null);
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abort(key, uploadId, futures);
+            throw new FileStorageException("分片上传被中断: " + key, e);
+        } catch (CompletionException e) {
+            abort(key, uploadId, futures);
+            throw new FileStorageException("分片上传失败: " + e.getCause().getMessage(), e.getCause());
+        } catch (IOException | RuntimeException e) {
+            abort(key, uploadId, futures);
+            throw e;
+        }
+    }
+
+    /*
+    * 提交一个分片，完成后释放调用方已获取的许可
+    * */
+    private CompletableFuture<CompletedPart> submitPart(String key, String uploadId, int partNumber,
+                                                        byte[] buffer, Semaphore permits,
+                                                        AtomicReference<Throwable> failure) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                // 在上传线程上计算，与读取下一个分片并行
+                String checksum = checksummer.checksumOf(buffer);
+                UploadPartResponse response = s3Client.uploadPart(checksummer.apply(UploadPartRequest.builder()
+                                        .bucket(spacesConfig.getBucketName())
+                                        .key(key)
+                                        .uploadId(uploadId)
+                                        .partNumber(partNumber)
+                                        .contentLength((long) buffer.length),
+                                checksum).build(),
+                        RequestBody.fromBytes(buffer));
+                return checksummer.apply(CompletedPart.builder()
+                                .partNumber(partNumber)
+                                .eTag(response.eTag()),
+                        checksum).build();
+            } catch (RuntimeException e) {
+                failure.compareAndSet(null, e);
+                throw e;
+            } finally {
+                permits.release();
+            }
+        }, transferExecutor);
+    }
+
+    private void abort(String key, String uploadId, List<CompletableFuture<CompletedPart>> futures) {
+        // 等待已提交的分片结束，避免abort之后仍有分片写入
+        futures.forEach(future -> future.handle((part, e) -> null).join());
+        try {
+            s3Client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                    .bucket(spacesConfig.getBucketName())
+                    .key(key)
+                    .uploadId(uploadId)
+                    .build());
+            log.warn("分片上传已中止: {}, uploadId: {}", key, uploadId);
+        } catch (S3Exception e) {
+            log.error("中止分片上传失败: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package org.example.spaces.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.spaces.cache.KeyIndex;
+import org.example.spaces.cache.MetadataCache;
+import org.example.spaces.config.SpacesConfig;
+import org.example.spaces.exception.FileStorageException;
+import org.example.spaces.model.BatchDeleteResult;
+import org.example.spaces.model.CopyProgress;
+import org.example.spaces.model.FileError;
+import org.example.spaces.model.FileMetadata;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/*
+* 服务端复制与移动
+* 数据在Spaces内部复制，不经过本服务：不超过阈值的文件CopyObject，更大的文件UploadPartCopy并发分段复制；
+* 按前缀操作时边列出边复制，文件之间并发，每完成一个文件回调一次进度*/
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ObjectCopier {
+    private final S3Client s3Client;
+    private final SpacesConfig spacesConfig;
+    private final MetadataCache metadataCache;
+    private final KeyIndex keyIndex;
+    private final BatchDeleter batchDeleter;
+    private final ExecutorService transferExecutor;
+
+    /*
+    * 复制单个文件，目标已存在时覆盖
+    * @return 目标文件元数据（不含publicUrl）
+    * */
+    public FileMetadata copy(String sourceKey, String targetKey) {
+        return copy(sourceKey, targetKey, null);
+    }
+
+    /*
+    * 移动单个文件：复制后删除源文件
+    * @return 目标文件元数据（不含publicUrl）
+    * */
+    public FileMetadata move(String sourceKey, String targetKey) {
+        FileMetadata metadata = copy(sourceKey, targetKey, null);
+        try {
+            s3Client.deleteObject(DeleteObjectRequest.builder()
+                    .bucket(spacesConfig.getBucketName())
+                    .key(sourceKey)
+                    .build());
+        } catch (SdkException e) {
+            throw new FileStorageException("已复制到 " + targetKey + "，但删除源文件失败: " + e.getMessage(), e);
+        }
+        metadataCache.markMissing(sourceKey);
+        keyIndex.remove(sourceKey);
+        return metadata;
+    }
+
+    /*
+    * 复制或移动前缀下的所有文件，目标键为把源前缀替换为目标前缀
+    * 移动时全部复制完成后再批量删除复制成功的源文件，中途失败最多留下重复文件
+    * @param listener 每完成一个文件调用一次，最后以done为true的汇总事件结束；调用已串行化，抛出异常时停止提交新文件
+    * @return 汇总结果
+    * */
+    public CopyProgress copyPrefix(String sourcePrefix, String targetPrefix, boolean move,
+                                   Consumer<CopyProgress> listener) {
+        if (targetPrefix.startsWith(sourcePrefix)) {
+            // 边列出边复制，目标在源前缀之下会列出刚复制的文件
+            throw new FileStorageException("目标前缀不能位于源前缀之下");
+        }
+        log.info("{}前缀: {} -> {}", move ? "移动" : "复制", sourcePrefix, targetPrefix);
+
+        int parallelism = spacesConfig.getCopy().getParallelism();
+        Semaphore permits = new Semaphore(parallelism);
+        Progress progress = new Progress(listener);
+        List<String> copiedSources = new ArrayList<>();
+
+        ListObjectsV2Request request = ListObjectsV2Request.builder()
+                .bucket(spacesConfig.getBucketName())
+                .prefix(sourcePrefix)
+                .build();
+        try {
+            for (S3Object object : s3Client.listObjectsV2Paginator(request).contents()) {
+                permits.acquire();
+                if (progress.cancelled.get()) {
+                    permits.release();
+                    break;
+                }
+                String targetKey = targetPrefix + object.key().substring(sourcePrefix.length());
+                transferExecutor.execute(() -> {
+                    try {
+                        copy(object.key(), targetKey, object.size());
+                        progress.copied(object.key(), targetKey, object.size());
+                        if (move) {
+                            synchronized (copiedSources) {
+                                copiedSources.add(object.key());
+                            }
+                        }
+                    } catch (RuntimeException e) {
+                        log.warn("复制文件失败: {} -> {}, {}", object.key(), targetKey, e.getMessage());
+                        progress.failed(object.key(), targetKey, e.getMessage());
+                    } finally {
+                        permits.release();
+                    }
+                });
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FileStorageException("复制被中断: " + sourcePrefix, e);
+        } catch (SdkException e) {
+            throw new FileStorageException("列出待复制文件失败: " + e.getMessage(), e);
+        } finally {
+            // 等待已提交的复制结束
+            permits.acquireUninterruptibly(parallelism);
+        }
+
+        if (move && !copiedSources.isEmpty()) {
+            BatchDeleteResult result = batchDeleter.deleteKeys(copiedSources);
+            for (FileError error : result.getErrors()) {
+                progress.failed(error.getKey(), null, "删除源文件失败: " + error.getMessage());
+            }
+        }
+        return progress.done();
+    }
+
+    /*
+    * @param knownSize 列出时已知的大小，不超过阈值时省去HEAD直接CopyObject
+    * */
+    private FileMetadata copy(String sourceKey, String targetKey, Long knownSize) {
+        if (sourceKey.equals(targetKey)) {
+            throw new FileStorageException("源文件与目标文件相同: " + sourceKey);
+        }
+        long threshold = spacesConfig.getCopy().getMultipartThreshold().toBytes();
+
+        try {
+            FileMetadata metadata;
+            if (knownSize != null && knownSize <= threshold) {
+                metadata = copyObject(sourceKey, targetKey, knownSize);
+            } else {
+                HeadObjectResponse source = head(sourceKey);
+                metadata = source.contentLength() > threshold
+                        ? copyMultipart(sourceKey, targetKey, source)
+                        : copyObject(sourceKey, targetKey, source.contentLength());
+            }
+            // 缓存中没有publicUrl，下次读取时重新HEAD
+            metadataCache.invalidate(targetKey);
+            keyIndex.put(metadata);
+            return metadata;
+        } catch (NoSuchKeyException e) {
+            throw new FileStorageException("源文件不存在: " + sourceKey, e);
+        } catch (S3Exception e) {
+            log.error("复制文件失败: {}", e.getMessage());
+            throw new FileStorageException("复制文件失败: " + e.getMessage(), e);
+        }
+    }
+
+    private HeadObjectResponse head(String key) {
+        return s3Client.headObject(HeadObjectRequest.builder()
+                .bucket(spacesConfig.getBucketName())
+                .key(key)
+                .build());
+    }
+
+    // 元数据、Content-Type和Content-Encoding随对象一起复制
+    private FileMetadata copyObject(String sourceKey, String targetKey, long size) {
+        CopyObjectResponse response = s3Client.copyObject(CopyObjectRequest.builder()
+                .sourceBucket(spacesConfig.getBucketName())
+                .sourceKey(sourceKey)
+                .destinationBucket(spacesConfig.getBucketName())
+                .destinationKey(targetKey)
+                .build());
+        log.info("复制完成: {} -> {}", sourceKey, targetKey);
+
+        CopyObjectResult result = response.copyObjectResult();
+        return FileMetadata.builder()
+                .key(targetKey)
+                .size(size)
+                .lastModified(result.lastModified() != null ? result.lastModified() : Instant.now())
+                .eTag(result.eTag())
+                .build();
+    }
+
+    /*
+    * 分段复制：按源文件的元数据创建分片上传，各分段UploadPartCopy并发执行
+    * */
+    private FileMetadata copyMultipart(String sourceKey, String targetKey, HeadObjectResponse source) {
+        SpacesConfig.Copy config = spacesConfig.getCopy();
+        long size = source.contentLength();
+        long partSize = Math.max(config.getPartSize().toBytes(), (size + MultipartUploader.MAX_PARTS - 1) / MultipartUploader.MAX_PARTS);
+        int partCount = (int) ((size + partSize - 1) / partSize);
+
+        String uploadId = s3Client.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                .bucket(spacesConfig.getBucketName())
+                .key(targetKey)
+                .contentType(source.contentType())
+                .contentEncoding(source.contentEncoding())
+                .cacheControl(source.cacheControl())
+                .metadata(source.metadata())
+                .build()).uploadId();
+        log.info("开始分段复制: {} -> {}, 大小: {} bytes, 分段数: {}", sourceKey, targetKey, size, partCount);
+
+        Semaphore permits = new Semaphore(config.getPartParallelism());
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        AtomicInteger completed = new AtomicInteger();
+        List<CompletableFuture<CompletedPart>> futures = new ArrayList<>(partCount);
+
+        try {
+            for (int i = 0; i < partCount && failure.get() == null; i++) {
+                int partNumber = i + 1;
+                long start = i * partSize;
+                long end = Math.min(size, start + partSize) - 1;
+                permits.acquire();
+                futures.add(CompletableFuture.supplyAsync(() -> {
+                    try {
+                        UploadPartCopyResponse response = s3Client.uploadPartCopy(UploadPartCopyRequest.builder()
+                                .sourceBucket(spacesConfig.getBucketName())
+                                .sourceKey(sourceKey)
+                                .destinationBucket(spacesConfig.getBucketName())
+                                .destinationKey(targetKey)
+                                .uploadId(uploadId)
+                                .partNumber(partNumber)
+                                .copySourceRange("bytes=" + start + "-" + end)
+                                // 复制期间源文件被覆盖时失败，避免拼出新旧混合的内容
+                                .copySourceIfMatch(source.eTag())
+                                .build());
+                        log.info("分段复制进度: {} {}/{}", targetKey, completed.incrementAndGet(), partCount);
+                        return CompletedPart.builder()
+                                .partNumber(partNumber)
+                                .eTag(response.copyPartResult().eTag())
+                                .build();
+                    } catch (RuntimeException e) {
+                        failure.compareAndSet(null, e);
+                        throw e;
+                    } finally {
+                        permits.release();
+                    }
+                }, transferExecutor));
+            }
+
+            List<CompletedPart> parts = new ArrayList<>(futures.size());
+            for (CompletableFuture<CompletedPart> future : futures) {
+                parts.add(future.join());
+            }
+
+            CompleteMultipartUploadResponse response = s3Client.completeMultipartUpload(
+                    CompleteMultipartUploadRequest.builder()
+                            .bucket(spacesConfig.getBucketName())
+                            .key(targetKey)
+                            .uploadId(uploadId)
+                            .multipartUpload(CompletedMultipartUpload.builder().parts(parts).build())
+                            .build());
+            log.info("分段复制完成: {} -> {}", sourceKey, targetKey);
+
+            return FileMetadata.builder()
+                    .key(targetKey)
+                    .size(size)
+                    .lastModified(Instant.now())
+                    .eTag(response.eTag())
+                    .contentType(source.contentType())
+                    .contentEncoding(source.contentEncoding())
+                    .build();
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abort(targetKey, uploadId, futures);
+            throw new FileStorageException("分段复制被中断: " + targetKey, e);
+        } catch (CompletionException e) {
+            abort(targetKey, uploadId, futures);
+            throw new FileStorageException("分段复制失败: " + e.getCause().getMessage(), e.getCause());
+        } catch (RuntimeException e) {
+            abort(targetKey, uploadId, futures);
+            throw e;
+        }
+    }
+
+    private void abort(String key, String uploadId, List<CompletableFuture<CompletedPart>> futures) {
+        // 等待已提交的分段结束，避免abort之后仍有分段写入
+        futures.forEach(future -> future.handle((part, e) -> null).join());
+        try {
+            s3Client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                    .bucket(spacesConfig.getBucketName())
+                    .key(key)
+                    .uploadId(uploadId)
+                    .build());
+            log.warn("分段复制已中止: {}, uploadId: {}", key, uploadId);
+        } catch (S3Exception e) {
+            log.error("中止分段复制失败: {}", e.getMessage());
+        }
+    }
+
+    /*
+    * 按前缀复制的累计进度，计数和回调在同一把锁内，事件中的计数单调递增
+    * */
+    private static class Progress {
+        private final Consumer<CopyProgress> listener;
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+        private int copiedCount;
+        private int failedCount;
+        private long copiedBytes;
+
+        Progress(Consumer<CopyProgress> listener) {
+            this.listener = listener;
+        }
+
+        synchronized void copied(String sourceKey, String targetKey, long size) {
+            copiedCount++;
+            copiedBytes += size;
+            publish(sourceKey, targetKey, null, false);
+        }
+
+        synchronized void failed(String sourceKey, String targetKey, String error) {
+            failedCount++;
+            publish(sourceKey, targetKey, error, false);
+        }
+
+        synchronized CopyProgress done() {
+            log.info("复制完成，成功: {}, 失败: {}, 字节数: {}", copiedCount, failedCount, copiedBytes);
+            return publish(null, null, null, true);
+        }
+
+        private CopyProgress publish(String sourceKey, String targetKey, String error, boolean done) {
+            CopyProgress event = CopyProgress.builder()
+                    .sourceKey(sourceKey)
+                    .targetKey(targetKey)
+                    .error(error)
+                    .copiedCount(copiedCount)
+                    .failedCount(failedCount)
+                    .copiedBytes(copiedBytes)
+                    .done(done)
+                    .build();
+            if (!cancelled.get()) {
+                try {
+                    listener.accept(event);
+                } catch (RuntimeException e) {
+                    // 通常是客户端断开，已提交的文件继续完成
+                    log.warn("进度回调失败，停止提交新文件: {}", e.getMessage());
+                    cancelled.set(true);
+                }
+            }
+            return event;
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package org.example.spaces.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import lombok.extern.slf4j.Slf4j;
+import org.example.spaces.cache.KeyIndex;
+import org.example.spaces.cache.MetadataCache;
+import org.example.spaces.config.SpacesConfig;
+import org.example.spaces.exception.FileStorageException;
+import org.example.spaces.model.CompleteMultipartRequest;
+import org.example.spaces.model.FileMetadata;
+import org.example.spaces.model.PresignedMultipartUpload;
+import org.example.spaces.model.PresignedPart;
+import org.example.spaces.model.PresignedUrl;
+import org.example.spaces.routing.ShardTopology;
+import org.example.spaces.service.PresignService;
+import org.example.spaces.service.SpacesService;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import software.amazon.awssdk.awscore.presigner.PresignedRequest;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.*;
+import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedGetObjectRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedPutObjectRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PutObjectPresignRequest;
+import software.amazon.awssdk.services.s3.presigner.model.UploadPartPresignRequest;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+
+@Slf4j
+@Service
+public class PresignServiceImpl implements PresignService {
+    private final ShardTopology shardTopology;
+    private final S3Client s3Client;
+    private final SpacesConfig spacesConfig;
+    private final SpacesService spacesService;
+    private final MetadataCache metadataCache;
+    private final KeyIndex keyIndex;
+
+    //下载URL缓存，在URL剩余有效期过半时失效，保证返回的URL至少还有一半有效期
+    private final Cache<String, PresignedUrl> downloadUrls;
+
+    public PresignServiceImpl(ShardTopology shardTopology, S3Client s3Client, SpacesConfig spacesConfig,
+                              SpacesService spacesService, MetadataCache metadataCache, KeyIndex keyIndex) {
+        this.shardTopology = shardTopology;
+        this.s3Client = s3Client;
+        this.spacesConfig = spacesConfig;
+        this.spacesService = spacesService;
+        this.metadataCache = metadataCache;
+        this.keyIndex = keyIndex;
+        this.downloadUrls = Caffeine.newBuilder()
+                .maximumSize(spacesConfig.getPresign().getCacheMaxSize())
+                .expireAfter(new Expiry<String, PresignedUrl>() {
+                    @Override
+                    public long expireAfterCreate(String key, PresignedUrl value, long currentTime) {
+                        Duration remaining = Duration.between(Instant.now(), value.getExpiresAt());
+                        return Math.max(0, remaining.toNanos() / 2);
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, PresignedUrl value,
+                                                  long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, PresignedUrl value,
+                                                long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
+    @Override
+    public PresignedUrl presignDownload(String key, Duration expiry) {
+        Duration duration = resolveExpiry(expiry);
+        if (!spacesConfig.getPresign().isCacheEnabled()) {
+            return signDownload(key, duration);
+        }
+        return downloadUrls.get(key + "|" + duration.toSeconds(), cacheKey -> signDownload(key, duration));
+    }
+
+    @Override
+    public PresignedUrl presignUpload(String originalFilename, String folder, String contentType, Duration expiry) {
+        String key = newKey(originalFilename, folder);
+        log.info("签发上传URL: {}", key);
+
+        // Content-Type参与签名，客户端上传时必须一致
+        ShardTopology.Target target = shardTopology.primary(key);
+        PutObjectPresignRequest presignRequest = PutObjectPresignRequest.builder()
+                .signatureDuration(resolveExpiry(expiry))
+                .putObjectRequest(PutObjectRequest.builder()
+                        .bucket(target.bucketName())
+                        .key(key)
+                        .contentType(StringUtils.hasText(contentType) ? contentType : null)
+                        .build())
+                .build();
+
+        PresignedPutObjectRequest presigned = target.presigner().presignPutObject(presignRequest);
+        return toPresignedUrl(key, presigned);
+    }
+
+    @Override
+    public PresignedMultipartUpload presignMultipartUpload(String originalFilename, String folder, String contentType,
+                                                           int partCount, Duration expiry) {
+        if (partCount < 1 || partCount > MultipartUploader.MAX_PARTS) {
+            throw new FileStorageException("分片数必须在1到" + MultipartUploader.MAX_PARTS + "之间");
+        }
+
+        String key = newKey(originalFilename, folder);
+        Duration duration = resolveExpiry(expiry);
+
+        try {
+            String uploadId = s3Client.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                    .bucket(spacesConfig.getBucketName())
+                    .key(key)
+                    .contentType(StringUtils.hasText(contentType) ? contentType : null)
+                    .build()).uploadId();
+            log.info("签发分片上传URL: {}, uploadId: {}, 分片数: {}", key, uploadId, partCount);
+
+            // 分片直接上传到归属分片的存储桶
+            ShardTopology.Target target = shardTopology.primary(key);
+            List<PresignedPart> parts = new ArrayList<>(partCount);
+            Instant expiresAt = null;
+            for (int partNumber = 1; partNumber <= partCount; partNumber++) {
+                PresignedRequest presigned = target.presigner().presignUploadPart(UploadPartPresignRequest.builder()
+                        .signatureDuration(duration)
+                        .uploadPartRequest(UploadPartRequest.builder()
+                                .bucket(target.bucketName())
+                                .key(key)
+                                .uploadId(uploadId)
+                                .partNumber(partNumber)
+                                .build())
+                        .build());
+                parts.add(PresignedPart.builder()
+                        .partNumber(partNumber)
+                        .url(presigned.url().toString())
+                        .build());
+                expiresAt = presigned.expiration();
+            }
+
+            return PresignedMultipartUpload.builder()
+                    .key(key)
+                    .uploadId(uploadId)
+                    .parts(parts)
+                    .expiresAt(expiresAt)
+                    .build();
+
+        } catch (S3Exception e) {
+            log.error("创建分片上传失败: {}", e.getMessage());
+            throw new FileStorageException("创建分片上传失败: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public FileMetadata completeMultipartUpload(CompleteMultipartRequest request) {
+        try {
+            List<CompletedPart> parts = request.getParts().stream()
+                    .sorted(Comparator.comparingInt(CompleteMultipartRequest.UploadedPart::getPartNumber))
+                    .map(part -> CompletedPart.builder()
+                            .partNumber(part.getPartNumber())
+                            .eTag(part.getETag())
+                            .build())
+                    .collect(Collectors.toList());
+
+            CompleteMultipartUploadResponse response = s3Client.completeMultipartUpload(
+                    CompleteMultipartUploadRequest.builder()
+                            .bucket(spacesConfig.getBucketName())
+                            .key(request.getKey())
+                            .uploadId(request.getUploadId())
+                            .multipartUpload(CompletedMultipartUpload.builder().parts(parts).build())
+                            .build());
+            log.info("分片上传完成: {}, ETag: {}", request.getKey(), response.eTag());
+
+            // 大小和类型以Spaces为准，丢弃可能存在的负缓存
+            metadataCache.invalidate(request.getKey());
+            FileMetadata metadata = spacesService.getFileMetadata(request.getKey());
+            keyIndex.put(metadata);
+            return metadata;
+
+        } catch (S3Exception e) {
+            log.error("完成分片上传失败: {}", e.getMessage());
+            throw new FileStorageException("完成分片上传失败: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void abortMultipartUpload(String key, String uploadId) {
+        try {
+            s3Client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                    .bucket(spacesConfig.getBucketName())
+                    .key(key)
+                    .uploadId(uploadId)
+                    .build());
+            log.info("分片上传已中止: {}, uploadId: {}", key, uploadId);
+        } catch (S3Exception e) {
+            log.error("中止分片上传失败: {}", e.getMessage());
+            throw new FileStorageException("中止分片上传失败: " + e.getMessage(), e);
+        }
+    }
+
+    private PresignedUrl signDownload(String key, Duration duration) {
+        log.info("签发下载URL: {}, 有效期: {}", key, duration);
+
+        // 下载URL指向最近的副本，客户端直接从本地区读取
+        ShardTopology.Target target = shardTopology.nearest(key);
+        PresignedGetObjectRequest presigned = target.presigner().presignGetObject(GetObjectPresignRequest.builder()
+                .signatureDuration(duration)
+                .getObjectRequest(GetObjectRequest.builder()
+                        .bucket(target.bucketName())
+                        .key(key)
+                        .build())
+                .build());
+        return toPresignedUrl(key, presigned);
+    }
+
+    private PresignedUrl toPresignedUrl(String key, PresignedRequest presigned) {
+        // host由URL决定，其余签名头需要客户端原样携带
+        Map<String, String> headers = presigned.signedHeaders().entrySet().stream()
+                .filter(header -> !"host".equalsIgnoreCase(header.getKey()))
+                .collect(Collectors.toMap(Map.Entry::getKey, header -> String.join(",", header.getValue())));
+
+        return PresignedUrl.builder()
+                .key(key)
+                .url(presigned.url().toString())
+                .method(presigned.httpRequest().method().name())
+                .headers(headers)
+                .expiresAt(presigned.expiration())
+                .build();
+    }
+
+    private Duration resolveExpiry(Duration expiry) {
+        SpacesConfig.Presign config = spacesConfig.getPresign();
+        if (expiry == null) {
+            return config.getDefaultExpiry();
+        }
+        if (expiry.isNegative() || expiry.isZero() || expiry.compareTo(config.getMaxExpiry()) > 0) {
+            throw new FileStorageException("有效期必须大于0且不超过" + config.getMaxExpiry());
+        }
+        return expiry;
+    }
+
+    private String newKey(String originalFilename, String folder) {
+        if (!StringUtils.hasText(originalFilename)) {
+            throw new FileStorageException("文件名不能为空");
+        }
+        return SpacesServiceImpl.buildKey(StringUtils.cleanPath(originalFilename), folder);
+    }
+}
@@ -0,0 +1,127 @@
+package org.example.spaces.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.spaces.config.SpacesConfig;
+import org.example.spaces.exception.FileStorageException;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+
+/*
+* 并发分段下载
+* 以滑动窗口方式并发发起Range GET，按顺序读出，缓冲区个数受parallelism限制*/
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RangedDownloader {
+    private final S3Client s3Client;
+    private final SpacesConfig spacesConfig;
+    private final ExecutorService transferExecutor;
+
+    /*
+    * 打开整个对象的并发分段输入流
+    * @param key 文件键
+    * @param size 文件大小
+    * @param eTag 文件eTag，用于保证各分段来自同一版本
+    * @return 按顺序读出的输入流，关闭时取消未完成的分段
+    * */
+    public InputStream open(String key, long size, String eTag) {
+        log.info("开始并发分段下载: {}, 大小: {} bytes", key, size);
+        return new RangedInputStream(key, size, eTag);
+    }
+
+    private byte[] fetch(String key, long start, long end, String eTag) {
+        GetObjectRequest request = GetObjectRequest.builder()
+                .bucket(spacesConfig.getBucketName())
+                .key(key)
+                .range("bytes=" + start + "-" + end)
+                .ifMatch(eTag)
+                .build();
+        return s3Client.getObjectAsBytes(request).asByteArrayUnsafe();
+    }
+
+    /*
+    * 滑动窗口输入流：当前分段读完后取下一个，并补齐窗口
+    * */
+    private class RangedInputStream extends InputStream {
+        private final String key;
+        private final long size;
+        private final String eTag;
+        private final long partSize;
+        private final int parallelism;
+        private final Deque<CompletableFuture<byte[]>> window = new ArrayDeque<>();
+
+        private long next;
+        private byte[] current = new byte[0];
+        private int position;
+
+        RangedInputStream(String key, long size, String eTag) {
+            SpacesConfig.Download config = spacesConfig.getDownload();
+            this.key = key;
+            this.size = size;
+            this.eTag = eTag;
+            this.partSize = config.getPartSize().toBytes();
+            this.parallelism = config.getParallelism();
+        }
+
+        @Override
+        public int read() {
+            if (!fill()) {
+                return -1;
+            }
+            return current[position++] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+            int n = Math.min(len, current.length - position);
+            System.arraycopy(current, position, b, off, n);
+            position += n;
+            return n;
+        }
+
+        @Override
+        public void close() {
+            // 客户端断开时不再继续拉取剩余分段
+            window.forEach(future -> future.cancel(true));
+            window.clear();
+            next = size;
+        }
+
+        private boolean fill() {
+            while (position >= current.length) {
+                while (next < size && window.size() < parallelism) {
+                    long start = next;
+                    long end = Math.min(size, start + partSize) - 1;
+                    window.add(CompletableFuture.supplyAsync(() -> fetch(key, start, end, eTag), transferExecutor));
+                    next = end + 1;
+                }
+                if (window.isEmpty()) {
+                    return false;
+                }
+                try {
+                    current = window.poll().join();
+                    position = 0;
+                } catch (CompletionException e) {
+                    close();
+                    throw new FileStorageException("分段下载失败: " + e.getCause().getMessage(), e.getCause());
+                }
+            }
+            return true;
+        }
+    }
+}
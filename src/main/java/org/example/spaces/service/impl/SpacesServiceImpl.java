@@ -2,30 +2,83 @@ package org.example.spaces.service.impl;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.example.spaces.cache.ContentHashIndex;
+import org.example.spaces.cache.KeyIndex;
+import org.example.spaces.cache.MetadataCache;
+import org.example.spaces.cache.RequestCoalescer;
+import org.example.spaces.checksum.Checksummer;
+import org.example.spaces.compression.Compressor;
 import org.example.spaces.config.SpacesConfig;
+import org.example.spaces.exception.FileChangedException;
 import org.example.spaces.exception.FileStorageException;
+import org.example.spaces.model.BatchDeleteResult;
+import org.example.spaces.model.CacheStatistics;
+import org.example.spaces.model.ConditionalContent;
+import org.example.spaces.model.CopyProgress;
+import org.example.spaces.model.FileContent;
 import org.example.spaces.model.FileMetadata;
+import org.example.spaces.model.FilePage;
+import org.example.spaces.model.FileQuery;
+import org.example.spaces.routing.ShardTopology;
 import org.example.spaces.service.SpacesService;
+import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
+import software.amazon.awssdk.core.ResponseInputStream;
 import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.http.SdkHttpResponse;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.*;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class SpacesServiceImpl implements SpacesService {
+    //listObjectsV2单页最多1000个
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    private static final int NOT_MODIFIED = 304;
+    private static final int PRECONDITION_FAILED = 412;
+
     private final S3Client s3Client;
     private final SpacesConfig spacesConfig;
+    private final MultipartUploader multipartUploader;
+    private final RangedDownloader rangedDownloader;
+    private final MetadataCache metadataCache;
+    private final BatchDeleter batchDeleter;
+    private final ContentHashIndex contentHashIndex;
+    private final Compressor compressor;
+    private final RequestCoalescer requestCoalescer;
+    private final ShardTopology shardTopology;
+    private final KeyIndex keyIndex;
+    private final ObjectCopier objectCopier;
+    private final Checksummer checksummer;
 
     @Override
     public FileMetadata uploadFile(MultipartFile file, String folder) {
@@ -35,14 +88,29 @@ public class SpacesServiceImpl implements SpacesService {
         }
 
         try {
-            // 生成唯一文件名
-            String originalFilename = StringUtils.cleanPath(file.getOriginalFilename());
-            String fileName = UUID.randomUUID().toString() + "_" + originalFilename;
+            // 开启去重时先在本地计算哈希，命中则完全跳过传输
+            String contentHash = null;
+            if (contentHashIndex.isEnabled()) {
+                contentHash = sha256(file);
+                Optional<FileMetadata> duplicate = findDuplicate(contentHash);
+                if (duplicate.isPresent()) {
+                    return duplicate.get();
+                }
+            }
 
-            // 构建文件键
-            String key = StringUtils.hasText(folder)
-                    ? folder + "/" + fileName
-                    : fileName;
+            // 超过分片大小的文件走分片上传，需要压缩的文件压缩后大小未知，同样走流式上传；
+            // 开启校验和时也走流式上传，校验和在读入内存的分片上计算，不再单独读一遍文件
+            if (file.getSize() > spacesConfig.getMultipart().getPartSize().toBytes()
+                    || compressor.isCompressible(file.getContentType())
+                    || checksummer.isEnabled()) {
+                try (InputStream inputStream = file.getInputStream()) {
+                    return uploadStream(inputStream, file.getOriginalFilename(), file.getContentType(),
+                            folder, contentHash);
+                }
+            }
+
+            String originalFilename = StringUtils.cleanPath(file.getOriginalFilename());
+            String key = buildKey(originalFilename, folder);
 
             log.info("开始上传文件: {} -> {}", originalFilename, key);
 
@@ -52,6 +120,7 @@ public class SpacesServiceImpl implements SpacesService {
                     .key(key)
                     .contentType(file.getContentType())
                     .contentLength(file.getSize())
+                    .metadata(hashMetadata(contentHash))
                     .build();
 
             // 执行上传
@@ -63,7 +132,7 @@ public class SpacesServiceImpl implements SpacesService {
             log.info("文件上传成功，ETag: {}", response.eTag());
 
             // 返回文件元数据
-            return FileMetadata.builder()
+            FileMetadata metadata = FileMetadata.builder()
                     .key(key)
                     .size(file.getSize())
                     .lastModified(java.time.Instant.now())
@@ -71,13 +140,162 @@ public class SpacesServiceImpl implements SpacesService {
                     .contentType(file.getContentType())
                     .publicUrl(generatePublicUrl(key))
                     .build();
+            return uploaded(metadata, contentHash);
 
         } catch (IOException e) {
             log.error("文件上传失败: {}", e.getMessage());
-            throw new FileStorageException("文件上传失败: " + e.getMessage());
+            throw new FileStorageException("文件上传失败: " + e.getMessage(), e);
         } catch (S3Exception e) {
             log.error("S3操作失败: {}", e.getMessage());
-            throw new FileStorageException("S3操作失败: " + e.getMessage());
+            throw new FileStorageException("S3操作失败: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public FileMetadata uploadFile(InputStream inputStream, String originalFilename, String contentType, String folder) {
+        return uploadStream(inputStream, originalFilename, contentType, folder, null);
+    }
+
+    @Override
+    public FileMetadata uploadFileAs(String key, InputStream inputStream, String contentType) {
+        log.info("开始流式上传文件: {}", key);
+        return uploadStream(key, inputStream, contentType, null, false);
+    }
+
+    /*
+    * 流式上传
+    * @param contentHash 已知的内容哈希；为null且开启去重时边上传边计算
+    * */
+    private FileMetadata uploadStream(InputStream inputStream, String originalFilename, String contentType,
+                                      String folder, String contentHash) {
+        if (!StringUtils.hasText(originalFilename)) {
+            throw new FileStorageException("文件名不能为空");
+        }
+
+        String key = buildKey(StringUtils.cleanPath(originalFilename), folder);
+        log.info("开始流式上传文件: {} -> {}", originalFilename, key);
+        return uploadStream(key, inputStream, contentType, contentHash, true);
+    }
+
+    /*
+    * 流式上传到指定文件键
+    * @param deduplicate 是否在命中去重时放弃上传并返回已有文件；为false时仍记录哈希
+    * */
+    private FileMetadata uploadStream(String key, InputStream inputStream, String contentType,
+                                      String contentHash, boolean deduplicate) {
+        try {
+            // 先读一个字节，空文件直接拒绝，不在Spaces上创建对象
+            PushbackInputStream source = new PushbackInputStream(inputStream);
+            int firstByte = source.read();
+            if (firstByte < 0) {
+                throw new FileStorageException("上传文件不能为空");
+            }
+            source.unread(firstByte);
+
+            // 哈希按原始内容计算，压缩在哈希之后
+            DigestInputStream hashing = contentHashIndex.isEnabled() && contentHash == null
+                    ? new DigestInputStream(source, sha256())
+                    : null;
+            AtomicReference<String> finalHash = new AtomicReference<>(contentHash);
+            AtomicReference<FileMetadata> duplicate = new AtomicReference<>();
+
+            // 流读完才知道哈希，提交前再查一次索引，命中则放弃已上传的分片
+            BooleanSupplier shouldCommit = () -> {
+                if (hashing != null) {
+                    finalHash.set(HexFormat.of().formatHex(hashing.getMessageDigest().digest()));
+                }
+                if (finalHash.get() == null || !deduplicate) {
+                    return true;
+                }
+                findDuplicate(finalHash.get()).ifPresent(duplicate::set);
+                return duplicate.get() == null;
+            };
+
+            MultipartUploader.Result result;
+            String contentEncoding;
+            try (Compressor.Encoded encoded = compressor.encode(hashing != null ? hashing : source, contentType)) {
+                contentEncoding = encoded.contentEncoding();
+                result = multipartUploader.upload(key, contentType, contentEncoding, encoded.inputStream(),
+                        hashMetadata(contentHash), shouldCommit);
+            }
+            if (!result.isCommitted()) {
+                return duplicate.get();
+            }
+
+            log.info("文件上传成功，ETag: {}", result.getETag());
+
+            FileMetadata metadata = checksummer.describe(FileMetadata.builder()
+                            .key(key)
+                            .size(result.getSize())
+                            .lastModified(java.time.Instant.now())
+                            .eTag(result.getETag())
+                            .contentType(contentType)
+                            .contentEncoding(contentEncoding)
+                            .publicUrl(generatePublicUrl(key)),
+                    result.getChecksum(), result.getChecksumPartSize())
+                    .build();
+            return uploaded(metadata, finalHash.get());
+
+        } catch (IOException e) {
+            log.error("文件上传失败: {}", e.getMessage());
+            throw new FileStorageException("文件上传失败: " + e.getMessage(), e);
+        } catch (S3Exception e) {
+            log.error("S3操作失败: {}", e.getMessage());
+            throw new FileStorageException("S3操作失败: " + e.getMessage(), e);
+        }
+    }
+
+    /*
+    * 上传完成：更新缓存和去重索引，响应中标记为非去重
+    * */
+    private FileMetadata uploaded(FileMetadata metadata, String contentHash) {
+        metadataCache.put(metadata);
+        keyIndex.put(metadata);
+        if (contentHash != null) {
+            contentHashIndex.record(contentHash, metadata.getKey());
+        }
+        return metadata.toBuilder().deduplicated(false).build();
+    }
+
+    /*
+    * 按哈希查找已存在的文件，索引指向的文件已被删除时移除该映射
+    * */
+    private Optional<FileMetadata> findDuplicate(String contentHash) {
+        Optional<String> existingKey = contentHashIndex.find(contentHash);
+        if (existingKey.isEmpty()) {
+            return Optional.empty();
+        }
+
+        Optional<FileMetadata> existing = metadataCache.get(existingKey.get(), this::headObject);
+        if (existing.isEmpty()) {
+            contentHashIndex.remove(contentHash, existingKey.get());
+            return Optional.empty();
+        }
+
+        log.info("内容已存在，复用文件: {}", existingKey.get());
+        contentHashIndex.recordHit();
+        return Optional.of(existing.get().toBuilder().deduplicated(true).build());
+    }
+
+    private static Map<String, String> hashMetadata(String contentHash) {
+        return contentHash != null
+                ? Map.of(ContentHashIndex.METADATA_KEY, contentHash)
+                : Map.of();
+    }
+
+    private static String sha256(MultipartFile file) throws IOException {
+        MessageDigest digest = sha256();
+        try (InputStream inputStream = new DigestInputStream(file.getInputStream(), digest)) {
+            inputStream.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
         }
     }
 
@@ -86,83 +304,356 @@ public class SpacesServiceImpl implements SpacesService {
         try {
             log.info("开始下载文件: {}", key);
 
+            GetObjectRequest getRequest = checksummer.request(GetObjectRequest.builder()
+                    .bucket(spacesConfig.getBucketName())
+                    .key(key))
+                    .build();
+
+            return getObject(key, getRequest).getInputStream();
+
+        } catch (NoSuchKeyException e) {
+            log.error("文件不存在: {}", key);
+            metadataCache.markMissing(key);
+            throw new FileStorageException("文件不存在: " + key, e);
+        } catch (S3Exception e) {
+            log.error("下载文件失败: {}", e.getMessage());
+            throw new FileStorageException("下载文件失败: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public InputStream downloadFile(String key, long start, long end) {
+        return downloadFile(key, start, end, null);
+    }
+
+    @Override
+    public InputStream downloadFile(String key, long start, long end, String eTag) {
+        try {
+            log.info("开始下载文件区间: {}, bytes={}-{}", key, start, end);
+
             GetObjectRequest getRequest = GetObjectRequest.builder()
                     .bucket(spacesConfig.getBucketName())
                     .key(key)
+                    .range("bytes=" + start + "-" + end)
+                    .ifMatch(eTag)
                     .build();
 
             return s3Client.getObject(getRequest);
 
         } catch (NoSuchKeyException e) {
             log.error("文件不存在: {}", key);
-            throw new FileStorageException("文件不存在: " + key);
+            metadataCache.markMissing(key);
+            throw new FileStorageException("文件不存在: " + key, e);
         } catch (S3Exception e) {
+            if (e.statusCode() == PRECONDITION_FAILED) {
+                // 缓存的元数据已过期，下次获取时重新HEAD
+                log.info("文件已被覆盖: {}, 期望ETag: {}", key, eTag);
+                metadataCache.invalidate(key);
+                throw new FileChangedException("文件已被修改: " + key, e);
+            }
             log.error("下载文件失败: {}", e.getMessage());
-            throw new FileStorageException("下载文件失败: " + e.getMessage());
+            throw new FileStorageException("下载文件失败: " + e.getMessage(), e);
         }
     }
 
     @Override
-    public FileMetadata getFileMetadata(String key){
+    public FileContent openFile(String key) {
+        // 并发分段下载需要先知道文件大小，元数据通常已在缓存中
+        SpacesConfig.Download config = spacesConfig.getDownload();
+        if (config.isParallelEnabled()) {
+            FileMetadata metadata = getFileMetadata(key);
+            if (metadata.getSize() > config.getParallelThreshold().toBytes()) {
+                // 各分段按eTag取自同一版本，整体按HEAD得到的校验和校验
+                return new FileContent(metadata, checksummer.verify(
+                        rangedDownloader.open(key, metadata.getSize(), metadata.getETag()), metadata));
+            }
+        }
+
         try {
-            log.info("获取文件元数据: {}", key);
+            log.info("开始下载文件: {}", key);
 
-            HeadObjectRequest headRequest = HeadObjectRequest.builder()
+            GetObjectRequest getRequest = checksummer.request(GetObjectRequest.builder()
                     .bucket(spacesConfig.getBucketName())
-                    .key(key)
+                    .key(key))
                     .build();
 
-            HeadObjectResponse response = s3Client.headObject(headRequest);
+            // 已知是小文件时合并同时到达的GET，内容读入内存后每个请求各自包装一个流
+            Optional<FileMetadata> cached = metadataCache.getIfPresent(key);
+            if (cached != null && cached.isPresent()
+                    && cached.get().getSize() <= spacesConfig.getCoalescing().getMaxObjectSize().toBytes()) {
+                SharedObject shared = requestCoalescer.execute(RequestCoalescer.GET, key,
+                        () -> readFully(key, getRequest));
+                return new FileContent(shared.metadata(), new ByteArrayInputStream(shared.content()));
+            }
+            return getObject(key, getRequest);
+
+        } catch (NoSuchKeyException e) {
+            log.error("文件不存在: {}", key);
+            metadataCache.markMissing(key);
+            throw new FileStorageException("文件不存在: " + key, e);
+        } catch (S3Exception e) {
+            log.error("下载文件失败: {}", e.getMessage());
+            throw new FileStorageException("下载文件失败: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public ConditionalContent openFileIfModified(String key, String ifNoneMatch, Instant ifModifiedSince) {
+        if (!StringUtils.hasText(ifNoneMatch) && ifModifiedSince == null) {
+            return ConditionalContent.modified(openFile(key));
+        }
 
-            return FileMetadata.builder()
+        // 元数据未缓存且不走并发分段下载时，一次条件GET既完成校验又拿到内容
+        Optional<FileMetadata> cached = metadataCache.getIfPresent(key);
+        if (cached == null && !spacesConfig.getDownload().isParallelEnabled()) {
+            return conditionalGet(key, ifNoneMatch, ifModifiedSince);
+        }
+
+        FileMetadata metadata = getFileMetadata(key);
+        if (isNotModified(metadata, ifNoneMatch, ifModifiedSince)) {
+            log.debug("文件未修改（本地校验）: {}", key);
+            return ConditionalContent.notModified(metadata);
+        }
+        return ConditionalContent.modified(openFile(key));
+    }
+
+    private ConditionalContent conditionalGet(String key, String ifNoneMatch, Instant ifModifiedSince) {
+        try {
+            log.info("开始条件下载文件: {}", key);
+
+            // 有If-None-Match时忽略If-Modified-Since（RFC 9110）
+            GetObjectRequest getRequest = checksummer.request(GetObjectRequest.builder()
+                    .bucket(spacesConfig.getBucketName())
                     .key(key)
-                    .size(response.contentLength())
-                    .lastModified(response.lastModified())
-                    .eTag(response.eTag())
-                    .contentType(response.contentType())
-                    .publicUrl(generatePublicUrl(key))
+                    .ifNoneMatch(StringUtils.hasText(ifNoneMatch) ? ifNoneMatch : null)
+                    .ifModifiedSince(StringUtils.hasText(ifNoneMatch) ? null : ifModifiedSince))
                     .build();
+            return ConditionalContent.modified(getObject(key, getRequest));
 
         } catch (NoSuchKeyException e) {
             log.error("文件不存在: {}", key);
-            throw new FileStorageException("文件不存在: " + key);
+            metadataCache.markMissing(key);
+            throw new FileStorageException("文件不存在: " + key, e);
+        } catch (S3Exception e) {
+            if (e.statusCode() == NOT_MODIFIED) {
+                log.debug("文件未修改（Spaces校验）: {}", key);
+                return ConditionalContent.notModified(validatorsOf(key, e));
+            }
+            log.error("下载文件失败: {}", e.getMessage());
+            throw new FileStorageException("下载文件失败: " + e.getMessage(), e);
+        }
+    }
+
+    private record SharedObject(FileMetadata metadata, byte[] content) {
+    }
+
+    private SharedObject readFully(String key, GetObjectRequest getRequest) {
+        try (FileContent content = getObject(key, getRequest)) {
+            return new SharedObject(content.getMetadata(), content.getInputStream().readAllBytes());
+        } catch (IOException e) {
+            throw new FileStorageException("下载文件失败: " + e.getMessage(), e);
+        }
+    }
+
+    // 直接使用GET响应中的元数据，无需额外HEAD；响应带校验和时边读边校验
+    private FileContent getObject(String key, GetObjectRequest getRequest) {
+        ResponseInputStream<GetObjectResponse> inputStream = s3Client.getObject(getRequest);
+        GetObjectResponse response = inputStream.response();
+        FileMetadata metadata = checksummer.describe(FileMetadata.builder()
+                        .key(key)
+                        .size(response.contentLength())
+                        .lastModified(response.lastModified())
+                        .eTag(response.eTag())
+                        .contentType(response.contentType())
+                        .contentEncoding(response.contentEncoding())
+                        .publicUrl(generatePublicUrl(key)),
+                response.checksumCRC32C(), response.checksumSHA256(), response.metadata())
+                .build();
+        metadataCache.put(metadata);
+
+        return new FileContent(metadata, checksummer.verify(inputStream, metadata));
+    }
+
+    /*
+    * 304响应没有响应体，校验器从响应头中取，不写入元数据缓存
+    * */
+    private FileMetadata validatorsOf(String key, S3Exception e) {
+        FileMetadata.FileMetadataBuilder builder = FileMetadata.builder().key(key);
+        if (e.awsErrorDetails() != null && e.awsErrorDetails().sdkHttpResponse() != null) {
+            SdkHttpResponse response = e.awsErrorDetails().sdkHttpResponse();
+            response.firstMatchingHeader(HttpHeaders.ETAG).ifPresent(builder::eTag);
+            response.firstMatchingHeader(HttpHeaders.LAST_MODIFIED).ifPresent(lastModified -> {
+                try {
+                    builder.lastModified(Instant.from(DateTimeFormatter.RFC_1123_DATE_TIME.parse(lastModified)));
+                } catch (DateTimeParseException ignored) {
+                    // 无法解析时不返回Last-Modified
+                }
+            });
+        }
+        return builder.build();
+    }
+
+    /*
+    * 按RFC 9110比较校验器：If-None-Match弱比较，存在时忽略If-Modified-Since
+    * */
+    static boolean isNotModified(FileMetadata metadata, String ifNoneMatch, Instant ifModifiedSince) {
+        if (StringUtils.hasText(ifNoneMatch)) {
+            if (metadata.getETag() == null) {
+                return false;
+            }
+            String current = weak(metadata.getETag());
+            for (String tag : ifNoneMatch.split(",")) {
+                String candidate = tag.trim();
+                if (candidate.equals("*") || weak(candidate).equals(current)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        // Last-Modified精确到秒
+        return ifModifiedSince != null && metadata.getLastModified() != null
+                && !metadata.getLastModified().truncatedTo(ChronoUnit.SECONDS).isAfter(ifModifiedSince);
+    }
+
+    private static String weak(String eTag) {
+        return eTag.startsWith("W/") ? eTag.substring(2) : eTag;
+    }
+
+    @Override
+    public FileMetadata getFileMetadata(String key){
+        try {
+            log.info("获取文件元数据: {}", key);
+
+            return metadataCache.get(key, this::headObject)
+                    .orElseThrow(() -> {
+                        log.error("文件不存在: {}", key);
+                        return new FileStorageException("文件不存在: " + key);
+                    });
+
         } catch (S3Exception e) {
             log.error("获取文件元数据失败: {}", e.getMessage());
-            throw new FileStorageException("获取文件元数据失败: " + e.getMessage());
+            throw new FileStorageException("获取文件元数据失败: " + e.getMessage(), e);
         }
     }
 
     @Override
     public List<FileMetadata> listFiles(String prefix){
+        // 只取第一页，内存占用与前缀下的文件总数无关
+        return listFiles(prefix, null, MAX_PAGE_SIZE, null).getFiles();
+    }
+
+    @Override
+    public FilePage listFiles(String prefix, String delimiter, int pageSize, String cursor) {
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new FileStorageException("每页数量必须在1到" + MAX_PAGE_SIZE + "之间");
+        }
+
         try {
-            log.info("列出文件，前缀: {}", prefix);
+            log.info("分页列出文件，前缀: {}, 分隔符: {}, 每页: {}", prefix, delimiter, pageSize);
 
             ListObjectsV2Request.Builder requestBuilder = ListObjectsV2Request.builder()
-                    .bucket(spacesConfig.getBucketName());
+                    .bucket(spacesConfig.getBucketName())
+                    .maxKeys(pageSize);
 
-            // 添加前缀过滤
             if (StringUtils.hasText(prefix)) {
                 requestBuilder.prefix(prefix);
             }
+            if (StringUtils.hasText(delimiter)) {
+                requestBuilder.delimiter(delimiter);
+            }
+            if (StringUtils.hasText(cursor)) {
+                requestBuilder.continuationToken(cursor);
+            }
 
-            ListObjectsV2Response response = s3Client.listObjectsV2(requestBuilder.build());
+            ListObjectsV2Request request = requestBuilder.build();
+            ListObjectsV2Response response = requestCoalescer.execute(RequestCoalescer.LIST,
+                    Arrays.asList(prefix, delimiter, pageSize, cursor),
+                    () -> s3Client.listObjectsV2(request));
 
-            return response.contents().stream()
-                    .map(obj -> FileMetadata.builder()
-                            .key(obj.key())
-                            .size(obj.size())
-                            .lastModified(obj.lastModified())
-                            .eTag(obj.eTag())
-                            .publicUrl(generatePublicUrl(obj.key()))
-                            .build())
-                    .collect(Collectors.toList());
+            return FilePage.builder()
+                    .files(response.contents().stream()
+                            .map(this::toMetadata)
+                            .collect(Collectors.toList()))
+                    .commonPrefixes(response.commonPrefixes().stream()
+                            .map(CommonPrefix::prefix)
+                            .collect(Collectors.toList()))
+                    .nextCursor(response.nextContinuationToken())
+                    .truncated(Boolean.TRUE.equals(response.isTruncated()))
+                    .build();
 
         } catch (S3Exception e) {
             log.error("列出文件失败: {}", e.getMessage());
-            throw new FileStorageException("列出文件失败: " + e.getMessage());
+            throw new FileStorageException("列出文件失败: " + e.getMessage(), e);
         }
     }
 
+    @Override
+    public Stream<FileMetadata> streamFiles(String prefix) {
+        log.info("列出文件，前缀: {}", prefix);
+
+        ListObjectsV2Request.Builder requestBuilder = ListObjectsV2Request.builder()
+                .bucket(spacesConfig.getBucketName());
+
+        // 添加前缀过滤
+        if (StringUtils.hasText(prefix)) {
+            requestBuilder.prefix(prefix);
+        }
+
+        // 分页器在遍历时才发起下一次listObjectsV2
+        return s3Client.listObjectsV2Paginator(requestBuilder.build())
+                .contents()
+                .stream()
+                .map(this::toMetadata);
+    }
+
+    @Override
+    public FilePage searchFiles(FileQuery query) {
+        if (!keyIndex.isEnabled()) {
+            throw new FileStorageException("文件键索引未开启");
+        }
+        if (query.getLimit() < 1 || query.getLimit() > MAX_PAGE_SIZE) {
+            throw new FileStorageException("每页数量必须在1到" + MAX_PAGE_SIZE + "之间");
+        }
+
+        log.info("查询文件索引: {}", query);
+        FilePage page = keyIndex.search(query);
+        page.getFiles().forEach(file -> file.setPublicUrl(generatePublicUrl(file.getKey())));
+        return page;
+    }
+
+    @Override
+    public FileMetadata copyFile(String sourceKey, String targetKey) {
+        log.info("复制文件: {} -> {}", sourceKey, targetKey);
+        FileMetadata metadata = objectCopier.copy(sourceKey, targetKey);
+        return metadata.toBuilder().publicUrl(generatePublicUrl(targetKey)).build();
+    }
+
+    @Override
+    public FileMetadata moveFile(String sourceKey, String targetKey) {
+        log.info("移动文件: {} -> {}", sourceKey, targetKey);
+        FileMetadata metadata = objectCopier.move(sourceKey, targetKey);
+        return metadata.toBuilder().publicUrl(generatePublicUrl(targetKey)).build();
+    }
+
+    @Override
+    public CopyProgress copyPrefix(String sourcePrefix, String targetPrefix, boolean move,
+                                   Consumer<CopyProgress> listener) {
+        if (!StringUtils.hasText(sourcePrefix)) {
+            throw new FileStorageException("源前缀不能为空");
+        }
+        return objectCopier.copyPrefix(sourcePrefix, targetPrefix != null ? targetPrefix : "", move, listener);
+    }
+
+    private FileMetadata toMetadata(S3Object obj) {
+        return FileMetadata.builder()
+                .key(obj.key())
+                .size(obj.size())
+                .lastModified(obj.lastModified())
+                .eTag(obj.eTag())
+                .publicUrl(generatePublicUrl(obj.key()))
+                .build();
+    }
+
     @Override
     public boolean deleteFile(String key){
         try{
@@ -172,36 +663,110 @@ public class SpacesServiceImpl implements SpacesService {
                     .key(key)
                     .build();
             s3Client.deleteObject(deleteRequest);
+            metadataCache.markMissing(key);
+            keyIndex.remove(key);
             log.info("删除成功：{}",key);
             return true;
         }catch(S3Exception e){
+            // 重试用尽仍被限流时交给调用方处理（503），而不是当作删除失败
+            if (e.isThrottlingException()) {
+                log.warn("删除文件被限流: {}", key);
+                throw new FileStorageException("删除文件被限流: " + e.getMessage(), e);
+            }
             log.error("删除文件失败: {}", e.getMessage());
             return false;
         }
     }
 
+    @Override
+    public BatchDeleteResult deleteFiles(List<String> keys) {
+        log.info("批量删除文件，数量: {}", keys.size());
+        return batchDeleter.deleteKeys(keys);
+    }
+
+    @Override
+    public BatchDeleteResult deleteByPrefix(String prefix) {
+        if (!StringUtils.hasText(prefix)) {
+            throw new FileStorageException("前缀不能为空");
+        }
+
+        try {
+            log.info("按前缀删除文件: {}", prefix);
+            return batchDeleter.deletePrefix(prefix);
+        } catch (S3Exception e) {
+            log.error("列出待删除文件失败: {}", e.getMessage());
+            throw new FileStorageException("列出待删除文件失败: " + e.getMessage(), e);
+        }
+    }
+
     @Override
     public boolean fileExists(String key){
         try{
-            HeadObjectRequest headRequest = HeadObjectRequest.builder()
-                    .bucket(spacesConfig.getBucketName())
-                    .key(key)
-                    .build();
-            s3Client.headObject(headRequest);
-            return true;
-        }catch(NoSuchKeyException e){
-            return false;
+            return metadataCache.get(key, this::headObject).isPresent();
         }catch(S3Exception e){
             log.error("检查文件存在性失败 {}",e.getMessage());
-            throw new FileStorageException("检查文件存在失败"+e.getMessage());
+            throw new FileStorageException("检查文件存在失败"+e.getMessage(), e);
         }
     }
 
+    @Override
+    public CacheStatistics getCacheStatistics() {
+        return metadataCache.statistics();
+    }
+
+    /*
+    * 执行HEAD请求，文件不存在时返回Optional.empty()
+    * 缓存关闭或未命中时同一文件同时只发一次HEAD
+    * */
+    private Optional<FileMetadata> headObject(String key) {
+        return requestCoalescer.execute(RequestCoalescer.HEAD, key, () -> sendHeadObject(key));
+    }
+
+    private Optional<FileMetadata> sendHeadObject(String key) {
+        try {
+            HeadObjectRequest headRequest = checksummer.request(HeadObjectRequest.builder()
+                    .bucket(spacesConfig.getBucketName())
+                    .key(key))
+                    .build();
+
+            HeadObjectResponse response = s3Client.headObject(headRequest);
+
+            return Optional.of(checksummer.describe(FileMetadata.builder()
+                            .key(key)
+                            .size(response.contentLength())
+                            .lastModified(response.lastModified())
+                            .eTag(response.eTag())
+                            .contentType(response.contentType())
+                            .contentEncoding(response.contentEncoding())
+                            .publicUrl(generatePublicUrl(key)),
+                    response.checksumCRC32C(), response.checksumSHA256(), response.metadata())
+                    .build());
+        } catch (NoSuchKeyException e) {
+            return Optional.empty();
+        }
+    }
+
+    /*
+    * 生成唯一文件键：UUID_原始文件名，可选文件夹前缀
+    * 文件名和文件夹中不允许换行等控制字符，文件键会写入日志文件和响应头
+    * */
+    static String buildKey(String originalFilename, String folder) {
+        if (hasControlCharacter(originalFilename) || hasControlCharacter(folder)) {
+            throw new FileStorageException("文件名和文件夹不能包含控制字符");
+        }
+        String fileName = UUID.randomUUID().toString() + "_" + originalFilename;
+        return StringUtils.hasText(folder)
+                ? folder + "/" + fileName
+                : fileName;
+    }
+
+    private static boolean hasControlCharacter(String value) {
+        return value != null && value.chars().anyMatch(Character::isISOControl);
+    }
+
     @Override
     public String generatePublicUrl(String key){
-        return String.format("%s%s%s",
-                spacesConfig.getEndpointUrl(),
-                spacesConfig.getBucketName(),
-                key);
+        // 分片时指向文件所在的存储桶
+        return shardTopology.publicUrl(key);
     }
 }
@@ -0,0 +1,371 @@
+package org.example.spaces.service.impl;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.spaces.cache.KeyIndex;
+import org.example.spaces.cache.MetadataCache;
+import org.example.spaces.config.SpacesConfig;
+import org.example.spaces.exception.FileStorageException;
+import org.example.spaces.model.FileMetadata;
+import org.example.spaces.model.UploadChunk;
+import org.example.spaces.model.UploadSession;
+import org.example.spaces.service.SpacesService;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/*
+* 可续传上传会话
+* 会话即Spaces分片上传，会话ID由文件键和uploadId组成，本服务不保存状态；分块作为UploadPart直接转发不落盘，
+* 后台定期中止本实例创建的、长时间没有新分块的会话，不触碰存储桶中其他程序的分片上传*/
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UploadSessionManager {
+    //S3单片最大5GB，分块数上限见MultipartUploader.MAX_PARTS
+    private static final long MAX_CHUNK_SIZE = 5L * 1024 * 1024 * 1024;
+
+    //会话ID中文件键与uploadId的分隔符，不在Base64URL字母表中
+    private static final char SEPARATOR = '.';
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final S3Client s3Client;
+    private final SpacesConfig spacesConfig;
+    private final SpacesService spacesService;
+    private final MetadataCache metadataCache;
+    private final KeyIndex keyIndex;
+
+    //本实例创建且尚未完成/取消的会话及创建时间，只在内存中，重启后遗留的分片上传需由存储桶生命周期规则清理
+    private final Map<SessionId, Instant> createdSessions = new ConcurrentHashMap<>();
+    private ScheduledExecutorService reaper;
+
+    private record SessionId(String key, String uploadId) {
+    }
+
+    @PostConstruct
+    public void init() {
+        SpacesConfig.UploadSession config = spacesConfig.getUploadSession();
+        if (!config.isReaperEnabled()) {
+            return;
+        }
+        reaper = Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().name("upload-session-reaper").factory());
+        long interval = config.getReaperInterval().toMillis();
+        reaper.scheduleWithFixedDelay(this::reap, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void close() {
+        if (reaper != null) {
+            reaper.shutdownNow();
+        }
+    }
+
+    /*
+    * 创建会话
+    * @param originalFilename 原始文件名
+    * @param contentType 文件类型（可选）
+    * @param folder 目标文件夹（可选）
+    * @return 新会话，分块列表为空
+    * */
+    public UploadSession create(String originalFilename, String contentType, String folder) {
+        if (!StringUtils.hasText(originalFilename)) {
+            throw new FileStorageException("文件名不能为空");
+        }
+        String key = SpacesServiceImpl.buildKey(StringUtils.cleanPath(originalFilename), folder);
+
+        try {
+            String uploadId = s3Client.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                    .bucket(spacesConfig.getBucketName())
+                    .key(key)
+                    .contentType(StringUtils.hasText(contentType) ? contentType : null)
+                    .build()).uploadId();
+            log.info("创建上传会话: {}, uploadId: {}", key, uploadId);
+
+            Instant now = Instant.now();
+            createdSessions.put(new SessionId(key, uploadId), now);
+            return UploadSession.builder()
+                    .sessionId(encode(key, uploadId))
+                    .key(key)
+                    .chunkSize(spacesConfig.getUploadSession().getChunkSize().toBytes())
+                    .chunks(List.of())
+                    .createdAt(now)
+                    .expiresAt(now.plus(spacesConfig.getUploadSession().getExpiry()))
+                    .build();
+
+        } catch (S3Exception e) {
+            log.error("创建上传会话失败: {}", e.getMessage());
+            throw new FileStorageException("创建上传会话失败: " + e.getMessage(), e);
+        }
+    }
+
+    /*
+    * 接收一个分块，输入流直接作为UploadPart的请求体；同一序号重复上传时覆盖
+    * @param chunkNumber 分块序号，1到10000
+    * @param size 分块大小，即请求的Content-Length
+    * @param inputStream 分块内容，由调用方负责关闭
+    * @return 已收到的分块
+    * */
+    public UploadChunk uploadChunk(String sessionId, int chunkNumber, long size, InputStream inputStream) {
+        SessionId session = decode(sessionId);
+        if (chunkNumber < 1 || chunkNumber > MultipartUploader.MAX_PARTS) {
+            throw new FileStorageException("分块序号必须在1到" + MultipartUploader.MAX_PARTS + "之间");
+        }
+        if (size <= 0 || size > MAX_CHUNK_SIZE) {
+            throw new FileStorageException("分块需要Content-Length，且不能为空或超过5GB");
+        }
+
+        try {
+            UploadPartResponse response = s3Client.uploadPart(UploadPartRequest.builder()
+                            .bucket(spacesConfig.getBucketName())
+                            .key(session.key())
+                            .uploadId(session.uploadId())
+                            .partNumber(chunkNumber)
+                            .contentLength(size)
+                            .build(),
+                    RequestBody.fromInputStream(inputStream, size));
+            log.debug("收到分块: {}, 序号: {}, 大小: {}", session.key(), chunkNumber, size);
+
+            return UploadChunk.builder()
+                    .chunkNumber(chunkNumber)
+                    .size(size)
+                    .eTag(response.eTag())
+                    .lastModified(Instant.now())
+                    .build();
+
+        } catch (NoSuchUploadException e) {
+            throw sessionNotFound(session, e);
+        } catch (S3Exception e) {
+            log.error("上传分块失败: {}, 序号: {}, {}", session.key(), chunkNumber, e.getMessage());
+            throw new FileStorageException("上传分块失败: " + e.getMessage(), e);
+        }
+    }
+
+    /*
+    * 查询会话，客户端断线重连后据此只补传缺少的分块
+    * @return 会话及已收到的分块（createdAt为空）
+    * */
+    public UploadSession get(String sessionId) {
+        SessionId session = decode(sessionId);
+        try {
+            List<UploadChunk> chunks = listChunks(s3Client, spacesConfig.getBucketName(), session);
+            long receivedBytes = chunks.stream().mapToLong(UploadChunk::getSize).sum();
+            Instant lastActivity = chunks.stream()
+                    .map(UploadChunk::getLastModified)
+                    .max(Instant::compareTo)
+                    .orElse(null);
+
+            return UploadSession.builder()
+                    .sessionId(sessionId)
+                    .key(session.key())
+                    .chunkSize(spacesConfig.getUploadSession().getChunkSize().toBytes())
+                    .chunks(chunks)
+                    .receivedBytes(receivedBytes)
+                    .expiresAt(lastActivity != null ? lastActivity.plus(spacesConfig.getUploadSession().getExpiry()) : null)
+                    .build();
+
+        } catch (NoSuchUploadException e) {
+            throw sessionNotFound(session, e);
+        } catch (S3Exception e) {
+            log.error("查询上传会话失败: {}", e.getMessage());
+            throw new FileStorageException("查询上传会话失败: " + e.getMessage(), e);
+        }
+    }
+
+    /*
+    * 完成会话，按序号合并已收到的所有分块
+    * @param chunkCount 预期的分块数（可选），指定时1到chunkCount必须全部收到
+    * @return 文件元数据
+    * */
+    public FileMetadata complete(String sessionId, Integer chunkCount) {
+        SessionId session = decode(sessionId);
+        if (chunkCount != null && (chunkCount < 1 || chunkCount > MultipartUploader.MAX_PARTS)) {
+            throw new FileStorageException("分块数必须在1到" + MultipartUploader.MAX_PARTS + "之间");
+        }
+        try {
+            List<UploadChunk> chunks = listChunks(s3Client, spacesConfig.getBucketName(), session);
+            if (chunks.isEmpty()) {
+                throw new FileStorageException("上传会话中没有分块: " + session.key());
+            }
+            if (chunkCount != null) {
+                List<Integer> missing = missingChunks(chunks, chunkCount);
+                if (!missing.isEmpty()) {
+                    throw new FileStorageException("缺少分块: " + missing);
+                }
+            }
+
+            List<CompletedPart> parts = chunks.stream()
+                    .filter(chunk -> chunkCount == null || chunk.getChunkNumber() <= chunkCount)
+                    .map(chunk -> CompletedPart.builder()
+                            .partNumber(chunk.getChunkNumber())
+                            .eTag(chunk.getETag())
+                            .build())
+                    .collect(Collectors.toList());
+
+            CompleteMultipartUploadResponse response = s3Client.completeMultipartUpload(
+                    CompleteMultipartUploadRequest.builder()
+                            .bucket(spacesConfig.getBucketName())
+                            .key(session.key())
+                            .uploadId(session.uploadId())
+                            .multipartUpload(CompletedMultipartUpload.builder().parts(parts).build())
+                            .build());
+            log.info("上传会话完成: {}, 分块数: {}, ETag: {}", session.key(), parts.size(), response.eTag());
+            createdSessions.remove(session);
+
+            // 大小和类型以Spaces为准，丢弃可能存在的负缓存
+            metadataCache.invalidate(session.key());
+            FileMetadata metadata = spacesService.getFileMetadata(session.key());
+            keyIndex.put(metadata);
+            return metadata;
+
+        } catch (NoSuchUploadException e) {
+            throw sessionNotFound(session, e);
+        } catch (S3Exception e) {
+            log.error("完成上传会话失败: {}", e.getMessage());
+            throw new FileStorageException("完成上传会话失败: " + e.getMessage(), e);
+        }
+    }
+
+    /*
+    * 取消会话，丢弃已收到的分块
+    * */
+    public void abort(String sessionId) {
+        SessionId session = decode(sessionId);
+        try {
+            s3Client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                    .bucket(spacesConfig.getBucketName())
+                    .key(session.key())
+                    .uploadId(session.uploadId())
+                    .build());
+            log.info("上传会话已取消: {}", session.key());
+            createdSessions.remove(session);
+        } catch (NoSuchUploadException e) {
+            createdSessions.remove(session);
+            throw sessionNotFound(session, e);
+        } catch (S3Exception e) {
+            log.error("取消上传会话失败: {}", e.getMessage());
+            throw new FileStorageException("取消上传会话失败: " + e.getMessage(), e);
+        }
+    }
+
+    /*
+    * 中止本实例创建的、超过有效期没有新分块的会话
+    * 只处理create记录的uploadId，同一存储桶中其他程序的分片上传、预签名分片上传都不会被中止
+    * */
+    public void reap() {
+        Instant cutoff = Instant.now().minus(spacesConfig.getUploadSession().getExpiry());
+        int aborted = 0;
+        for (Map.Entry<SessionId, Instant> created : createdSessions.entrySet()) {
+            if (created.getValue().isAfter(cutoff)) {
+                continue;
+            }
+            SessionId session = created.getKey();
+            try {
+                // 创建得早但仍在持续收到分块的会话不清理
+                boolean active = listChunks(s3Client, spacesConfig.getBucketName(), session).stream()
+                        .anyMatch(chunk -> chunk.getLastModified() != null
+                                && chunk.getLastModified().isAfter(cutoff));
+                if (active) {
+                    continue;
+                }
+                s3Client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                        .bucket(spacesConfig.getBucketName())
+                        .key(session.key())
+                        .uploadId(session.uploadId())
+                        .build());
+                createdSessions.remove(session);
+                log.info("中止放弃的上传会话: {}, uploadId: {}", session.key(), session.uploadId());
+                aborted++;
+            } catch (NoSuchUploadException e) {
+                // 已在其他实例上完成或取消
+                createdSessions.remove(session);
+            } catch (S3Exception e) {
+                log.warn("清理上传会话失败: {}, {}", session.key(), e.getMessage());
+            }
+        }
+        if (aborted > 0) {
+            log.info("已中止{}个放弃的上传会话", aborted);
+        }
+    }
+
+    // 按页列出全部分块，结果按序号排列
+    private static List<UploadChunk> listChunks(S3Client client, String bucketName, SessionId session) {
+        List<UploadChunk> chunks = new ArrayList<>();
+        Integer partNumberMarker = null;
+        ListPartsResponse response;
+        do {
+            response = client.listParts(ListPartsRequest.builder()
+                    .bucket(bucketName)
+                    .key(session.key())
+                    .uploadId(session.uploadId())
+                    .partNumberMarker(partNumberMarker)
+                    .build());
+            for (Part part : response.parts()) {
+                chunks.add(UploadChunk.builder()
+                        .chunkNumber(part.partNumber())
+                        .size(part.size())
+                        .eTag(part.eTag())
+                        .lastModified(part.lastModified())
+                        .build());
+            }
+            partNumberMarker = response.nextPartNumberMarker();
+        } while (Boolean.TRUE.equals(response.isTruncated()));
+        return chunks;
+    }
+
+    private static List<Integer> missingChunks(List<UploadChunk> chunks, int chunkCount) {
+        boolean[] received = new boolean[chunkCount + 1];
+        for (UploadChunk chunk : chunks) {
+            if (chunk.getChunkNumber() <= chunkCount) {
+                received[chunk.getChunkNumber()] = true;
+            }
+        }
+        List<Integer> missing = new ArrayList<>();
+        for (int chunkNumber = 1; chunkNumber <= chunkCount; chunkNumber++) {
+            if (!received[chunkNumber]) {
+                missing.add(chunkNumber);
+            }
+        }
+        return missing;
+    }
+
+    private static String encode(String key, String uploadId) {
+        return ENCODER.encodeToString(key.getBytes(StandardCharsets.UTF_8)) + SEPARATOR + uploadId;
+    }
+
+    private static SessionId decode(String sessionId) {
+        int separator = sessionId != null ? sessionId.indexOf(SEPARATOR) : -1;
+        if (separator <= 0 || separator == sessionId.length() - 1) {
+            throw new FileStorageException("无效的上传会话ID");
+        }
+        try {
+            String key = new String(DECODER.decode(sessionId.substring(0, separator)), StandardCharsets.UTF_8);
+            return new SessionId(key, sessionId.substring(separator + 1));
+        } catch (IllegalArgumentException e) {
+            throw new FileStorageException("无效的上传会话ID", e);
+        }
+    }
+
+    private static FileStorageException sessionNotFound(SessionId session, NoSuchUploadException e) {
+        log.warn("上传会话不存在或已过期: {}", session.key());
+        return new FileStorageException("上传会话不存在或已过期", e);
+    }
+}
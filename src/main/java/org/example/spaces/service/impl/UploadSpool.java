@@ -0,0 +1,481 @@
+package org.example.spaces.service.impl;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.spaces.config.SpacesConfig;
+import org.example.spaces.exception.FileStorageException;
+import org.example.spaces.model.CachedFile;
+import org.example.spaces.model.FileMetadata;
+import org.example.spaces.service.SpacesService;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/*
+* 上传写回暂存
+* 请求体写入本地暂存目录并追加日志后即可返回，后台按并发数上传到Spaces，启动时重放日志继续未完成的上传
+* 日志中的文件类型和文件键以Base64URL编码，重放时只接受data目录下以UUID命名的暂存文件*/
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UploadSpool {
+    //日志行前缀：新增一个待上传文件，或该文件已上传/已取消
+    private static final char ADD = '+';
+    private static final char REMOVE = '-';
+
+    private static final String JOURNAL_FILE = "journal-v2.log";
+    //早期版本的日志，文件类型和文件键未编码；启动时重放一次，压缩到新日志后删除
+    private static final String LEGACY_JOURNAL_FILE = "journal.log";
+    private static final String DATA_DIRECTORY = "data";
+    private static final String DEFAULT_CONTENT_TYPE = "application/octet-stream";
+
+    private final SpacesService spacesService;
+    private final SpacesConfig spacesConfig;
+    private final ExecutorService transferExecutor;
+
+    //待上传的文件，按文件键
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong spooledBytes = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private Path dataDirectory;
+    private FileChannel journal;
+    private Semaphore permits;
+    private ScheduledExecutorService scheduler;
+
+    // id为暂存文件名，与文件键无关，文件键可能包含目录分隔符
+    private record Entry(String id, String key, String contentType, long size, Instant acceptedAt) {
+    }
+
+    /*
+    * 重放日志，清理残留的暂存文件，把仍待上传的条目重写为新日志并重新开始上传
+    * */
+    @PostConstruct
+    public void init() throws IOException {
+        if (!isEnabled()) {
+            return;
+        }
+        Path directory = Path.of(spacesConfig.getSpool().getDirectory()).toAbsolutePath().normalize();
+        if (directory.startsWith(Path.of(System.getProperty("java.io.tmpdir")).toAbsolutePath().normalize())) {
+            log.warn("上传暂存目录位于临时目录下，重启或清理临时文件后未上传的文件会丢失: {}", directory);
+        }
+        dataDirectory = directory.resolve(DATA_DIRECTORY);
+        Files.createDirectories(dataDirectory);
+        if (spacesConfig.getSpool().isFsync()) {
+            forceDirectory(directory);
+        }
+
+        Path file = directory.resolve(JOURNAL_FILE);
+        Path legacyFile = directory.resolve(LEGACY_JOURNAL_FILE);
+        Map<String, Entry> pending = new LinkedHashMap<>();
+        if (Files.exists(legacyFile)) {
+            for (String line : Files.readAllLines(legacyFile, StandardCharsets.UTF_8)) {
+                replay(line, pending, true);
+            }
+        }
+        if (Files.exists(file)) {
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                replay(line, pending, false);
+            }
+        }
+
+        // 日志中没有的暂存文件是写入途中崩溃或上传完成后未及删除的残留
+        try (Stream<Path> files = Files.list(dataDirectory)) {
+            for (Path path : (Iterable<Path>) files::iterator) {
+                if (!pending.containsKey(path.getFileName().toString())) {
+                    Files.deleteIfExists(path);
+                }
+            }
+        }
+
+        // 压缩：只保留仍待上传的条目，原子替换旧日志
+        Path compacted = directory.resolve(JOURNAL_FILE + ".compact");
+        try (BufferedWriter writer = Files.newBufferedWriter(compacted, StandardCharsets.UTF_8)) {
+            for (Entry entry : pending.values()) {
+                writer.write(addLine(entry));
+                writer.newLine();
+            }
+        }
+        Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        // 删除前崩溃时下次启动会再重放一次旧日志，已完成的条目在新日志中有删除记录
+        Files.deleteIfExists(legacyFile);
+        if (spacesConfig.getSpool().isFsync()) {
+            // 日志的替换和残留文件的删除都是目录项变更
+            forceDirectory(directory);
+            forceDirectory(dataDirectory);
+        }
+
+        journal = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        permits = new Semaphore(spacesConfig.getSpool().getParallelism());
+        scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().name("upload-spool").factory());
+
+        for (Entry entry : pending.values()) {
+            entries.put(entry.key(), entry);
+            spooledBytes.addAndGet(entry.size());
+            submit(entry, 0);
+        }
+        log.info("上传写回已开启，暂存目录: {}, 待上传文件数: {}", directory, pending.size());
+    }
+
+    /*
+    * 停止重试调度；正在上传和尚未上传的文件仍在日志中，下次启动时继续
+    * */
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        if (journal != null) {
+            journal.close();
+            journal = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return spacesConfig.getSpool().isEnabled();
+    }
+
+    /*
+    * 写入暂存并安排后台上传
+    * @param file 要上传的文件
+    * @param folder 目标文件夹（可选）
+    * @return 最终的文件元数据（eTag为空）；未开启、空文件或暂存已满时返回Optional.empty()，由调用方同步上传
+    * */
+    public Optional<FileMetadata> accept(MultipartFile file, String folder) {
+        if (!isEnabled() || file.isEmpty() || !StringUtils.hasText(file.getOriginalFilename())) {
+            return Optional.empty();
+        }
+        // 文件名不合法时在占用暂存额度之前失败
+        String key = SpacesServiceImpl.buildKey(StringUtils.cleanPath(file.getOriginalFilename()), folder);
+        long size = file.getSize();
+        if (spooledBytes.addAndGet(size) > spacesConfig.getSpool().getMaxSize().toBytes()) {
+            spooledBytes.addAndGet(-size);
+            log.warn("上传暂存已满，改为同步上传: {}", file.getOriginalFilename());
+            return Optional.empty();
+        }
+
+        Entry entry = new Entry(UUID.randomUUID().toString(), key,
+                contentTypeOf(file.getContentType()), size, Instant.now());
+        Path path = pathOf(entry);
+        try {
+            // 先落盘文件再写日志，日志中的条目一定有完整的暂存文件
+            try (InputStream inputStream = file.getInputStream();
+                 FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                         StandardOpenOption.WRITE)) {
+                OutputStream outputStream = Channels.newOutputStream(channel);
+                inputStream.transferTo(outputStream);
+                if (spacesConfig.getSpool().isFsync()) {
+                    channel.force(true);
+                }
+            }
+            // 新文件的目录项也要落盘，否则断电后日志中有条目而文件不存在
+            if (spacesConfig.getSpool().isFsync()) {
+                forceDirectory(dataDirectory);
+            }
+            append(addLine(entry));
+        } catch (IOException e) {
+            spooledBytes.addAndGet(-size);
+            deleteQuietly(path);
+            log.error("写入上传暂存失败: {}", e.getMessage());
+            throw new FileStorageException("写入上传暂存失败: " + e.getMessage(), e);
+        }
+
+        entries.put(key, entry);
+        submit(entry, 0);
+        log.info("文件已写入暂存: {} -> {}", file.getOriginalFilename(), key);
+        return Optional.of(metadataOf(entry));
+    }
+
+    /*
+    * 查找仍在暂存中的文件
+    * @return 文件元数据（eTag为空）；不在暂存中时返回Optional.empty()
+    * */
+    public Optional<FileMetadata> find(String key) {
+        return Optional.ofNullable(entries.get(key)).map(this::metadataOf);
+    }
+
+    /*
+    * 打开仍在暂存中的文件，后台上传完成删除暂存文件后已打开的通道仍可读完
+    * @return 暂存文件（使用后需关闭）；不在暂存中时返回Optional.empty()
+    * */
+    public Optional<CachedFile> open(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        try {
+            FileChannel channel = FileChannel.open(pathOf(entry), StandardOpenOption.READ);
+            // 上传完成后暂存文件即被删除，只能通过已打开的通道读取，不提供路径
+            return Optional.of(new CachedFile(metadataOf(entry), channel, null));
+        } catch (NoSuchFileException e) {
+            // 刚上传完成，暂存文件已删除，此时Spaces上已有该文件
+            return Optional.empty();
+        } catch (IOException e) {
+            throw new FileStorageException("读取暂存文件失败: " + e.getMessage(), e);
+        }
+    }
+
+    /*
+    * 取消尚未完成的上传，用于删除仍在暂存中的文件
+    * 正在上传的文件在上传完成后由后台删除
+    * @return 文件是否在暂存中
+    * */
+    public boolean cancel(String key) {
+        Entry entry = entries.remove(key);
+        if (entry == null) {
+            return false;
+        }
+        discard(entry);
+        log.info("已取消暂存文件的上传: {}", key);
+        return true;
+    }
+
+    //待上传（含重试用尽）的文件数
+    public int pendingCount() {
+        return entries.size();
+    }
+
+    public long spooledBytes() {
+        return spooledBytes.get();
+    }
+
+    //重试用尽的次数，这些文件保留到下次启动
+    public long failedCount() {
+        return failedCount.get();
+    }
+
+    // 在传输线程池上执行，信号量限制同时上传的文件数
+    private void submit(Entry entry, int attempt) {
+        try {
+            transferExecutor.execute(() -> {
+                permits.acquireUninterruptibly();
+                try {
+                    upload(entry, attempt);
+                } finally {
+                    permits.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // 正在关闭，下次启动时重放日志继续上传
+            log.debug("服务关闭中，暂存文件留待下次启动上传: {}", entry.key());
+        }
+    }
+
+    private void upload(Entry entry, int attempt) {
+        if (entries.get(entry.key()) != entry) {
+            return;
+        }
+        try (InputStream inputStream = Files.newInputStream(pathOf(entry))) {
+            spacesService.uploadFileAs(entry.key(), inputStream, entry.contentType());
+        } catch (IOException | RuntimeException e) {
+            retry(entry, attempt, e);
+            return;
+        }
+
+        if (entries.remove(entry.key(), entry)) {
+            discard(entry);
+            log.info("暂存文件上传完成: {}", entry.key());
+            return;
+        }
+        // 上传期间已被取消（删除），删掉刚写入的文件
+        try {
+            spacesService.deleteFile(entry.key());
+        } catch (RuntimeException e) {
+            log.warn("删除已取消的暂存文件失败: {}, {}", entry.key(), e.getMessage());
+        }
+    }
+
+    // 指数退避重试，用尽后保留暂存文件和日志条目，下次启动时再上传
+    private void retry(Entry entry, int attempt, Exception cause) {
+        if (entries.get(entry.key()) != entry) {
+            return;
+        }
+        SpacesConfig.Spool config = spacesConfig.getSpool();
+        if (attempt >= config.getMaxRetries()) {
+            failedCount.incrementAndGet();
+            log.error("暂存文件上传失败，已达最大重试次数，留待下次启动: {}, {}", entry.key(), cause.getMessage());
+            return;
+        }
+        long delay = Math.min(config.getRetryDelay().toMillis() << Math.min(attempt, 20),
+                config.getMaxRetryDelay().toMillis());
+        log.warn("暂存文件上传失败，{}ms后第{}次重试: {}, {}", delay, attempt + 1, entry.key(), cause.getMessage());
+        try {
+            scheduler.schedule(() -> submit(entry, attempt + 1), delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            log.debug("服务关闭中，暂存文件留待下次启动上传: {}", entry.key());
+        }
+    }
+
+    // 条目已从entries移除：写删除日志并删除暂存文件
+    private void discard(Entry entry) {
+        try {
+            append(REMOVE + entry.id());
+        } catch (IOException e) {
+            // 只会导致下次启动时重复上传一次
+            log.warn("写入暂存日志失败: {}", e.getMessage());
+        }
+        deleteQuietly(pathOf(entry));
+        spooledBytes.addAndGet(-entry.size());
+    }
+
+    /*
+    * 重放一行日志，格式不对、id不是UUID或文件类型/文件键无法解码的行跳过，不会读取或删除data目录之外的文件
+    * @param legacy 是否为早期版本未编码的日志行
+    * */
+    private void replay(String line, Map<String, Entry> pending, boolean legacy) {
+        if (line.length() < 2) {
+            return;
+        }
+        if (line.charAt(0) == REMOVE) {
+            pending.remove(line.substring(1));
+            return;
+        }
+        int first = line.indexOf(' ');
+        int second = first < 0 ? -1 : line.indexOf(' ', first + 1);
+        if (line.charAt(0) != ADD || second < 0) {
+            return;
+        }
+        String id = line.substring(1, first);
+        if (!isSpoolId(id)) {
+            log.warn("暂存日志中的文件名不合法，跳过: {}", id);
+            return;
+        }
+        String contentType = line.substring(first + 1, second);
+        String key = line.substring(second + 1);
+        if (!legacy) {
+            try {
+                contentType = decode(contentType);
+                key = decode(key);
+            } catch (IllegalArgumentException e) {
+                log.warn("暂存日志行无法解码，跳过: {}", id);
+                return;
+            }
+        }
+        if (key.isEmpty() || key.chars().anyMatch(Character::isISOControl)) {
+            log.warn("暂存日志中的文件键不合法，跳过: {}", id);
+            return;
+        }
+
+        Path path = dataDirectory.resolve(id);
+        try {
+            Entry entry = new Entry(id, key, contentType, Files.size(path), Files.getLastModifiedTime(path).toInstant());
+            pending.put(id, entry);
+        } catch (IOException e) {
+            log.warn("暂存文件缺失，跳过: {}", path);
+        }
+    }
+
+    // 暂存文件名只能是accept生成的UUID，且解析后仍在data目录下
+    private boolean isSpoolId(String id) {
+        try {
+            if (!UUID.fromString(id).toString().equals(id)) {
+                return false;
+            }
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        Path path = dataDirectory.resolve(id).normalize();
+        return path.startsWith(dataDirectory) && !path.equals(dataDirectory);
+    }
+
+    // 每条记录立即写入；开启fsync时落盘后才返回
+    private synchronized void append(String line) throws IOException {
+        if (journal == null) {
+            throw new IOException("暂存日志已关闭");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap((line + System.lineSeparator()).getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            journal.write(buffer);
+        }
+        if (spacesConfig.getSpool().isFsync()) {
+            journal.force(false);
+        }
+    }
+
+    // 目录的fsync；Windows不能以通道打开目录，目录项随文件一起落盘，跳过
+    private static void forceDirectory(Path directory) throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(directory, StandardOpenOption.READ);
+        } catch (IOException e) {
+            log.debug("无法打开目录执行fsync: {}", directory);
+            return;
+        }
+        try (channel) {
+            channel.force(true);
+        }
+    }
+
+    // 文件类型和文件键编码后不含空格和换行
+    private static String addLine(Entry entry) {
+        return ADD + entry.id() + " " + encode(entry.contentType()) + " " + encode(entry.key());
+    }
+
+    private static String encode(String value) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decode(String value) {
+        return new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+    }
+
+    // 去掉参数里的空白，如 text/plain; charset=utf-8
+    private static String contentTypeOf(String contentType) {
+        return StringUtils.hasText(contentType)
+                ? StringUtils.trimAllWhitespace(contentType)
+                : DEFAULT_CONTENT_TYPE;
+    }
+
+    private FileMetadata metadataOf(Entry entry) {
+        return FileMetadata.builder()
+                .key(entry.key())
+                .size(entry.size())
+                .lastModified(entry.acceptedAt())
+                .contentType(entry.contentType())
+                .publicUrl(spacesService.generatePublicUrl(entry.key()))
+                .build();
+    }
+
+    private Path pathOf(Entry entry) {
+        return dataDirectory.resolve(entry.id());
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("删除暂存文件失败: {}", path);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package org.example.spaces.cache;
+
+import org.example.spaces.config.SpacesConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+* 内容哈希索引：日志重放与文件键编码*/
+class ContentHashIndexTest {
+    private static final String HASH_A = "a".repeat(64);
+    private static final String HASH_B = "b".repeat(64);
+
+    @TempDir
+    Path directory;
+
+    private final SpacesConfig spacesConfig = new SpacesConfig();
+
+    @BeforeEach
+    void setUp() {
+        spacesConfig.getDedup().setEnabled(true);
+        spacesConfig.getDedup().setDirectory(directory.toString());
+    }
+
+    @Test
+    void replaysRecordedMappingsAfterRestart() throws IOException {
+        ContentHashIndex index = open();
+        index.record(HASH_A, "photos/a.jpg");
+        index.record(HASH_B, "photos/b.jpg");
+        index.remove(HASH_B, "photos/b.jpg");
+        index.close();
+
+        ContentHashIndex reopened = open();
+        assertThat(reopened.find(HASH_A)).contains("photos/a.jpg");
+        assertThat(reopened.find(HASH_B)).isEmpty();
+        assertThat(reopened.size()).isEqualTo(1);
+        reopened.close();
+    }
+
+    @Test
+    void keyWithLineBreakCannotForgeEntries() throws IOException {
+        // 文件键中的换行不能在日志中伪造出一条指向其他文件的映射
+        String hostile = "a.txt\n+" + HASH_B + " secret/passwords.txt";
+        ContentHashIndex index = open();
+        index.record(HASH_A, hostile);
+        index.close();
+
+        assertThat(Files.readAllLines(directory.resolve("hash-index.log"), StandardCharsets.UTF_8)).hasSize(1);
+        ContentHashIndex reopened = open();
+        assertThat(reopened.find(HASH_A)).contains(hostile);
+        assertThat(reopened.find(HASH_B)).isEmpty();
+        reopened.close();
+    }
+
+    @Test
+    void skipsMalformedLines() throws IOException {
+        Files.writeString(directory.resolve("hash-index.log"), String.join("\n",
+                "+" + HASH_A + " not base64!",
+                "+../../etc " + "a2V5",
+                "+" + HASH_B + " a2V5",
+                "+" + HASH_A.substring(1)), StandardCharsets.UTF_8);
+
+        ContentHashIndex index = open();
+        assertThat(index.size()).isEqualTo(1);
+        assertThat(index.find(HASH_B)).contains("key");
+        index.close();
+    }
+
+    private ContentHashIndex open() throws IOException {
+        ContentHashIndex index = new ContentHashIndex(spacesConfig);
+        index.init();
+        return index;
+    }
+}
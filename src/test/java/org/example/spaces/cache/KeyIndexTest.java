@@ -0,0 +1,200 @@
+package org.example.spaces.cache;
+
+import org.example.spaces.config.SpacesConfig;
+import org.example.spaces.exception.FileStorageException;
+import org.example.spaces.model.FileMetadata;
+import org.example.spaces.model.FilePage;
+import org.example.spaces.model.FileQuery;
+import org.example.spaces.support.ListingS3Client;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/*
+* 文件键索引：UTF-8字节序、分区并行列出、快照与增量归并查询*/
+class KeyIndexTest {
+    private final ListingS3Client s3Client = new ListingS3Client();
+    private final SpacesConfig spacesConfig = new SpacesConfig();
+    private ExecutorService transferExecutor;
+    private KeyIndex keyIndex;
+
+    @BeforeEach
+    void setUp() {
+        spacesConfig.setBucketName("spaces");
+        spacesConfig.getKeyIndex().setEnabled(true);
+        spacesConfig.getKeyIndex().setParallelism(4);
+        transferExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        keyIndex = new KeyIndex(s3Client, spacesConfig, transferExecutor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        transferExecutor.shutdownNow();
+    }
+
+    @Test
+    void comparesKeysByUtf8Bytes() {
+        // UTF-16中代理对（U+10000以上）小于U+E000-U+FFFF，UTF-8中更大
+        assertThat(KeyIndex.compareKeys("\uD83D\uDE00", "\uE000")).isPositive();
+        assertThat(KeyIndex.compareKeys("\uFFFF", "\uD800\uDC00")).isNegative();
+        assertThat(KeyIndex.compareKeys("a\uD83D\uDE00", "a\uD83D\uDE01")).isNegative();
+        assertThat(KeyIndex.compareKeys("a", "a\uD83D\uDE00")).isNegative();
+        assertThat(KeyIndex.compareKeys("a/b", "a/b")).isZero();
+
+        String[] samples = {"", "a", "a/", "a/b", "z", "\u00E9", "\u4E2D", "\uD7FF", "\uE000", "\uFFFD", "\uFFFF",
+                "\uD800\uDC00", "\uD83D\uDE00", "\uDBFF\uDFFF", "x\uD83D\uDE00y", "x\uE000y"};
+        for (String a : samples) {
+            for (String b : samples) {
+                assertThat(Integer.signum(KeyIndex.compareKeys(a, b)))
+                        .as("%s vs %s", a, b)
+                        .isEqualTo(Integer.signum(utf8Order(a, b)));
+            }
+        }
+    }
+
+    @Test
+    void searchFailsUntilFirstReconcile() {
+        assertThat(keyIndex.isReady()).isFalse();
+        assertThatThrownBy(() -> keyIndex.search(FileQuery.builder().limit(10).build()))
+                .isInstanceOf(FileStorageException.class);
+    }
+
+    @Test
+    void partitionedListingCoversBucketExactlyOnce() {
+        // 根目录和一个子目录都超过一页，剩余部分按首字符分区并行列出
+        Random random = new Random(42);
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 2500; i++) {
+            keys.add(new UUID(random.nextLong(), random.nextLong()) + ".jpg");
+        }
+        for (int i = 0; i < 1500; i++) {
+            keys.add("docs/" + new UUID(random.nextLong(), random.nextLong()) + ".pdf");
+        }
+        for (int i = 0; i < 10; i++) {
+            keys.add("img/" + i + ".png");
+        }
+        keys.add("\uE000.png");
+        keys.add("\uD83D\uDE00.png");
+        keys.add("docs/\uD83D\uDE00/nested.txt");
+        keys.forEach(s3Client::put);
+
+        for (int partitions : new int[]{1, 3, 16}) {
+            spacesConfig.getKeyIndex().setPartitions(partitions);
+            keyIndex.reconcile();
+
+            assertThat(keyIndex.isReady()).isTrue();
+            assertThat(keyIndex.size()).as("partitions=%d", partitions).isEqualTo(keys.size());
+            assertThat(searchAll(FileQuery.builder().limit(keys.size() + 1).build()))
+                    .as("partitions=%d", partitions)
+                    .containsExactlyElementsOf(s3Client.keys());
+        }
+    }
+
+    @Test
+    void searchesByPrefixAndCursorAcrossPages() {
+        List.of("a/1", "a/2", "a/3", "a\uE000", "a\uD83D\uDE00", "b/1").forEach(s3Client::put);
+        keyIndex.reconcile();
+
+        assertThat(searchAll(FileQuery.builder().prefix("a").limit(2).build()))
+                .containsExactly("a/1", "a/2", "a/3", "a\uE000", "a\uD83D\uDE00");
+        assertThat(searchAll(FileQuery.builder().prefix("a/").limit(1).build()))
+                .containsExactly("a/1", "a/2", "a/3");
+    }
+
+    @Test
+    void filtersBySizeSuffixAndModifiedTime() {
+        Instant base = Instant.parse("2024-01-01T00:00:00Z");
+        s3Client.put("photo.JPG", 100, base);
+        s3Client.put("small.jpg", 10, base);
+        s3Client.put("old.jpg", 100, base.minusSeconds(3600));
+        s3Client.put("doc.pdf", 100, base);
+        keyIndex.reconcile();
+
+        FilePage page = keyIndex.search(FileQuery.builder()
+                .suffix(".jpg")
+                .minSize(50L)
+                .modifiedAfter(base)
+                .limit(10)
+                .build());
+
+        assertThat(page.getFiles()).extracting(FileMetadata::getKey).containsExactly("photo.JPG");
+        assertThat(page.isTruncated()).isFalse();
+    }
+
+    @Test
+    void mergesPendingChangesOverSnapshot() {
+        List.of("k1", "k3", "k5", "k7").forEach(s3Client::put);
+        keyIndex.reconcile();
+
+        keyIndex.put(metadata("k4", 44));
+        keyIndex.put(metadata("k5", 55));
+        keyIndex.remove("k3");
+        keyIndex.put(metadata("k\uD83D\uDE00", 1));
+        keyIndex.put(metadata("k\uE000", 1));
+
+        assertThat(keyIndex.size()).isEqualTo(4);
+        assertThat(keyIndex.pendingChanges()).isEqualTo(5);
+        assertThat(searchAll(FileQuery.builder().limit(2).build()))
+                .containsExactly("k1", "k4", "k5", "k7", "k\uE000", "k\uD83D\uDE00");
+        assertThat(keyIndex.search(FileQuery.builder().prefix("k5").limit(10).build()).getFiles())
+                .singleElement()
+                .extracting(FileMetadata::getSize)
+                .isEqualTo(55L);
+        // 增量按大小过滤时以新值为准
+        assertThat(keyIndex.search(FileQuery.builder().minSize(40L).limit(10).build()).getFiles())
+                .extracting(FileMetadata::getKey)
+                .containsExactly("k4", "k5");
+    }
+
+    @Test
+    void reconcileReplacesChangesMadeBeforeListing() {
+        List.of("k1", "k2").forEach(s3Client::put);
+        keyIndex.reconcile();
+
+        keyIndex.put(metadata("k3", 3));
+        keyIndex.remove("k1");
+        s3Client.put("k3").remove("k1");
+        keyIndex.reconcile();
+
+        assertThat(keyIndex.pendingChanges()).isZero();
+        assertThat(keyIndex.size()).isEqualTo(2);
+        assertThat(searchAll(FileQuery.builder().limit(10).build())).containsExactly("k2", "k3");
+    }
+
+    private List<String> searchAll(FileQuery query) {
+        List<String> keys = new ArrayList<>();
+        FilePage page;
+        do {
+            page = keyIndex.search(query);
+            page.getFiles().forEach(file -> keys.add(file.getKey()));
+            query.setCursor(page.getNextCursor());
+        } while (page.isTruncated());
+        return keys;
+    }
+
+    private static FileMetadata metadata(String key, long size) {
+        return FileMetadata.builder()
+                .key(key)
+                .size(size)
+                .lastModified(Instant.EPOCH)
+                .eTag("\"" + key + "\"")
+                .build();
+    }
+
+    private static int utf8Order(String a, String b) {
+        return Arrays.compareUnsigned(a.getBytes(StandardCharsets.UTF_8), b.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,147 @@
+package org.example.spaces.checksum;
+
+import org.example.spaces.config.SpacesConfig;
+import org.example.spaces.config.SpacesConfig.ChecksumAlgorithm;
+import org.example.spaces.model.FileMetadata;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/*
+* 端到端校验和：与Spaces/S3返回的x-amz-checksum-*值一致，复合校验和（-分片数）按分片大小校验*/
+class ChecksummerTest {
+    private static final byte[] CONTENT = "The quick brown fox jumps over the lazy dog"
+            .getBytes(StandardCharsets.US_ASCII);
+    private static final long PART_SIZE = 16;
+
+    //CONTENT按16字节分为3片（16/16/11）时S3返回的校验和
+    private static final String CRC32C = "ImIEBA==";
+    private static final String CRC32C_COMPOSITE = "IPH7Eg==-3";
+    private static final String SHA256 = "16j7swfXgJRpypq8sAguT41WUeRtPNt2LQLQvzfJ5ZI=";
+    private static final String SHA256_COMPOSITE = "E/wNbx6tOl6/k4ZNm9vdQgvHRTvU3gsBzAYFP1LNpq4=-3";
+
+    private final SpacesConfig spacesConfig = new SpacesConfig();
+    private Checksummer checksummer;
+
+    @BeforeEach
+    void setUp() {
+        spacesConfig.getChecksum().setEnabled(true);
+        checksummer = new Checksummer(spacesConfig);
+    }
+
+    @Test
+    void crc32cMatchesKnownValues() {
+        // CRC-32C标准校验值 0xE3069283
+        assertThat(checksummer.checksumOf("123456789".getBytes(StandardCharsets.US_ASCII))).isEqualTo("4waSgw==");
+        assertThat(checksummer.checksumOf(CONTENT)).isEqualTo(CRC32C);
+        assertThat(checksummer.checksumOf(new byte[0])).isEqualTo("AAAAAA==");
+    }
+
+    @Test
+    void compositeOfPartChecksums() {
+        assertThat(checksummer.composite(parts())).isEqualTo(CRC32C_COMPOSITE);
+
+        spacesConfig.getChecksum().setAlgorithm(ChecksumAlgorithm.SHA256);
+        assertThat(checksummer.checksumOf(CONTENT)).isEqualTo(SHA256);
+        assertThat(checksummer.composite(parts())).isEqualTo(SHA256_COMPOSITE);
+    }
+
+    @Test
+    void verifiesSinglePartChecksum() throws IOException {
+        assertThat(read(metadata("CRC32C", CRC32C, null), CONTENT)).isEqualTo(CONTENT);
+        assertThat(read(metadata("SHA256", SHA256, null), CONTENT)).isEqualTo(CONTENT);
+        assertThat(checksummer.mismatchCount()).isZero();
+    }
+
+    @Test
+    void verifiesCompositeChecksumAcrossReadBoundaries() throws IOException {
+        assertThat(read(metadata("CRC32C", CRC32C_COMPOSITE, PART_SIZE), CONTENT)).isEqualTo(CONTENT);
+        assertThat(read(metadata("SHA256", SHA256_COMPOSITE, PART_SIZE), CONTENT)).isEqualTo(CONTENT);
+
+        // 内容恰好是分片大小的整数倍
+        byte[] twoParts = Arrays.copyOf(CONTENT, 32);
+        FileMetadata exactParts = metadata("CRC32C", "sQ+w7g==-2", PART_SIZE).toBuilder().size(32L).build();
+        assertThat(read(exactParts, twoParts)).isEqualTo(twoParts);
+
+        // 长度未知时在流结束时校验
+        FileMetadata unknownLength = metadata("CRC32C", CRC32C_COMPOSITE, PART_SIZE).toBuilder().size(null).build();
+        assertThat(read(unknownLength, CONTENT)).isEqualTo(CONTENT);
+        assertThat(checksummer.mismatchCount()).isZero();
+    }
+
+    @Test
+    void failsBeforeReturningLastBytesOnMismatch() {
+        byte[] corrupted = CONTENT.clone();
+        corrupted[20] ^= 1;
+
+        assertThatThrownBy(() -> read(metadata("CRC32C", CRC32C, null), corrupted))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("校验和不匹配");
+        assertThatThrownBy(() -> read(metadata("CRC32C", CRC32C_COMPOSITE, PART_SIZE), corrupted))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("校验和不匹配");
+        // 分片数不同也视为不匹配
+        assertThatThrownBy(() -> read(metadata("CRC32C", CRC32C_COMPOSITE, 32L), CONTENT))
+                .isInstanceOf(IOException.class);
+        assertThat(checksummer.mismatchCount()).isEqualTo(3);
+
+        assertThatThrownBy(() -> read(metadata("CRC32C", CRC32C, null), Arrays.copyOf(CONTENT, 40)))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("内容不完整");
+    }
+
+    @Test
+    void skipsVerificationWhenNotApplicable() throws IOException {
+        // 复合校验和缺少分片大小
+        assertThat(checksummer.verify(new ByteArrayInputStream(CONTENT), metadata("CRC32C", CRC32C_COMPOSITE, null)))
+                .isNotInstanceOf(VerifyingInputStream.class);
+
+        spacesConfig.getChecksum().setVerifyDownloads(false);
+        assertThat(read(metadata("CRC32C", "AAAAAA==", null), CONTENT)).isEqualTo(CONTENT);
+    }
+
+    private List<CompletedPart> parts() {
+        List<CompletedPart> parts = new ArrayList<>();
+        for (int offset = 0, partNumber = 1; offset < CONTENT.length; offset += (int) PART_SIZE, partNumber++) {
+            byte[] part = Arrays.copyOfRange(CONTENT, offset, (int) Math.min(CONTENT.length, offset + PART_SIZE));
+            parts.add(checksummer.apply(CompletedPart.builder().partNumber(partNumber), checksummer.checksumOf(part))
+                    .build());
+        }
+        return parts;
+    }
+
+    // 每次最多读出7字节，读取边界与分片边界错开
+    private byte[] read(FileMetadata metadata, byte[] content) throws IOException {
+        InputStream source = new FilterInputStream(new ByteArrayInputStream(content)) {
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return super.read(b, off, Math.min(len, 7));
+            }
+        };
+        try (InputStream inputStream = checksummer.verify(source, metadata)) {
+            return inputStream.readAllBytes();
+        }
+    }
+
+    private static FileMetadata metadata(String algorithm, String checksum, Long partSize) {
+        return FileMetadata.builder()
+                .key("fox.txt")
+                .size((long) CONTENT.length)
+                .checksumAlgorithm(algorithm)
+                .checksum(checksum)
+                .checksumPartSize(partSize)
+                .build();
+    }
+}
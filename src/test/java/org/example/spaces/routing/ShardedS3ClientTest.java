@@ -0,0 +1,188 @@
+package org.example.spaces.routing;
+
+import org.example.spaces.config.SpacesConfig;
+import org.example.spaces.routing.ShardTopology.Target;
+import org.example.spaces.support.ListingS3Client;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.s3.model.CommonPrefix;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+* 跨分片列出：各分片的页按键归并，截断时不越过任一分片本页最后一项*/
+class ShardedS3ClientTest {
+    private final Map<String, ListingS3Client> buckets = new LinkedHashMap<>();
+    private ShardTopology topology;
+    private ShardedS3Client client;
+
+    @BeforeEach
+    void setUp() {
+        SpacesConfig.Sharding sharding = new SpacesConfig.Sharding();
+        sharding.setEnabled(true);
+        sharding.setMigrationFallback(false);
+
+        Map<String, Target> primaries = new LinkedHashMap<>();
+        for (String name : List.of("a", "b", "c")) {
+            SpacesConfig.Shard shard = new SpacesConfig.Shard();
+            shard.setName(name);
+            shard.setBucketName("bucket-" + name);
+            shard.setEndpointUrl("https://" + name + ".example.com");
+            shard.setRegion("sgp1");
+            sharding.getShards().add(shard);
+
+            ListingS3Client bucket = new ListingS3Client();
+            buckets.put(name, bucket);
+            primaries.put(name, new Target(name, shard.getBucketName(), shard.getEndpointUrl(), shard.getRegion(),
+                    false, bucket, null));
+        }
+        topology = new ShardTopology(sharding, primaries, Map.of());
+        client = new ShardedS3Client(topology);
+    }
+
+    @Test
+    void pagesThroughAllShardsInKeyOrder() {
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            keys.add(String.format("file-%03d.txt", i));
+        }
+        keys.forEach(this::put);
+        assertThat(buckets.values()).allSatisfy(bucket -> assertThat(bucket.keys()).isNotEmpty());
+
+        List<ListObjectsV2Response> pages = listAll(ListObjectsV2Request.builder().bucket("spaces").maxKeys(7));
+
+        assertThat(keys(pages)).containsExactlyElementsOf(keys);
+        assertThat(pages).allSatisfy(page -> assertThat(page.contents()).hasSizeLessThanOrEqualTo(7));
+        assertThat(pages.subList(0, pages.size() - 1))
+                .allSatisfy(page -> assertThat(page.isTruncated()).isTrue());
+        assertThat(pages.get(pages.size() - 1).isTruncated()).isFalse();
+    }
+
+    @Test
+    void truncatedShardPageCutsOffMergedPage() {
+        // 一个分片返回的页短于maxKeys且已截断：其他分片排在该页最后一项之后的键不能先返回，否则会跳过该分片的后续键
+        String shard = topology.primary("x").shardName();
+        buckets.get(shard).pageLimit(2);
+        List<String> owned = new ArrayList<>();
+        List<String> others = new ArrayList<>();
+        for (int i = 0; owned.size() < 10 || others.size() < 10; i++) {
+            String key = String.format("key-%03d", i);
+            (topology.primary(key).shardName().equals(shard) ? owned : others).add(key);
+            put(key);
+        }
+        List<String> all = new ArrayList<>(owned);
+        all.addAll(others);
+
+        ListObjectsV2Response first = client.listObjectsV2(ListObjectsV2Request.builder()
+                .bucket("spaces").maxKeys(10).build());
+
+        String cutoff = owned.get(1);
+        assertThat(first.isTruncated()).isTrue();
+        assertThat(first.contents()).extracting(S3Object::key)
+                .containsExactlyElementsOf(sorted(all).stream()
+                        .filter(key -> key.compareTo(cutoff) <= 0)
+                        .limit(10)
+                        .toList());
+        assertThat(keys(listAll(ListObjectsV2Request.builder().bucket("spaces").maxKeys(10))))
+                .containsExactlyElementsOf(sorted(all));
+    }
+
+    @Test
+    void ordersSurrogateKeysByUtf8Bytes() {
+        // UTF-16中U+1F600（代理对）小于U+E000，UTF-8中更大，Spaces按UTF-8字节序返回
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            keys.add("k\uE000" + i);
+            keys.add("k\uD83D\uDE00" + i);
+            keys.add("k\uFFFD" + i);
+            keys.add("k" + i);
+        }
+        keys.forEach(this::put);
+
+        List<String> listed = keys(listAll(ListObjectsV2Request.builder().bucket("spaces").maxKeys(5)));
+
+        assertThat(listed).containsExactlyElementsOf(sorted(keys));
+        assertThat(listed.indexOf("k\uD83D\uDE000")).isGreaterThan(listed.indexOf("k\uFFFD19"));
+    }
+
+    @Test
+    void mergesCommonPrefixesAcrossShards() {
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            keys.add("dir-" + (i % 5) + "/file-" + i);
+            keys.add("root-" + i);
+        }
+        keys.forEach(this::put);
+
+        List<ListObjectsV2Response> pages = listAll(ListObjectsV2Request.builder()
+                .bucket("spaces").delimiter("/").maxKeys(3));
+
+        List<String> prefixes = pages.stream()
+                .flatMap(page -> page.commonPrefixes().stream())
+                .map(CommonPrefix::prefix)
+                .toList();
+        assertThat(prefixes).containsExactly("dir-0/", "dir-1/", "dir-2/", "dir-3/", "dir-4/");
+        assertThat(keys(pages)).containsExactlyElementsOf(sorted(keys.stream()
+                .filter(key -> key.startsWith("root-"))
+                .toList()));
+    }
+
+    @Test
+    void keepsNewerCopyOfKeyPresentInSeveralShards() {
+        // 迁移期间同一文件可能同时存在于新旧分片
+        Instant older = Instant.parse("2024-01-01T00:00:00Z");
+        Instant newer = Instant.parse("2024-02-01T00:00:00Z");
+        buckets.get("a").put("shared", 1, older);
+        buckets.get("b").put("shared", 2, newer);
+        buckets.get("c").put("shared", 3, older);
+
+        ListObjectsV2Response page = client.listObjectsV2(ListObjectsV2Request.builder().bucket("spaces").build());
+
+        assertThat(page.contents()).singleElement().satisfies(object -> {
+            assertThat(object.size()).isEqualTo(2);
+            assertThat(object.lastModified()).isEqualTo(newer);
+        });
+        assertThat(page.isTruncated()).isFalse();
+    }
+
+    private void put(String key) {
+        ((ListingS3Client) topology.primary(key).client()).put(key);
+    }
+
+    private List<ListObjectsV2Response> listAll(ListObjectsV2Request.Builder request) {
+        List<ListObjectsV2Response> pages = new ArrayList<>();
+        String token = null;
+        do {
+            ListObjectsV2Response page = client.listObjectsV2(request.continuationToken(token).build());
+            pages.add(page);
+            token = page.nextContinuationToken();
+            assertThat(pages).as("continuation token must advance").hasSizeLessThan(1000);
+        } while (token != null);
+        return pages;
+    }
+
+    private static List<String> keys(List<ListObjectsV2Response> pages) {
+        return pages.stream()
+                .flatMap(page -> page.contents().stream())
+                .map(S3Object::key)
+                .toList();
+    }
+
+    private static List<String> sorted(List<String> keys) {
+        return keys.stream()
+                .sorted((a, b) -> Arrays.compareUnsigned(
+                        a.getBytes(StandardCharsets.UTF_8), b.getBytes(StandardCharsets.UTF_8)))
+                .toList();
+    }
+}
@@ -0,0 +1,137 @@
+package org.example.spaces.service.impl;
+
+import org.example.spaces.config.SpacesConfig;
+import org.example.spaces.exception.FileStorageException;
+import org.example.spaces.service.SpacesService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/*
+* 上传写回暂存：日志编码与重放时的文件名校验*/
+class UploadSpoolTest {
+    @TempDir
+    Path root;
+
+    private final SpacesService spacesService = mock(SpacesService.class);
+    private final SpacesConfig spacesConfig = new SpacesConfig();
+    private ExecutorService transferExecutor;
+    private Path directory;
+    private UploadSpool spool;
+
+    @BeforeEach
+    void setUp() {
+        directory = root.resolve("spool");
+        spacesConfig.getSpool().setEnabled(true);
+        spacesConfig.getSpool().setDirectory(directory.toString());
+        spacesConfig.getSpool().setMaxRetries(0);
+        spacesConfig.getSpool().setFsync(false);
+        transferExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (spool != null) {
+            spool.close();
+        }
+        transferExecutor.shutdownNow();
+    }
+
+    @Test
+    void replayedJournalCannotReachFilesOutsideDataDirectory() throws IOException {
+        Path secret = Files.writeString(root.resolve("secret"), "secret");
+        Path sibling = Files.writeString(Files.createDirectories(directory).resolve("journal-secret"), "secret");
+        Files.createDirectories(directory.resolve("data"));
+        String validId = UUID.randomUUID().toString();
+        Files.writeString(directory.resolve("data").resolve(validId), "content");
+        // 早期版本未编码文件键：a.txt\n+../../secret ... 被写成了两行
+        Files.writeString(directory.resolve("journal.log"), String.join("\n",
+                "+" + validId + " text/plain a.txt",
+                "+../../secret text/plain stolen.txt",
+                "+../journal-secret text/plain stolen.txt",
+                "+" + root.resolve("secret") + " text/plain stolen.txt",
+                "+" + validId.toUpperCase() + " text/plain stolen.txt",
+                ""), StandardCharsets.UTF_8);
+        Files.writeString(directory.resolve("journal-v2.log"), String.join("\n",
+                "+../../secret dGV4dC9wbGFpbg c3RvbGVuLnR4dA",
+                "+" + UUID.randomUUID() + " not-base64! c3RvbGVuLnR4dA",
+                ""), StandardCharsets.UTF_8);
+        when(spacesService.uploadFileAs(anyString(), any(InputStream.class), anyString()))
+                .thenThrow(new FileStorageException("unavailable"));
+
+        spool = open();
+
+        verify(spacesService, timeout(1000)).uploadFileAs(eq("a.txt"), any(InputStream.class), eq("text/plain"));
+        verify(spacesService, never()).uploadFileAs(eq("stolen.txt"), any(InputStream.class), anyString());
+        assertThat(spool.pendingCount()).isEqualTo(1);
+        assertThat(secret).exists();
+        assertThat(sibling).exists();
+        assertThat(directory.resolve("journal.log")).doesNotExist();
+    }
+
+    @Test
+    void encodesKeyAndContentTypeInJournal() throws IOException {
+        when(spacesService.uploadFileAs(anyString(), any(InputStream.class), anyString()))
+                .thenThrow(new FileStorageException("unavailable"));
+        spool = open();
+
+        String key = spool.accept(new MockMultipartFile("file", "report 2024 +final.txt",
+                "text/plain; charset=utf-8", "content".getBytes(StandardCharsets.UTF_8)), "docs")
+                .orElseThrow()
+                .getKey();
+        verify(spacesService, timeout(1000)).uploadFileAs(eq(key), any(InputStream.class), anyString());
+        spool.close();
+
+        String journal = Files.readString(directory.resolve("journal-v2.log"), StandardCharsets.UTF_8);
+        assertThat(journal).doesNotContain("report").doesNotContain("text/plain").hasLineCount(1);
+
+        // 重启后按解码后的文件键和类型继续上传
+        spool = open();
+        verify(spacesService, timeout(1000).times(2))
+                .uploadFileAs(eq(key), any(InputStream.class), eq("text/plain;charset=utf-8"));
+        assertThat(spool.find(key)).isPresent();
+    }
+
+    @Test
+    void rejectsControlCharactersInKey() throws IOException {
+        spool = open();
+
+        String forged = "a.txt\n+" + UUID.randomUUID() + " text/plain stolen.txt";
+        assertThatThrownBy(() -> spool.accept(new MockMultipartFile("file", forged,
+                "text/plain", "content".getBytes(StandardCharsets.UTF_8)), null))
+                .isInstanceOf(FileStorageException.class);
+        assertThatThrownBy(() -> spool.accept(new MockMultipartFile("file", "a.txt",
+                "text/plain", "content".getBytes(StandardCharsets.UTF_8)), "docs\r\n"))
+                .isInstanceOf(FileStorageException.class);
+        assertThat(spool.pendingCount()).isZero();
+        assertThat(spool.spooledBytes()).isZero();
+    }
+
+    private UploadSpool open() throws IOException {
+        UploadSpool opened = new UploadSpool(spacesService, spacesConfig, transferExecutor);
+        opened.init();
+        return opened;
+    }
+}
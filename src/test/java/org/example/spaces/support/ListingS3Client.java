@@ -0,0 +1,141 @@
+package org.example.spaces.support;
+
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.CommonPrefix;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.S3Object;
+import software.amazon.awssdk.services.s3.paginators.ListObjectsV2Iterable;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+* 只实现列出文件的S3桩
+* 文件键按UTF-8字节序保存，支持prefix/delimiter/startAfter/continuationToken/maxKeys，与Spaces的列出语义一致*/
+public class ListingS3Client implements S3Client {
+    //直接比较UTF-8编码，不复用被测代码中的比较器
+    private static final Comparator<String> UTF8_ORDER = (a, b) -> Arrays.compareUnsigned(
+            a.getBytes(StandardCharsets.UTF_8), b.getBytes(StandardCharsets.UTF_8));
+    private static final String MAX_CHAR = "\uDBFF\uDFFF";
+
+    private final ConcurrentSkipListMap<String, S3Object> objects = new ConcurrentSkipListMap<>(UTF8_ORDER);
+    private final AtomicInteger listCount = new AtomicInteger();
+    //单页最多返回的数量，模拟Spaces返回少于maxKeys但仍截断的页
+    private volatile int pageLimit = Integer.MAX_VALUE;
+
+    public ListingS3Client put(String key, long size, Instant lastModified) {
+        objects.put(key, S3Object.builder()
+                .key(key)
+                .size(size)
+                .lastModified(lastModified)
+                .eTag("\"" + Integer.toHexString(key.hashCode()) + "\"")
+                .build());
+        return this;
+    }
+
+    public ListingS3Client put(String key) {
+        return put(key, key.length(), Instant.EPOCH);
+    }
+
+    public ListingS3Client remove(String key) {
+        objects.remove(key);
+        return this;
+    }
+
+    /*
+    * 按Spaces的顺序返回所有文件键
+    * */
+    public List<String> keys() {
+        return new ArrayList<>(objects.keySet());
+    }
+
+    public ListingS3Client pageLimit(int pageLimit) {
+        this.pageLimit = pageLimit;
+        return this;
+    }
+
+    public int listCount() {
+        return listCount.get();
+    }
+
+    @Override
+    public ListObjectsV2Response listObjectsV2(ListObjectsV2Request request) {
+        listCount.incrementAndGet();
+        String prefix = request.prefix() != null ? request.prefix() : "";
+        int maxKeys = request.maxKeys() != null ? request.maxKeys() : 1000;
+        int pageSize = Math.min(maxKeys, pageLimit);
+        String after = request.continuationToken() != null ? request.continuationToken() : request.startAfter();
+        NavigableMap<String, S3Object> view = after != null && UTF8_ORDER.compare(after, prefix) >= 0
+                ? objects.tailMap(after, false)
+                : objects.tailMap(prefix, true);
+
+        List<S3Object> contents = new ArrayList<>();
+        Set<String> commonPrefixes = new LinkedHashSet<>();
+        String last = null;
+        boolean truncated = false;
+        for (Map.Entry<String, S3Object> entry : view.entrySet()) {
+            String key = entry.getKey();
+            if (!key.startsWith(prefix)) {
+                break;
+            }
+            int delimiterIndex = request.delimiter() != null
+                    ? key.indexOf(request.delimiter(), prefix.length())
+                    : -1;
+            String commonPrefix = delimiterIndex >= 0
+                    ? key.substring(0, delimiterIndex + request.delimiter().length())
+                    : null;
+            if (commonPrefix != null && commonPrefixes.contains(commonPrefix)) {
+                continue;
+            }
+            if (contents.size() + commonPrefixes.size() >= pageSize) {
+                truncated = true;
+                break;
+            }
+            if (commonPrefix != null) {
+                commonPrefixes.add(commonPrefix);
+                // 下一页跳过整个公共前缀
+                last = commonPrefix + MAX_CHAR;
+            } else {
+                contents.add(entry.getValue());
+                last = key;
+            }
+        }
+
+        return ListObjectsV2Response.builder()
+                .prefix(request.prefix())
+                .delimiter(request.delimiter())
+                .maxKeys(maxKeys)
+                .keyCount(contents.size() + commonPrefixes.size())
+                .contents(contents)
+                .commonPrefixes(commonPrefixes.stream().map(p -> CommonPrefix.builder().prefix(p).build()).toList())
+                .isTruncated(truncated)
+                .continuationToken(request.continuationToken())
+                .nextContinuationToken(truncated ? last : null)
+                .build();
+    }
+
+    @Override
+    public ListObjectsV2Iterable listObjectsV2Paginator(ListObjectsV2Request request) {
+        return new ListObjectsV2Iterable(this, request);
+    }
+
+    @Override
+    public String serviceName() {
+        return SERVICE_NAME;
+    }
+
+    @Override
+    public void close() {
+    }
+}